@@ -0,0 +1,91 @@
+/*
+Gera os códigos-fonte usados nos benchmarks.
+Todos são determinísticos (mesma semente), para que os resultados de execuções
+diferentes possam ser comparados com o arquivo de base em src/jmh/resultados.
+    - "pequeno": o próprio CalculoMedia.java do projeto.
+    - "1MB", "10MB", "100MB": código Java sintético do tamanho indicado.
+    - "comentarios": código com muitos comentários de linha e de bloco.
+    - "strings": código com muitos literais de string longos.
+    - "unicode": identificadores com acentos e letras não latinas.
+*/
+
+package analisador;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+public final class Corpora {
+    private static final int MB = 1024 * 1024;
+
+    private Corpora() {
+    }
+
+    public static String gerar(String nome) {
+        switch (nome) {
+            case "pequeno":
+                try {
+                    return Files.readString(Path.of("CalculoMedia.java"));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            case "1MB": return sintetico(MB, 0);
+            case "10MB": return sintetico(10 * MB, 0);
+            case "100MB": return sintetico(100 * MB, 0);
+            case "comentarios": return sintetico(MB, 1);
+            case "strings": return sintetico(MB, 2);
+            case "unicode": return sintetico(MB, 3);
+            default: throw new IllegalArgumentException("Corpus desconhecido: " + nome);
+        }
+    }
+
+    // estilo: 0 = código comum, 1 = muitos comentários, 2 = muitas strings, 3 = identificadores unicode
+    private static String sintetico(int tamanho, int estilo) {
+        Random random = new Random(42);
+        String[] nomes = estilo == 3
+                ? new String[] { "ação", "média", "índice", "λvalor", "número_ñ", "coração", "σoma", "παράμετρος" }
+                : new String[] { "i", "nota1", "nota2", "media", "total", "contador", "resultado", "valorAtual" };
+        StringBuilder sb = new StringBuilder(tamanho + 1024);
+        int classe = 0;
+        while (sb.length() < tamanho) {
+            sb.append("public class Gerada").append(classe++).append(" {\n");
+            for (int metodo = 0; metodo < 20; metodo++) {
+                if (estilo == 1) {
+                    sb.append("    /*\n     * Método gerado número ").append(metodo)
+                            .append(".\n     * Calcula valores a partir das notas informadas.\n     */\n");
+                }
+                sb.append("    public static float metodo").append(metodo).append("(int ")
+                        .append(nomes[random.nextInt(nomes.length)]).append(") {\n");
+                for (int linha = 0; linha < 8; linha++) {
+                    String a = nomes[random.nextInt(nomes.length)];
+                    String b = nomes[random.nextInt(nomes.length)];
+                    switch (random.nextInt(4)) {
+                        case 0:
+                            sb.append("        float ").append(a).append(" = (").append(b).append(" + ")
+                                    .append(random.nextInt(1000)).append(".5f) / 3.0f;");
+                            break;
+                        case 1:
+                            sb.append("        if (").append(a).append(" >= ").append(b).append(" && ").append(a)
+                                    .append(" != 0 || !flag) { ").append(a).append(" = ").append(b).append(" << 2; }");
+                            break;
+                        case 2:
+                            sb.append("        String texto = \"").append(estilo == 2 ? "Uma string longa usada para medir o custo dos literais " : "ok")
+                                    .append(random.nextInt(100)).append("\";");
+                            break;
+                        default:
+                            sb.append("        while (").append(a).append(" < ").append(random.nextInt(100))
+                                    .append(") { ").append(a).append(" = ").append(a).append(" + 1; }");
+                            break;
+                    }
+                    if (estilo == 1) sb.append(" // comentário de linha explicando o cálculo");
+                    sb.append('\n');
+                }
+                sb.append("        return ").append(nomes[random.nextInt(nomes.length)]).append(";\n    }\n");
+            }
+            sb.append("}\n");
+        }
+        return sb.toString();
+    }
+}
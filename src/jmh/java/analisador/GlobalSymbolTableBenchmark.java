@@ -0,0 +1,79 @@
+/*
+Benchmark da Tabela de Símbolos global (GlobalSymbolTable) com várias threads.
+ARQUIVOS cópias dos tokens do corpus fazem o papel de arquivos diferentes; cada
+tarefa do pool preenche a tabela local de um arquivo e a junta à global. Como todos
+os "arquivos" têm os mesmos nomes, todas as threads disputam as mesmas faixas
+(o pior caso para a trava). Os tokens são produzidos uma única vez no @Setup.
+*/
+
+package analisador;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xms4g", "-Xmx4g" })
+@State(Scope.Benchmark)
+public class GlobalSymbolTableBenchmark {
+    static final int ARQUIVOS = 32;
+
+    @Param({ "1MB", "unicode" })
+    public String corpus;
+
+    @Param({ "1", "4" })
+    public int threads;
+
+    List<Token> tokens;
+    List<Path> arquivos;
+    ExecutorService pool;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        tokens = new Lexer(Corpora.gerar(corpus)).scanTokens();
+        arquivos = new ArrayList<>();
+        for (int i = 0; i < ARQUIVOS; i++) arquivos.add(Path.of("Arquivo" + i + ".java"));
+        pool = Executors.newFixedThreadPool(threads);
+    }
+
+    @TearDown(Level.Trial)
+    public void fecharPool() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public GlobalSymbolTable preencherEJuntar() throws Exception {
+        GlobalSymbolTable global = new GlobalSymbolTable(arquivos);
+        List<Future<?>> tarefas = new ArrayList<>(ARQUIVOS);
+        for (int i = 0; i < ARQUIVOS; i++) {
+            GlobalSymbolTable.Arquivo local = global.arquivo(i);
+            tarefas.add(pool.submit(() -> {
+                for (Token token : tokens) local.add(token);
+                local.concluir();
+            }));
+        }
+        for (Future<?> tarefa : tarefas) tarefa.get();
+        return global;
+    }
+}
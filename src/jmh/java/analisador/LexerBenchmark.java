@@ -0,0 +1,96 @@
+/*
+Benchmarks do Lexer.
+Além do tempo por operação, os contadores auxiliares (Vazao) fazem o JMH
+reportar tokens/s e bytes/s. A taxa de alocação aparece com o profiler de GC:
+    java -jar target/benchmarks.jar LexerBenchmark -prof gc
+*/
+
+package analisador;
+
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import analisador.core.TokenType;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xms4g", "-Xmx4g" })
+@State(Scope.Benchmark)
+public class LexerBenchmark {
+
+    @Param({ "pequeno", "1MB", "10MB", "100MB", "comentarios", "strings", "unicode" })
+    public String corpus;
+
+    String codigoFonte;
+    long bytes;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        codigoFonte = Corpora.gerar(corpus);
+        bytes = codigoFonte.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Vazao {
+        public long tokens;
+        public long bytes;
+    }
+
+    @Benchmark
+    public List<Token> scanTokens(Vazao vazao) {
+        List<Token> tokens = new Lexer(codigoFonte).scanTokens();
+        vazao.tokens += tokens.size();
+        vazao.bytes += bytes;
+        return tokens;
+    }
+
+    @Benchmark
+    public int nextTokenStreaming(Vazao vazao) {
+        Lexer lexer = new Lexer(new StringReader(codigoFonte));
+        int quantidade = 0;
+        while (lexer.nextToken() != null) quantidade++;
+        vazao.tokens += quantidade;
+        vazao.bytes += bytes;
+        return quantidade;
+    }
+
+    // Com o filtro só os identificadores viram Token: compare com nextTokenStreaming
+    @Benchmark
+    public int soIdentificadores(Vazao vazao) {
+        Lexer lexer = new Lexer(codigoFonte);
+        lexer.filtrar(EnumSet.of(TokenType.IDENTIFICADOR));
+        int quantidade = 0;
+        while (lexer.nextToken() != null) quantidade++;
+        vazao.tokens += quantidade;
+        vazao.bytes += bytes;
+        return quantidade;
+    }
+
+    @Benchmark
+    public TokenBuffer tokenBuffer(Vazao vazao) {
+        TokenBuffer tokens = new TokenBuffer(codigoFonte);
+        vazao.tokens += tokens.size();
+        vazao.bytes += bytes;
+        return tokens;
+    }
+}
@@ -0,0 +1,59 @@
+/*
+Benchmark do custo de popular a SymbolTable (SymbolTable.add para cada token),
+separado do custo do Lexer: os tokens são produzidos uma única vez no @Setup.
+addComPoolDoLexer usa o LexemePool do Lexer que produziu os tokens, como o Main faz.
+*/
+
+package analisador;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xms4g", "-Xmx4g" })
+@State(Scope.Benchmark)
+public class SymbolTableBenchmark {
+
+    @Param({ "pequeno", "1MB", "10MB", "unicode" })
+    public String corpus;
+
+    List<Token> tokens;
+    LexemePool lexemas;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        Lexer lexer = new Lexer(Corpora.gerar(corpus));
+        tokens = lexer.scanTokens();
+        lexemas = lexer.lexemas();
+    }
+
+    @Benchmark
+    public SymbolTable add() {
+        SymbolTable tabela = new SymbolTable();
+        for (Token token : tokens) tabela.add(token);
+        return tabela;
+    }
+
+    @Benchmark
+    public SymbolTable addComPoolDoLexer() {
+        SymbolTable tabela = new SymbolTable(lexemas);
+        for (Token token : tokens) tabela.add(token);
+        return tabela;
+    }
+}
@@ -0,0 +1,85 @@
+/*
+Benchmark da geração da tabela "Lista de Tokens" do PDF (RelatorioPdf.tabela).
+Cada invocação recebe um relatório novo com a fonte Roboto já carregada, então
+só o desenho da tabela é medido. O parâmetro 'threads' é o tamanho do pool que
+desenha as páginas. Precisa ser executado na pasta do projeto,
+onde estão o CalculoMedia.java e a fonte.
+*/
+
+package principal;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import analisador.Corpora;
+import analisador.Lexer;
+import analisador.Token;
+import analisador.core.TokenType;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xms4g", "-Xmx4g" })
+@State(Scope.Benchmark)
+public class RelatorioBenchmark {
+
+    @Param({ "pequeno", "1MB" })
+    public String corpus;
+
+    @Param({ "1", "4" })
+    public int threads;
+
+    List<List<String>> tokensLinhas;
+    ForkJoinPool pool;
+    RelatorioPdf relatorio;
+
+    @Setup(Level.Trial)
+    public void prepararLinhas() {
+        tokensLinhas = new ArrayList<>();
+        for (Token t : new Lexer(Corpora.gerar(corpus)).scanTokens()) {
+            if (t.tipo == TokenType.EOF) continue;
+            tokensLinhas.add(List.of(String.valueOf(t.linha), String.valueOf(t.coluna), t.lexema, t.descricao()));
+        }
+        pool = new ForkJoinPool(threads);
+    }
+
+    @TearDown(Level.Trial)
+    public void fecharPool() {
+        pool.shutdown();
+    }
+
+    @Setup(Level.Invocation)
+    public void prepararDocumento() throws IOException {
+        relatorio = new RelatorioPdf(new File(RelatorioPdf.FONTE), "Benchmark", pool);
+    }
+
+    @TearDown(Level.Invocation)
+    public void fecharDocumento() throws IOException {
+        relatorio.close();
+    }
+
+    @Benchmark
+    public void escreverTabela() throws IOException {
+        relatorio.tabela("Lista de Tokens", List.of("Linha", "Col", "Lexema", "Descrição"), tokensLinhas.iterator());
+        relatorio.concluir();
+    }
+}
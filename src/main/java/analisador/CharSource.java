@@ -0,0 +1,449 @@
+/*
+Esta classe abstrai de onde o Lexer lê os caracteres do código-fonte.
+O Lexer sempre trabalha com posições absolutas (0, 1, 2, ...) dentro do texto,
+mas quem guarda esses caracteres pode ser:
+    - Uma String inteira já carregada na memória (StringSource).
+    - Um Reader lido aos poucos através de um buffer limitado (ReaderSource),
+      que permite analisar arquivos enormes sem carregá-los por completo.
+    - Um arquivo mapeado na memória (MappedSource), decodificado do UTF-8 direto
+      para o mesmo buffer limitado.
+    - Um texto editável com lacuna (GapSource), usado pela análise incremental.
+Além de ler um caractere por vez, ela sabe pular trechos inteiros (procurar() e pular()),
+usados pelo Lexer para espaços, comentários e corpos de string: o laço corre direto
+sobre o array (ou a String) de quem guarda o texto, sem uma chamada a ler() por caractere.
+Em um comentário, o Lexer usa atravessar(): o texto percorrido não é mais necessário, e a
+janela do WindowSource não cresce nem com um comentário de vários MB.
+Os conjuntos de caracteres dessas buscas são máscaras de bits sobre o ASCII: o bit c de
+'baixa' para c < 64 e o bit c - 64 de 'alta' para 64 <= c < 128.
+*/
+
+package analisador;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+abstract class CharSource {
+    static final int FIM = -1;
+
+    // Devolve o caractere da posição 'pos' ou FIM se o texto acabou.
+    abstract int ler(int pos);
+
+    // Devolve o trecho [inicio, fim) do texto. O trecho ainda precisa estar disponível.
+    abstract String texto(int inicio, int fim);
+
+    // O trecho que começa em 'inicio' tem exatamente os caracteres de 'texto'? (sem criar uma String)
+    boolean mesmoTexto(int inicio, String texto) {
+        for (int i = 0; i < texto.length(); i++) {
+            if (ler(inicio + i) != texto.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    // Avisa que nenhuma posição anterior a 'pos' será lida de novo (pode ser descartada).
+    void descartar(int pos) {
+    }
+
+    // A primeira posição a partir de 'pos' com um caractere do conjunto (nenhum caractere fora do
+    // ASCII está nele), ou a posição do FIM.
+    int procurar(int pos, long baixa, long alta) {
+        for (int c = ler(pos); c != FIM && !contem(c, baixa, alta); c = ler(++pos)) { }
+        return pos;
+    }
+
+    // O mesmo, sem passar de 'ate': devolve 'ate' se não achou antes (ou 'pos', se ela já passou de 'ate').
+    int procurarAte(int pos, int ate, long baixa, long alta) {
+        for (int c = ler(pos); pos < ate && c != FIM && !contem(c, baixa, alta); c = ler(++pos)) { }
+        return pos;
+    }
+
+    // Como procurar(), para um trecho que não será lido de novo (um comentário, o fim de uma string
+    // longa demais): quem guarda o texto em uma janela pode descartá-lo durante a busca.
+    int atravessar(int pos, long baixa, long alta) {
+        return procurar(pos, baixa, alta);
+    }
+
+    // A primeira posição a partir de 'pos' com um caractere fora do conjunto 'baixa' (só caracteres < 64).
+    int pular(int pos, long baixa) {
+        for (int c = ler(pos); c != FIM && contem(c, baixa, 0); c = ler(++pos)) { }
+        return pos;
+    }
+
+    static boolean contem(int c, long baixa, long alta) { // o deslocamento de um long só usa os 6 bits de baixo de c
+        return c < 128 && ((c < 64 ? baixa : alta) >>> c & 1) != 0;
+    }
+
+    static final class StringSource extends CharSource {
+        private final String codigo;
+
+        StringSource(String codigo) {
+            this.codigo = codigo;
+        }
+
+        @Override
+        int ler(int pos) {
+            return pos < codigo.length() ? codigo.charAt(pos) : FIM;
+        }
+
+        @Override
+        String texto(int inicio, int fim) {
+            return codigo.substring(inicio, fim);
+        }
+
+        @Override
+        boolean mesmoTexto(int inicio, String texto) {
+            return codigo.regionMatches(inicio, texto, 0, texto.length());
+        }
+
+        @Override
+        int procurar(int pos, long baixa, long alta) {
+            if (alta == 0 && Long.bitCount(baixa) == 1) { // um caractere só (ex.: o fim de um comentário de linha)
+                int achado = codigo.indexOf(Long.numberOfTrailingZeros(baixa), pos); // indexOf é vetorizado pela JVM
+                return achado >= 0 ? achado : Math.max(pos, codigo.length());
+            }
+            int fim = codigo.length();
+            while (pos < fim && !contem(codigo.charAt(pos), baixa, alta)) pos++;
+            return pos;
+        }
+
+        @Override
+        int procurarAte(int pos, int ate, long baixa, long alta) {
+            int fim = Math.min(codigo.length(), ate);
+            while (pos < fim && !contem(codigo.charAt(pos), baixa, alta)) pos++;
+            return pos;
+        }
+
+        @Override
+        int pular(int pos, long baixa) {
+            int fim = codigo.length();
+            while (pos < fim && contem(codigo.charAt(pos), baixa, 0)) pos++;
+            return pos;
+        }
+    }
+
+    // Janela deslizante de caracteres: guarda só o trecho ainda necessário ao Lexer.
+    abstract static class WindowSource extends CharSource {
+        static final int TAMANHO_BUFFER = 64 * 1024;
+
+        private char[] buffer;
+        private int base = 0;       // posição absoluta de buffer[0]
+        private int quantidade = 0; // caracteres válidos no buffer
+        private int descartavel = 0; // tudo antes desta posição pode sair do buffer
+        private boolean acabou = false;
+
+        WindowSource(int tamanhoBuffer) {
+            this.buffer = new char[tamanhoBuffer];
+        }
+
+        // Coloca até 'maximo' caracteres novos em destino[desde...]; devolve quantos (ou -1 no fim).
+        abstract int preencher(char[] destino, int desde, int maximo) throws IOException;
+
+        @Override
+        int ler(int pos) {
+            int i = pos - base;
+            if (i < quantidade) return buffer[i];
+            while (!acabou && pos - base >= quantidade) carregar();
+            i = pos - base;
+            return i < quantidade ? buffer[i] : FIM;
+        }
+
+        @Override
+        String texto(int inicio, int fim) {
+            return new String(buffer, inicio - base, fim - inicio);
+        }
+
+        @Override
+        boolean mesmoTexto(int inicio, String texto) { // o trecho já está no buffer (é o token atual)
+            int desde = inicio - base;
+            for (int i = 0; i < texto.length(); i++) {
+                if (buffer[desde + i] != texto.charAt(i)) return false;
+            }
+            return true;
+        }
+
+        @Override
+        void descartar(int pos) {
+            descartavel = pos;
+        }
+
+        int tamanhoJanela() { // caracteres que o buffer comporta agora (cresce só com um token maior que ele)
+            return buffer.length;
+        }
+
+        @Override
+        int procurar(int pos, long baixa, long alta) {
+            return buscar(pos, Integer.MAX_VALUE, baixa, alta, false);
+        }
+
+        @Override
+        int procurarAte(int pos, int ate, long baixa, long alta) {
+            return buscar(pos, ate, baixa, alta, false);
+        }
+
+        @Override
+        int atravessar(int pos, long baixa, long alta) { // a janela não cresce: o trecho já percorrido sai dela
+            return buscar(pos, Integer.MAX_VALUE, baixa, alta, true);
+        }
+
+        private int buscar(int pos, int ate, long baixa, long alta, boolean descartando) {
+            while (true) {
+                char[] b = buffer;
+                int i = pos - base;
+                for (int n = (int) Math.min(quantidade, (long) ate - base); i < n; i++) {
+                    char c = b[i];
+                    if (contem(c, baixa, alta)) return base + i;
+                }
+                pos = base + i;
+                if (pos >= ate) return pos;
+                if (descartando) descartavel = pos;
+                if (ler(pos) == FIM) return pos; // carrega o próximo trecho (e, se ainda houver texto, continua nele)
+            }
+        }
+
+        @Override
+        int pular(int pos, long baixa) {
+            while (true) {
+                char[] b = buffer;
+                int i = pos - base;
+                for (int n = quantidade; i < n; i++) {
+                    char c = b[i];
+                    if (!contem(c, baixa, 0)) return base + i;
+                }
+                pos = base + i;
+                if (ler(pos) == FIM) return pos;
+            }
+        }
+
+        private void carregar() {
+            if (quantidade == buffer.length) {
+                int livre = descartavel - base;
+                if (livre > 0) { // Compacta: move o que ainda é necessário para o começo
+                    System.arraycopy(buffer, livre, buffer, 0, quantidade - livre);
+                    quantidade -= livre;
+                    base = descartavel;
+                } else { // Um único token maior que o buffer: não há o que descartar
+                    buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                }
+            }
+            try {
+                int lidos = preencher(buffer, quantidade, buffer.length - quantidade);
+                if (lidos < 0) acabou = true;
+                else quantidade += lidos;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    static final class ReaderSource extends WindowSource {
+        private final Reader entrada;
+
+        ReaderSource(Reader entrada, int tamanhoBuffer) {
+            super(tamanhoBuffer);
+            this.entrada = entrada;
+        }
+
+        @Override
+        int preencher(char[] destino, int desde, int maximo) throws IOException {
+            return entrada.read(destino, desde, maximo);
+        }
+    }
+
+    // Lê os bytes UTF-8 direto de um arquivo mapeado na memória, sem passar por Reader nem
+    // criar uma String com o arquivo inteiro. Bytes ASCII viram caracteres por cópia direta;
+    // só as sequências de vários bytes passam pela decodificação.
+    static final class MappedSource extends WindowSource {
+        static final long TAMANHO_SEGMENTO = 1L << 30; // FileChannel.map aceita no máximo 2 GB por vez
+        private static final char SUBSTITUTO = '\uFFFD';
+
+        private final ByteBuffer[] segmentos;
+        private int segmento = 0;
+        private char pendente = 0; // segunda metade de um par substituto (caracteres fora do BMP)
+
+        MappedSource(FileChannel canal, int tamanhoBuffer, long tamanhoSegmento) throws IOException {
+            super(tamanhoBuffer);
+            long tamanho = canal.size();
+            int quantidade = (int) Math.max(1, (tamanho + tamanhoSegmento - 1) / tamanhoSegmento);
+            segmentos = new ByteBuffer[quantidade];
+            for (int i = 0; i < quantidade; i++) {
+                long inicio = i * tamanhoSegmento;
+                segmentos[i] = canal.map(FileChannel.MapMode.READ_ONLY, inicio, Math.min(tamanhoSegmento, tamanho - inicio));
+            }
+            if (segmentos[0].limit() >= 3 && byteEm(0) == (byte) 0xEF && byteEm(1) == (byte) 0xBB && byteEm(2) == (byte) 0xBF) {
+                segmentos[0].position(3); // Ignora a marca BOM do UTF-8
+            }
+        }
+
+        private byte byteEm(int pos) {
+            return segmentos[0].get(pos);
+        }
+
+        @Override
+        int preencher(char[] destino, int desde, int maximo) {
+            int n = 0;
+            if (pendente != 0) {
+                destino[desde + n++] = pendente;
+                pendente = 0;
+            }
+            while (n < maximo) {
+                ByteBuffer bytes = segmentos[segmento];
+                // Caminho rápido: bytes ASCII copiados direto, sem decodificador
+                int pos = bytes.position(), limite = bytes.limit();
+                while (n < maximo && pos < limite) {
+                    byte b = bytes.get(pos);
+                    if (b < 0) break;
+                    destino[desde + n++] = (char) b;
+                    pos++;
+                }
+                bytes.position(pos);
+                if (n == maximo) break;
+                if (pos == limite) {
+                    if (segmento + 1 == segmentos.length) break;
+                    segmento++;
+                    continue;
+                }
+                int codigo = decodificar();
+                if (codigo < 0x10000) {
+                    destino[desde + n++] = (char) codigo;
+                } else { // Fora do BMP: vira um par substituto
+                    destino[desde + n++] = Character.highSurrogate(codigo);
+                    if (n < maximo) destino[desde + n++] = Character.lowSurrogate(codigo);
+                    else pendente = Character.lowSurrogate(codigo);
+                }
+            }
+            return n == 0 ? -1 : n;
+        }
+
+        // Decodifica uma sequência UTF-8 de 2 a 4 bytes. Como o decodificador do JDK (new String,
+        // InputStreamReader), cada trecho inválido máximo vira um só U+FFFD: um byte que não pode
+        // começar uma sequência (80..C1, F5..FF) ou o começo válido de uma sequência interrompida.
+        // Formas longas demais (E0 80..9F, F0 80..8F) e valores acima de U+10FFFF (F4 90..BF) são
+        // barrados já no segundo byte, que não é consumido; um substituto (ED A0..BF) é lido
+        // inteiro e vira um U+FFFD só, também como no JDK.
+        private int decodificar() {
+            int b0 = proximoByte() & 0xFF;
+            int extras, codigo;
+            int minimo = 0x80, maximo = 0xBF; // faixa do segundo byte
+            if (b0 >= 0xC2 && b0 <= 0xDF) { extras = 1; codigo = b0 & 0x1F; }
+            else if (b0 >= 0xE0 && b0 <= 0xEF) {
+                extras = 2; codigo = b0 & 0x0F;
+                if (b0 == 0xE0) minimo = 0xA0;
+            } else if (b0 >= 0xF0 && b0 <= 0xF4) {
+                extras = 3; codigo = b0 & 0x07;
+                if (b0 == 0xF0) minimo = 0x90;
+                else if (b0 == 0xF4) maximo = 0x8F;
+            } else return SUBSTITUTO;
+            for (int i = 0; i < extras; i++) {
+                int b = espiarByte() & 0xFF; // fim do arquivo: -1 vira 0xFF, fora de qualquer faixa
+                if (b < minimo || b > maximo) return SUBSTITUTO; // não consome o byte: ele começa o próximo caractere
+                proximoByte();
+                codigo = (codigo << 6) | (b & 0x3F);
+                minimo = 0x80;
+                maximo = 0xBF;
+            }
+            return Character.isSurrogate((char) codigo) && codigo < 0x10000 ? SUBSTITUTO : codigo;
+        }
+
+        private int espiarByte() {
+            for (int s = segmento; s < segmentos.length; s++) {
+                if (segmentos[s].hasRemaining()) return segmentos[s].get(segmentos[s].position());
+            }
+            return -1;
+        }
+
+        private byte proximoByte() {
+            while (!segmentos[segmento].hasRemaining()) segmento++;
+            return segmentos[segmento].get();
+        }
+    }
+
+    // Texto editável guardado com uma lacuna ("gap buffer"): a lacuna fica no ponto da última
+    // edição, então edições próximas umas das outras só movem os caracteres entre elas.
+    static final class GapSource extends CharSource implements CharSequence {
+        private static final int LACUNA_MINIMA = 1024;
+
+        private char[] buffer;
+        private int inicioLacuna;
+        private int fimLacuna;
+
+        GapSource(String texto) {
+            buffer = new char[texto.length() + LACUNA_MINIMA];
+            texto.getChars(0, texto.length(), buffer, 0);
+            inicioLacuna = texto.length();
+            fimLacuna = buffer.length;
+        }
+
+        // Troca 'removidos' caracteres a partir de 'posicao' por 'inserido'; devolve o texto removido.
+        String editar(int posicao, int removidos, String inserido) {
+            moverLacuna(posicao);
+            String removido = new String(buffer, fimLacuna, removidos);
+            fimLacuna += removidos;
+            if (fimLacuna - inicioLacuna < inserido.length()) crescer(inserido.length());
+            inserido.getChars(0, inserido.length(), buffer, inicioLacuna);
+            inicioLacuna += inserido.length();
+            return removido;
+        }
+
+        private void moverLacuna(int posicao) {
+            if (posicao < inicioLacuna) {
+                int n = inicioLacuna - posicao;
+                System.arraycopy(buffer, posicao, buffer, fimLacuna - n, n);
+                inicioLacuna -= n;
+                fimLacuna -= n;
+            } else if (posicao > inicioLacuna) {
+                int n = posicao - inicioLacuna;
+                System.arraycopy(buffer, fimLacuna, buffer, inicioLacuna, n);
+                inicioLacuna += n;
+                fimLacuna += n;
+            }
+        }
+
+        private void crescer(int necessario) {
+            int depois = buffer.length - fimLacuna;
+            char[] novo = new char[Math.max(buffer.length * 2, length() + necessario + LACUNA_MINIMA)];
+            System.arraycopy(buffer, 0, novo, 0, inicioLacuna);
+            System.arraycopy(buffer, fimLacuna, novo, novo.length - depois, depois);
+            fimLacuna = novo.length - depois;
+            buffer = novo;
+        }
+
+        @Override
+        public int length() {
+            return buffer.length - (fimLacuna - inicioLacuna);
+        }
+
+        @Override
+        public char charAt(int pos) {
+            return buffer[pos < inicioLacuna ? pos : pos + fimLacuna - inicioLacuna];
+        }
+
+        @Override
+        int ler(int pos) {
+            return pos < length() ? charAt(pos) : FIM;
+        }
+
+        @Override
+        String texto(int inicio, int fim) {
+            if (fim <= inicioLacuna) return new String(buffer, inicio, fim - inicio);
+            int desvio = fimLacuna - inicioLacuna;
+            if (inicio >= inicioLacuna) return new String(buffer, inicio + desvio, fim - inicio);
+            StringBuilder trecho = new StringBuilder(fim - inicio);
+            trecho.append(buffer, inicio, inicioLacuna - inicio);
+            trecho.append(buffer, fimLacuna, fim - inicioLacuna);
+            return trecho.toString();
+        }
+
+        @Override
+        public CharSequence subSequence(int inicio, int fim) {
+            return texto(inicio, fim);
+        }
+
+        @Override
+        public String toString() {
+            return texto(0, length());
+        }
+    }
+}
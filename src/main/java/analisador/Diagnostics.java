@@ -0,0 +1,169 @@
+/*
+Esta classe recolhe os erros léxicos (diagnósticos) de uma análise, em vez de o Lexer
+escrevê-los no System.err no meio do laço de leitura.
+    - Cada diagnóstico tem um código (Codigo: L001, L002, ...), a linha, a coluna e a
+      posição onde o problema começa e, no caso de um caractere inesperado, o caractere.
+      A mensagem só é montada quando alguém a pede (toString()).
+    - Só os primeiros 'limite' diagnósticos são guardados; os seguintes são apenas
+      contados (total() e total(codigo) contam todos). Um arquivo com milhares de
+      erros não enche a memória nem a saída de erros.
+    - imprimir() escreve as mensagens de uma vez só, com uma linha final avisando
+      quantos diagnósticos ficaram de fora.
+Não é segura para uso por várias threads ao mesmo tempo: cada análise tem a sua, e
+adicionarTodos() junta a de outra análise (ex.: os trechos do ParallelLexer, em ordem).
+*/
+
+package analisador;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+public class Diagnostics implements Iterable<Diagnostics.Diagnostico> {
+    public static final int LIMITE_PADRAO = 1000;
+
+    public enum Codigo {
+        CARACTERE_INESPERADO("L001", "Caractere inesperado"),
+        STRING_NAO_TERMINADA("L002", "String não terminada"),
+        CHAR_NAO_TERMINADO("L003", "Literal de caractere não terminado"),
+        CHAR_VAZIO("L004", "Literal de caractere vazio"),
+        COMENTARIO_NAO_TERMINADO("L005", "Comentário de bloco não terminado"),
+        STRING_LONGA("L006", "String longa demais (o lexema guarda só o começo)");
+
+        public final String id;
+        public final String descricao;
+
+        Codigo(String id, String descricao) {
+            this.id = id;
+            this.descricao = descricao;
+        }
+
+        public static Codigo deId(String id) { // o inverso de 'id' (usado por quem lê diagnósticos gravados)
+            for (Codigo codigo : values()) {
+                if (codigo.id.equals(id)) return codigo;
+            }
+            throw new IllegalArgumentException("Código de diagnóstico desconhecido: " + id);
+        }
+    }
+
+    public static final class Diagnostico {
+        public final Codigo codigo;
+        public final int linha;
+        public final int coluna;
+        public final int posicao; // -1 quando desconhecida
+        public final int caractere; // o code point do caractere inesperado (L001), ou -1
+
+        public Diagnostico(Codigo codigo, int linha, int coluna, int posicao, int caractere) {
+            this.codigo = codigo;
+            this.linha = linha;
+            this.coluna = coluna;
+            this.posicao = posicao;
+            this.caractere = caractere;
+        }
+
+        public String mensagem() { // ex.: "Caractere inesperado '#'"
+            return caractere < 0 ? codigo.descricao : codigo.descricao + " '" + Character.toString(caractere) + "'";
+        }
+
+        @Override
+        public String toString() {
+            return "Erro Léxico " + codigo.id + " na linha " + linha + ", coluna " + coluna + ": " + mensagem();
+        }
+    }
+
+    private final int limite;
+    private final List<Diagnostico> guardados = new ArrayList<>();
+    private final int[] totais = new int[Codigo.values().length];
+    private int total = 0;
+
+    public Diagnostics() {
+        this(LIMITE_PADRAO);
+    }
+
+    public Diagnostics(int limite) { // guarda no máximo 'limite' diagnósticos (os demais só são contados)
+        if (limite < 0) throw new IllegalArgumentException("Limite negativo: " + limite);
+        this.limite = limite;
+    }
+
+    public void reportar(Codigo codigo, int linha, int coluna, int posicao, int caractere) {
+        total++;
+        totais[codigo.ordinal()]++;
+        if (guardados.size() < limite) guardados.add(new Diagnostico(codigo, linha, coluna, posicao, caractere));
+    }
+
+    // Acrescenta os diagnósticos de outra análise, como se tivessem sido reportados aqui agora
+    public void adicionarTodos(Diagnostics outro) {
+        for (Diagnostico d : outro.guardados) {
+            if (guardados.size() >= limite) break;
+            guardados.add(d);
+        }
+        total += outro.total;
+        for (int i = 0; i < totais.length; i++) totais[i] += outro.totais[i];
+    }
+
+    void limpar() { // usado pelo IncrementalLexer, que refaz a lista a cada edição
+        guardados.clear();
+        Arrays.fill(totais, 0);
+        total = 0;
+    }
+
+    // Conta diagnósticos que não foram guardados (ex.: ao carregar de um arquivo só os guardados e os totais)
+    void contarNaoGuardados(Codigo codigo, int quantidade) {
+        total += quantidade;
+        totais[codigo.ordinal()] += quantidade;
+    }
+
+    public int total() { // todos os reportados, guardados ou não
+        return total;
+    }
+
+    public int total(Codigo codigo) {
+        return totais[codigo.ordinal()];
+    }
+
+    public int limite() {
+        return limite;
+    }
+
+    public boolean isEmpty() {
+        return total == 0;
+    }
+
+    public List<Diagnostico> lista() { // os guardados, na ordem em que foram reportados
+        return Collections.unmodifiableList(guardados);
+    }
+
+    public int naoGuardados() {
+        return total - guardados.size();
+    }
+
+    @Override
+    public Iterator<Diagnostico> iterator() {
+        return lista().iterator();
+    }
+
+    // Uma mensagem por linha e, se o limite foi atingido, quantos ficaram de fora
+    public void imprimir(Appendable destino) throws IOException {
+        String fimLinha = System.lineSeparator();
+        for (Diagnostico d : guardados) destino.append(d.toString()).append(fimLinha);
+        if (naoGuardados() > 0) {
+            destino.append("... mais ").append(String.valueOf(naoGuardados()))
+                    .append(" erros léxicos não mostrados (limite de ").append(String.valueOf(limite)).append(")").append(fimLinha);
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder texto = new StringBuilder();
+        try {
+            imprimir(texto);
+        } catch (IOException e) { // StringBuilder não lança IOException
+            throw new UncheckedIOException(e);
+        }
+        return texto.toString();
+    }
+}
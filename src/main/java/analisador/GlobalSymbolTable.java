@@ -0,0 +1,206 @@
+/*
+Esta classe é a Tabela de Símbolos do projeto inteiro, para quando muitos arquivos
+são analisados ao mesmo tempo (modo lote).
+    - Cada thread preenche uma tabela local por arquivo (Arquivo, com uma SymbolTable
+      dentro), sem nenhuma trava por token.
+    - Quando o arquivo termina, a tabela local é juntada à global de uma vez. A global
+      é dividida em FAIXAS (lock striping): cada nome pertence a uma faixa pelo hash e
+      só a trava dessa faixa é pega. Os símbolos do arquivo são agrupados por faixa
+      antes, então cada faixa é travada no máximo uma vez por arquivo. Não existe
+      trava global, e threads que juntam arquivos diferentes raramente se esperam.
+    - Cada símbolo guarda a primeira ocorrência no projeto (arquivo, linha, coluna),
+      o total de ocorrências e os arquivos que o usam e que o declaram.
+    - simbolos() devolve a tabela na ordem da primeira ocorrência (índice do arquivo,
+      linha, coluna), a mesma em toda execução, qualquer que seja a ordem em que as
+      threads terminaram.
+"Declarar" é uma regra só léxica: o identificador vem logo depois de um tipo primitivo,
+de class/interface/enum, de outro identificador na mesma linha (Tipo nome; uma anotação
+como @Override na linha de cima não conta) ou de "]" (int[] v).
+*/
+
+package analisador;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import analisador.core.TokenType;
+
+public class GlobalSymbolTable {
+    static final int FAIXAS = 64; // potência de 2
+    private static final Set<String> ANTES_DE_DECLARACAO = Set.of(
+            "boolean", "byte", "char", "short", "int", "long", "float", "double", "void",
+            "class", "interface", "enum", "]");
+
+    private final List<Path> arquivos;
+    private final List<Map<String, Simbolo>> faixas = new ArrayList<>(FAIXAS); // montada uma vez, no construtor
+
+    public GlobalSymbolTable(List<Path> arquivos) { // os índices dos arquivos são as posições nesta lista
+        this.arquivos = List.copyOf(arquivos);
+        for (int i = 0; i < FAIXAS; i++) faixas.add(new HashMap<>());
+    }
+
+    // Tabela local de um arquivo; deve ser usada por uma thread só e juntada com concluir()
+    public Arquivo arquivo(int indice) {
+        return arquivo(indice, new LexemePool());
+    }
+
+    // O mesmo, com os nomes no pool do Lexer que lê o arquivo (lexer.lexemas())
+    public Arquivo arquivo(int indice, LexemePool lexemas) {
+        if (indice < 0 || indice >= arquivos.size()) throw new IndexOutOfBoundsException("Arquivo: " + indice);
+        return new Arquivo(indice, lexemas);
+    }
+
+    public int size() {
+        int total = 0;
+        for (Map<String, Simbolo> faixa : faixas) {
+            synchronized (faixa) {
+                total += faixa.size();
+            }
+        }
+        return total;
+    }
+
+    // Todos os símbolos, na ordem da primeira ocorrência no projeto
+    public List<Simbolo> simbolos() {
+        List<Simbolo> todos = new ArrayList<>();
+        for (Map<String, Simbolo> faixa : faixas) {
+            synchronized (faixa) {
+                todos.addAll(faixa.values());
+            }
+        }
+        todos.sort(Comparator.comparingInt((Simbolo s) -> s.arquivo)
+                .thenComparingInt(s -> s.linha)
+                .thenComparingInt(s -> s.coluna));
+        return todos;
+    }
+
+    private static int faixa(String lexema) {
+        int h = lexema.hashCode();
+        return (h ^ (h >>> 16)) & (FAIXAS - 1);
+    }
+
+    public class Arquivo {
+        private final int indice;
+        private final SymbolTable tabela;
+        private final BitSet declarados = new BitSet(); // ids locais declarados neste arquivo
+        private TokenType tipoAnterior; // último token que não é comentário
+        private String lexemaAnterior;
+        private int linhaAnterior;
+        private boolean concluido = false;
+
+        private Arquivo(int indice, LexemePool lexemas) {
+            this.indice = indice;
+            this.tabela = new SymbolTable(lexemas);
+        }
+
+        public void add(Token token) {
+            if (token.tipo == TokenType.COMENTARIO) return;
+            if (token.tipo == TokenType.IDENTIFICADOR) {
+                int id = tabela.adicionar(token.lexema, token.linha, token.coluna, token.posicao);
+                if ((tipoAnterior == TokenType.IDENTIFICADOR && linhaAnterior == token.linha) || (lexemaAnterior != null
+                        && tipoAnterior != TokenType.LITERAL_STRING && ANTES_DE_DECLARACAO.contains(lexemaAnterior))) {
+                    declarados.set(id);
+                }
+            }
+            tipoAnterior = token.tipo;
+            lexemaAnterior = token.lexema;
+            linhaAnterior = token.linha;
+        }
+
+        public int size() { // símbolos distintos deste arquivo
+            return tabela.size();
+        }
+
+        // Junta os símbolos deste arquivo à tabela global (uma vez só)
+        public void concluir() {
+            if (concluido) throw new IllegalStateException("Arquivo já juntado à tabela global");
+            concluido = true;
+            int quantidade = tabela.size();
+
+            // Agrupa os ids locais por faixa (ordenação por contagem) para travar cada faixa uma vez só
+            int[] faixaDe = new int[quantidade];
+            int[] inicio = new int[FAIXAS + 1];
+            for (int id = 0; id < quantidade; id++) {
+                faixaDe[id] = faixa(tabela.lexema(id));
+                inicio[faixaDe[id] + 1]++;
+            }
+            for (int f = 0; f < FAIXAS; f++) inicio[f + 1] += inicio[f];
+            int[] proxima = Arrays.copyOf(inicio, FAIXAS);
+            int[] ordem = new int[quantidade];
+            for (int id = 0; id < quantidade; id++) ordem[proxima[faixaDe[id]]++] = id;
+
+            for (int f = 0; f < FAIXAS; f++) {
+                if (inicio[f] == inicio[f + 1]) continue;
+                Map<String, Simbolo> faixa = faixas.get(f);
+                synchronized (faixa) {
+                    for (int k = inicio[f]; k < inicio[f + 1]; k++) {
+                        int id = ordem[k];
+                        String lexema = tabela.lexema(id);
+                        Simbolo simbolo = faixa.get(lexema);
+                        if (simbolo == null) faixa.put(lexema, simbolo = new Simbolo(lexema));
+                        simbolo.juntar(indice, tabela.linha(id, 0), tabela.coluna(id, 0),
+                                tabela.ocorrencias(id), declarados.get(id));
+                    }
+                }
+            }
+        }
+    }
+
+    // Os dados de um símbolo devem ser lidos depois que todos os arquivos foram juntados
+    public class Simbolo {
+        public final String lexema;
+        private long ocorrencias;
+        private int arquivo = Integer.MAX_VALUE; // primeira ocorrência no projeto
+        private int linha;
+        private int coluna;
+        private int[] usos = new int[2]; // índices dos arquivos, na ordem em que foram juntados
+        private int quantidadeUsos;
+        private int[] declaracoes = new int[0];
+        private int quantidadeDeclaracoes;
+
+        private Simbolo(String lexema) {
+            this.lexema = lexema;
+        }
+
+        // Chamado com a trava da faixa do símbolo
+        private void juntar(int indice, int linha, int coluna, int ocorrencias, boolean declarado) {
+            this.ocorrencias += ocorrencias;
+            if (indice < arquivo) { // cada arquivo é juntado uma vez, então só o índice decide
+                this.arquivo = indice;
+                this.linha = linha;
+                this.coluna = coluna;
+            }
+            if (quantidadeUsos == usos.length) usos = Arrays.copyOf(usos, quantidadeUsos * 2);
+            usos[quantidadeUsos++] = indice;
+            if (declarado) {
+                if (quantidadeDeclaracoes == declaracoes.length)
+                    declaracoes = Arrays.copyOf(declaracoes, Math.max(2, quantidadeDeclaracoes * 2));
+                declaracoes[quantidadeDeclaracoes++] = indice;
+            }
+        }
+
+        public long ocorrencias() { return ocorrencias; }
+        public Path arquivo() { return arquivos.get(arquivo); }
+        public int linha() { return linha; }
+        public int coluna() { return coluna; }
+
+        // Arquivos em que o identificador aparece / é declarado, na ordem da lista de arquivos
+        public List<Path> usadoEm() { return caminhos(usos, quantidadeUsos); }
+        public List<Path> declaradoEm() { return caminhos(declaracoes, quantidadeDeclaracoes); }
+
+        private List<Path> caminhos(int[] indices, int quantidade) {
+            int[] ordenados = Arrays.copyOf(indices, quantidade);
+            Arrays.sort(ordenados);
+            List<Path> caminhos = new ArrayList<>(quantidade);
+            for (int i : ordenados) caminhos.add(arquivos.get(i));
+            return caminhos;
+        }
+    }
+}
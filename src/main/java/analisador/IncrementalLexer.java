@@ -0,0 +1,382 @@
+/*
+Esta classe mantém os tokens de um texto que vai sendo editado (como em um editor),
+sem analisar o texto inteiro de novo a cada mudança.
+Cada edição (posição, quantidade removida, texto inserido) é tratada assim:
+    - O texto fica em um buffer com lacuna (CharSource.GapSource).
+    - Os tokens ficam em vetores paralelos, como no TokenBuffer, também com uma lacuna.
+      Os tokens depois da lacuna guardam posição e linha relativas ao FIM do texto,
+      então uma edição antes deles não obriga a corrigir um por um.
+    - A análise recomeça no token anterior ao primeiro que a edição pode ter alterado
+      (o Lexer espia até 2 caracteres depois do fim de um token).
+    - Ela para assim que um token novo começa na mesma posição (já deslocada) e na
+      mesma coluna de um token antigo depois da edição: a partir dali o Lexer estaria
+      no mesmo estado de antes e produziria os mesmos tokens.
+O custo de uma edição depende do tamanho do trecho reanalisado e da distância até a
+edição anterior, não do tamanho do arquivo.
+Os erros léxicos também acompanham o texto: os do trecho reanalisado saem, os seguintes
+são deslocados como os tokens e os novos entram no lugar (diagnosticos() mostra sempre os
+erros do texto atual).
+A tabela de símbolos é montada na primeira vez que é pedida; depois disso, cada edição
+só troca nela as ocorrências dos tokens do TokenDelta (SymbolTable.substituir()).
+*/
+
+package analisador;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+import analisador.core.TokenType;
+
+public class IncrementalLexer {
+    private static final TokenType[] TIPOS = TokenType.values();
+    private static final int ESPIADA = 2; // caracteres que o Lexer pode ler depois do fim de um token
+
+    private final CharSource.GapSource texto;
+    private final Diagnostics diagnosticos;
+    private final List<Diagnostics.Diagnostico> erros = new ArrayList<>(); // todos (sem o limite), na ordem da posição
+
+    // Tokens: [0, antes) têm posição e linha absolutas; [depois, capacidade) relativas ao fim do texto
+    private byte[] tipos;
+    private int[] inicios;
+    private int[] comprimentos;
+    private int[] linhas; // linha em que o token começa (estado do Lexer para recomeçar dali)
+    private int[] colunas;
+    private int antes = 0;
+    private int depois;
+    private int linhaFim; // linha do EOF: referência das linhas guardadas depois da lacuna
+
+    private SymbolTable tabela; // null até alguém pedir a tabela de símbolos
+
+    public IncrementalLexer(String codigoFonte) {
+        this(codigoFonte, new Diagnostics());
+    }
+
+    public IncrementalLexer(String codigoFonte, Diagnostics diagnosticos) { // 'diagnosticos' passa a ter os erros léxicos do texto atual
+        this.texto = new CharSource.GapSource(codigoFonte);
+        this.diagnosticos = diagnosticos;
+        int capacidade = Math.max(16, codigoFonte.length() / 8);
+        tipos = new byte[capacidade];
+        inicios = new int[capacidade];
+        comprimentos = new int[capacidade];
+        linhas = new int[capacidade];
+        colunas = new int[capacidade];
+        depois = capacidade;
+        Diagnostics novos = new Diagnostics(Integer.MAX_VALUE);
+        Lexer lexer = new Lexer(texto, 0, 1, 1, novos);
+        while (lexer.avancar()) guardar(lexer);
+        linhaFim = linhas[antes - 1];
+        erros.addAll(novos.lista());
+        publicarErros();
+    }
+
+    // EDIÇÃO
+    public TokenDelta editar(int posicao, int removidos, String inserido) {
+        Objects.requireNonNull(inserido, "inserido");
+        if (posicao < 0 || removidos < 0 || posicao + removidos > texto.length()) {
+            throw new IndexOutOfBoundsException("Edição [" + posicao + ", " + (posicao + removidos)
+                    + ") fora do texto de tamanho " + texto.length());
+        }
+        // Recomeça no token anterior ao primeiro afetado, ou no começo do texto
+        int afetado = primeiroAfetado(posicao);
+        int indice = Math.max(afetado - 1, 0);
+        moverLacuna(indice);
+
+        int tamanhoAntigo = texto.length();
+        int linhaFimAntiga = linhaFim;
+        int partida = 0, linhaPartida = 1, colunaPartida = 1;
+        if (afetado > 0) {
+            partida = inicios[depois] + tamanhoAntigo;
+            linhaPartida = linhas[depois] + linhaFimAntiga;
+            colunaPartida = colunas[depois];
+        }
+        String removido = texto.editar(posicao, removidos, inserido);
+        int tamanhoNovo = texto.length();
+        int fimEdicao = posicao + inserido.length();
+        TextoAntigo textoAntigo = new TextoAntigo(posicao, inserido.length(), removido);
+
+        List<Token> tokensRemovidos = new ArrayList<>();
+        List<Token> tokensInseridos = new ArrayList<>();
+        boolean ressincronizou = false;
+        int inicioRessincronia = 0;
+        Diagnostics novos = new Diagnostics(Integer.MAX_VALUE);
+        Lexer lexer = new Lexer(texto, partida, linhaPartida, colunaPartida, novos);
+        while (lexer.avancar()) {
+            int inicio = lexer.inicioAtual();
+            while (depois < tipos.length && inicios[depois] + tamanhoNovo < inicio) { // ficaram para trás
+                tokensRemovidos.add(tokenAntigo(depois++, textoAntigo, tamanhoAntigo, linhaFimAntiga));
+            }
+            if (inicio >= fimEdicao && depois < tipos.length && inicios[depois] + tamanhoNovo == inicio
+                    && colunas[depois] == lexer.colunaAtual()) {
+                // Mesmo estado do Lexer de antes: daqui em diante os tokens antigos continuam valendo
+                linhaFim = lexer.linhaAtual() - linhas[depois]; // a linha guardada é relativa ao EOF
+                ressincronizou = true;
+                inicioRessincronia = inicio;
+                break;
+            }
+            guardar(lexer);
+            tokensInseridos.add(get(antes - 1));
+        }
+        if (!ressincronizou) { // Foi até o fim do texto: nada do que sobrou depois da lacuna vale mais
+            while (depois < tipos.length) {
+                tokensRemovidos.add(tokenAntigo(depois++, textoAntigo, tamanhoAntigo, linhaFimAntiga));
+            }
+            linhaFim = linhas[antes - 1];
+        }
+
+        // O token onde a análise recomeçou costuma sair igual: não faz parte da mudança
+        int iguais = 0;
+        while (iguais < tokensRemovidos.size() && iguais < tokensInseridos.size()
+                && mesmoToken(tokensRemovidos.get(iguais), tokensInseridos.get(iguais))) {
+            iguais++;
+        }
+        TokenDelta delta = new TokenDelta(indice + iguais,
+                tokensRemovidos.subList(iguais, tokensRemovidos.size()),
+                tokensInseridos.subList(iguais, tokensInseridos.size()),
+                tamanhoNovo - tamanhoAntigo, linhaFim - linhaFimAntiga);
+        // Os erros do trecho reanalisado ([partida, fim) no texto antigo) são trocados pelos novos
+        // (o token da ressincronia já foi lido pelo Lexer: um erro dele continua sendo o antigo)
+        List<Diagnostics.Diagnostico> errosNovos = novos.lista();
+        int fimAntigo = tamanhoAntigo + 1;
+        if (ressincronizou) {
+            fimAntigo = inicioRessincronia - delta.deslocamento;
+            int n = 0;
+            while (n < errosNovos.size() && errosNovos.get(n).posicao < inicioRessincronia) n++;
+            errosNovos = errosNovos.subList(0, n);
+        }
+        trocarErros(partida, fimAntigo, errosNovos, delta.deslocamento, delta.deslocamentoLinhas);
+        if (tabela != null && (!delta.vazio() || delta.deslocamento != 0 || delta.deslocamentoLinhas != 0)) {
+            // Posição antiga do primeiro token que mudou (ou do primeiro que só foi deslocado)
+            int ancora = !delta.removidos.isEmpty() ? delta.removidos.get(0).posicao
+                    : ressincronizou ? inicioRessincronia - delta.deslocamento : tamanhoAntigo + 1;
+            tabela.substituir(ancora, delta.removidos, delta.inseridos, delta.deslocamento, delta.deslocamentoLinhas);
+        }
+        return delta;
+    }
+
+    // Primeiro token que pode mudar com uma edição em 'posicao': o primeiro que termina
+    // a menos de ESPIADA caracteres antes dela (busca binária: os fins são crescentes).
+    private int primeiroAfetado(int posicao) {
+        int baixo = 0, alto = size() - 1; // o EOF sempre é afetado
+        while (baixo < alto) {
+            int meio = (baixo + alto) >>> 1;
+            if (fim(meio) + ESPIADA > posicao) alto = meio;
+            else baixo = meio + 1;
+        }
+        return baixo;
+    }
+
+    private void trocarErros(int inicio, int fim, List<Diagnostics.Diagnostico> novos, int deslocamento, int deslocamentoLinhas) {
+        int primeiro = primeiroErroDesde(inicio);
+        int seguinte = primeiroErroDesde(fim);
+        if (primeiro == seguinte && novos.isEmpty() && (seguinte == erros.size() || deslocamento == 0 && deslocamentoLinhas == 0)) {
+            return; // nada muda (o caso comum: texto sem erros)
+        }
+        for (int i = seguinte; i < erros.size(); i++) {
+            Diagnostics.Diagnostico d = erros.get(i);
+            erros.set(i, new Diagnostics.Diagnostico(d.codigo, d.linha + deslocamentoLinhas, d.coluna,
+                    d.posicao + deslocamento, d.caractere));
+        }
+        List<Diagnostics.Diagnostico> trecho = erros.subList(primeiro, seguinte);
+        trecho.clear();
+        trecho.addAll(novos);
+        publicarErros();
+    }
+
+    private int primeiroErroDesde(int posicao) { // busca binária: os erros estão na ordem da posição
+        int baixo = 0, alto = erros.size();
+        while (baixo < alto) {
+            int meio = (baixo + alto) >>> 1;
+            if (erros.get(meio).posicao < posicao) baixo = meio + 1;
+            else alto = meio;
+        }
+        return baixo;
+    }
+
+    private void publicarErros() { // 'diagnosticos' com os erros atuais (o limite dele continua valendo)
+        diagnosticos.limpar();
+        for (Diagnostics.Diagnostico d : erros) diagnosticos.reportar(d.codigo, d.linha, d.coluna, d.posicao, d.caractere);
+    }
+
+    private boolean mesmoToken(Token a, Token b) { // também na mesma posição: a tabela de símbolos conta com isso
+        return a.tipo == b.tipo && a.posicao == b.posicao && a.linha == b.linha && a.coluna == b.coluna
+                && a.lexema.equals(b.lexema);
+    }
+
+    // LACUNA DOS TOKENS
+    private void guardar(Lexer lexer) { // Acrescenta o token do Lexer antes da lacuna (posições absolutas)
+        if (antes == depois) crescer();
+        tipos[antes] = (byte) lexer.tipoAtual().ordinal();
+        inicios[antes] = lexer.inicioAtual();
+        comprimentos[antes] = lexer.fimAtual() - lexer.inicioAtual();
+        linhas[antes] = lexer.linhaAtual();
+        colunas[antes] = lexer.colunaAtual();
+        antes++;
+    }
+
+    // Deixa os tokens [0, indice) antes da lacuna e o resto depois dela
+    private void moverLacuna(int indice) {
+        int tamanho = texto.length();
+        if (indice < antes) {
+            int n = antes - indice;
+            copiar(indice, depois - n, n, -tamanho, -linhaFim);
+            antes -= n;
+            depois -= n;
+        } else if (indice > antes) {
+            int n = indice - antes;
+            copiar(depois, antes, n, tamanho, linhaFim);
+            antes += n;
+            depois += n;
+        }
+    }
+
+    // Copia n tokens de uma ponta à outra da lacuna, trocando a referência de posição e linha
+    private void copiar(int de, int para, int n, int desvioPosicao, int desvioLinha) {
+        System.arraycopy(tipos, de, tipos, para, n);
+        System.arraycopy(inicios, de, inicios, para, n);
+        System.arraycopy(comprimentos, de, comprimentos, para, n);
+        System.arraycopy(linhas, de, linhas, para, n);
+        System.arraycopy(colunas, de, colunas, para, n);
+        for (int i = para; i < para + n; i++) {
+            inicios[i] += desvioPosicao;
+            linhas[i] += desvioLinha;
+        }
+    }
+
+    private void crescer() { // Dobra os vetores, levando os tokens de depois da lacuna para o fim
+        int capacidade = tipos.length * 2;
+        int n = tipos.length - depois;
+        int novoDepois = capacidade - n;
+        tipos = Arrays.copyOf(tipos, capacidade);
+        System.arraycopy(tipos, depois, tipos, novoDepois, n);
+        inicios = afastar(inicios, capacidade, n);
+        comprimentos = afastar(comprimentos, capacidade, n);
+        linhas = afastar(linhas, capacidade, n);
+        colunas = afastar(colunas, capacidade, n);
+        depois = novoDepois;
+    }
+
+    private int[] afastar(int[] vetor, int capacidade, int n) {
+        int[] novo = Arrays.copyOf(vetor, capacidade);
+        System.arraycopy(novo, depois, novo, capacidade - n, n);
+        return novo;
+    }
+
+    // ACESSO (índices lógicos, como se não houvesse lacuna)
+    public int size() {
+        return antes + tipos.length - depois;
+    }
+
+    private int fisico(int i) {
+        return i < antes ? i : i + depois - antes;
+    }
+
+    public TokenType tipo(int i) { return TIPOS[tipos[fisico(i)]]; }
+    public int comprimento(int i) { return comprimentos[fisico(i)]; }
+    public int coluna(int i) { return colunas[fisico(i)]; }
+
+    public int inicio(int i) {
+        int f = fisico(i);
+        return f < antes ? inicios[f] : inicios[f] + texto.length();
+    }
+
+    public int linha(int i) {
+        int f = fisico(i);
+        return f < antes ? linhas[f] : linhas[f] + linhaFim;
+    }
+
+    private int fim(int i) {
+        return inicio(i) + comprimento(i);
+    }
+
+    public String lexema(int i) {
+        return TokenBuffer.recortar(tipo(i), texto, inicio(i), fim(i));
+    }
+
+    public Token get(int i) {
+        if (i < 0 || i >= size()) throw new IndexOutOfBoundsException("Índice: " + i + ", tamanho: " + size());
+        return new Token(tipo(i), lexema(i), linha(i), coluna(i), inicio(i));
+    }
+
+    public List<Token> tokens() { // Visão dos tokens atuais (acompanha as edições seguintes)
+        return new Visao();
+    }
+
+    public String texto() {
+        return texto.toString();
+    }
+
+    public Diagnostics diagnosticos() { // os erros léxicos do texto atual, na ordem da posição
+        return diagnosticos;
+    }
+
+    public SymbolTable tabelaDeSimbolos() { // acompanha as edições seguintes
+        if (tabela == null) {
+            tabela = new SymbolTable();
+            for (int i = 0; i < size(); i++) {
+                if (tipo(i) == TokenType.IDENTIFICADOR) tabela.adicionar(lexema(i), linha(i), coluna(i), inicio(i));
+            }
+        }
+        return tabela;
+    }
+
+    // Token que estava depois da lacuna, montado com as posições do texto de antes da edição
+    private Token tokenAntigo(int f, TextoAntigo textoAntigo, int tamanhoAntigo, int linhaFimAntiga) {
+        TokenType tipo = TIPOS[tipos[f]];
+        int inicio = inicios[f] + tamanhoAntigo;
+        String lexema = TokenBuffer.recortar(tipo, textoAntigo, inicio, inicio + comprimentos[f]);
+        return new Token(tipo, lexema, linhas[f] + linhaFimAntiga, colunas[f], inicio);
+    }
+
+    private class Visao extends AbstractList<Token> implements RandomAccess {
+        @Override
+        public Token get(int i) {
+            return IncrementalLexer.this.get(i);
+        }
+
+        @Override
+        public int size() {
+            return IncrementalLexer.this.size();
+        }
+    }
+
+    // O texto como era antes da última edição, montado a partir do texto novo e do trecho removido
+    private class TextoAntigo implements CharSequence {
+        private final int posicao;
+        private final int inseridos;
+        private final String removido;
+
+        TextoAntigo(int posicao, int inseridos, String removido) {
+            this.posicao = posicao;
+            this.inseridos = inseridos;
+            this.removido = removido;
+        }
+
+        @Override
+        public int length() {
+            return texto.length() - inseridos + removido.length();
+        }
+
+        @Override
+        public char charAt(int pos) {
+            if (pos < posicao) return texto.charAt(pos);
+            if (pos < posicao + removido.length()) return removido.charAt(pos - posicao);
+            return texto.charAt(pos - removido.length() + inseridos);
+        }
+
+        @Override
+        public CharSequence subSequence(int inicio, int fim) {
+            StringBuilder trecho = new StringBuilder(fim - inicio);
+            for (int i = inicio; i < fim; i++) trecho.append(charAt(i));
+            return trecho.toString();
+        }
+
+        @Override
+        public String toString() {
+            return subSequence(0, length()).toString();
+        }
+    }
+}
@@ -0,0 +1,96 @@
+/*
+Esta classe guarda cada nome (lexema) distinto uma única vez, com um id estável:
+0 para o primeiro nome que entrou, 1 para o segundo, e assim por diante.
+    - O Lexer procura o nome direto no trecho do código-fonte (sem criar uma String
+      antes); a String só é criada na primeira vez que o nome aparece, e todas as
+      ocorrências seguintes recebem essa mesma instância.
+    - O hash é o mesmo de String.hashCode(), então procurar uma String já internada
+      usa o hash que ela guarda e a comparação para na igualdade de referência.
+    - A tabela é de endereçamento aberto (sondagem linear) sobre vetores de int,
+      sem Map nem Integer.
+Não é segura para uso por várias threads ao mesmo tempo.
+*/
+
+package analisador;
+
+import java.util.Arrays;
+
+public final class LexemePool {
+    private String[] nomes = new String[64];
+    private int[] hashes = new int[64];
+    private int[] tabela = new int[128]; // id + 1 de cada posição ocupada, 0 = vazia
+    private int quantidade = 0;
+
+    // Id do nome, incluindo-o se ainda não existe
+    public int intern(String nome) {
+        int hash = nome.hashCode();
+        int mascara = tabela.length - 1;
+        for (int i = hash & mascara; ; i = (i + 1) & mascara) {
+            int id = tabela[i] - 1;
+            if (id < 0) return incluir(nome, hash, i);
+            String existente = nomes[id];
+            if (existente == nome || (hashes[id] == hash && existente.equals(nome))) return id;
+        }
+    }
+
+    // Id do nome que ocupa [inicio, fim) da fonte, cujo hash (o de String.hashCode) já foi calculado
+    int intern(CharSource fonte, int inicio, int fim, int hash) {
+        int mascara = tabela.length - 1;
+        for (int i = hash & mascara; ; i = (i + 1) & mascara) {
+            int id = tabela[i] - 1;
+            if (id < 0) return incluir(fonte.texto(inicio, fim), hash, i);
+            String existente = nomes[id];
+            if (hashes[id] == hash && existente.length() == fim - inicio && fonte.mesmoTexto(inicio, existente)) return id;
+        }
+    }
+
+    // Id do nome, ou -1 se ele nunca entrou
+    public int id(String nome) {
+        int hash = nome.hashCode();
+        int mascara = tabela.length - 1;
+        for (int i = hash & mascara; ; i = (i + 1) & mascara) {
+            int id = tabela[i] - 1;
+            if (id < 0) return -1;
+            String existente = nomes[id];
+            if (existente == nome || (hashes[id] == hash && existente.equals(nome))) return id;
+        }
+    }
+
+    public String nome(int id) {
+        if (id < 0 || id >= quantidade) throw new IndexOutOfBoundsException("Id: " + id + ", tamanho: " + quantidade);
+        return nomes[id];
+    }
+
+    public int size() {
+        return quantidade;
+    }
+
+    void limpar() {
+        Arrays.fill(nomes, 0, quantidade, null);
+        Arrays.fill(tabela, 0);
+        quantidade = 0;
+    }
+
+    private int incluir(String nome, int hash, int posicao) {
+        if (quantidade == nomes.length) {
+            nomes = Arrays.copyOf(nomes, quantidade * 2);
+            hashes = Arrays.copyOf(hashes, quantidade * 2);
+        }
+        int id = quantidade++;
+        nomes[id] = nome;
+        hashes[id] = hash;
+        tabela[posicao] = id + 1;
+        if (quantidade * 2 > tabela.length) redistribuir(); // ocupação máxima de 50%
+        return id;
+    }
+
+    private void redistribuir() {
+        tabela = new int[tabela.length * 2];
+        int mascara = tabela.length - 1;
+        for (int id = 0; id < quantidade; id++) {
+            int i = hashes[id] & mascara;
+            while (tabela[i] != 0) i = (i + 1) & mascara;
+            tabela[i] = id + 1;
+        }
+    }
+}
@@ -1,30 +1,65 @@
 /*
 Esta é a classe principal do Analisador Léxico (também chamado de "Lexer" ou "Scanner").
-A responsabilidade desta classe é receber o código-fonte completo como uma
-string e quebrá-lo em uma lista de Tokens (definidos em Token.java).
+A responsabilidade desta classe é receber o código-fonte (uma string completa ou
+um Reader ou arquivo mapeado lido aos poucos) e quebrá-lo em Tokens (definidos em Token.java).
+Os tokens podem ser pedidos um de cada vez (nextToken(), iterator(), stream()),
+o que mantém a memória constante mesmo em arquivos enormes, ou todos de uma
+vez em uma lista (scanTokens()).
 Ele faz isso lendo o código caractere por caractere, decidindo onde um
 token começa e termina, e qual é o seu tipo (TokenType).
 Esta classe também é responsável por:
     - Ignorar espaços em branco, tabulações e quebras de linha.
     - Ignorar comentários (como // ...).
+      Espaços, comentários e corpos de string são pulados em bloco (CharSource.procurar()),
+      até o próximo caractere que importa.
+    - Saber a linha e a coluna de cada token. O Lexer não conta colunas caractere por
+      caractere: guarda só a posição onde a linha atual começa (a cada '\n', inclusive
+      dentro de comentários de bloco), e a coluna de um token é a distância até ela.
+      A linha e a coluna de um token são as do seu primeiro caractere (LineIndex faz a
+      mesma conta para quem guarda só as posições).
     - Identificar palavras-chave (como "if", "while") e diferenciá-las de identificadores (nomes de variáveis).
-    - Reportar erros léxicos (caracteres inesperados).
+      As palavras-chave são achadas por um hash perfeito direto no trecho do código, e cada
+      identificador distinto é guardado uma única vez no LexemePool (sem uma substring por ocorrência).
+    - Reportar erros léxicos (caracteres inesperados, strings, caracteres e comentários não
+      terminados) em um Diagnostics, com código, linha e coluna, sem interromper a análise.
+      Uma string sem as aspas de fechamento termina no fim da linha, e a análise continua na
+      linha seguinte; um comentário de bloco sem o fechamento vai até o fim do arquivo.
+      O lexema de uma string guarda no máximo MAIOR_STRING caracteres do corpo (L006 avisa
+      do corte): com um Reader ou um arquivo mapeado, nem uma string nem um comentário de
+      vários MB fazem a janela de leitura crescer.
+Com filtrar(tipos), só os tokens desses tipos são entregues: os outros são reconhecidos
+(a linha, a coluna e os erros léxicos continuam certos) e pulados dentro de avancar(),
+sem criar nada (nem Token, nem lexema).
 */
 
 package analisador;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.EnumSet;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import analisador.core.TokenType;
 
 public class Lexer {
-    private final String codigoFonte;
-    private final List<Token> tokens = new ArrayList<>();
-    private static final Set<String> palavrasChave = new HashSet<>(Arrays.asList(
+    private final CharSource codigoFonte;
+    static final Set<String> PALAVRAS_CHAVE = new HashSet<>(Arrays.asList(
         "abstract", "assert", "boolean", "break", "byte",
         "case", "catch", "char", "class", "const",
         "continue", "default", "do", "double", "else",
@@ -36,241 +71,444 @@ public class Lexer {
         "switch", "synchronized", "this", "throw", "throws",
         "transient", "try", "void", "volatile", "while"
 ));
+    static final String COMENTARIO_LINHA = "// comentário de linha";
+    static final String COMENTARIO_BLOCO = "/* comentário de bloco */";
 
     // Controle da leitura
     private int inicio = 0;
     private int atual = 0;
     private int linha = 1;
-    private int coluna = 1;
-    private int colunaInicio = 1; 
+    private int inicioLinha = 0; // posição do primeiro caractere da linha atual
+    private int linhaInicio = 1; // linha onde o token atual começou
+    private int colunaInicio = 1;
+
+    // Controle do modo sob demanda (um token por vez)
+    private TokenType tipoPendente = null;
+    private String lexemaPendente; // null em um identificador: o lexema vem do pool só se o Token for montado
+    private int hashPendente; // hash (o de String.hashCode) do identificador pendente
+    private int linhaPendente;
+    private int colunaPendente;
+    private boolean fimEmitido = false;
+    private long tiposEntregues = -1L; // bit 'ordinal' de cada TokenType que sai do Lexer (filtrar())
+
+    // Controle do modo por trechos (usado pelo ParallelLexer)
+    private int limite = Integer.MAX_VALUE; // não começa nenhum token a partir desta posição
+    private Diagnostics diagnosticos = new Diagnostics();
+    private LexemePool lexemas = new LexemePool();
 
     public Lexer(String codigoFonte) {
-        this.codigoFonte = codigoFonte; //Armazena e inicializa
+        this.codigoFonte = new CharSource.StringSource(codigoFonte); //Armazena e inicializa
+    }
+
+    // Analisa só os tokens que começam em [inicio, limite), partindo de uma linha e coluna conhecidas.
+    // Um token que começa antes do limite é lido até o fim, mesmo passando dele. Não emite EOF.
+    Lexer(String codigoFonte, int inicio, int limite, int linha, int coluna, Diagnostics diagnosticos) {
+        this(new CharSource.StringSource(codigoFonte), inicio, linha, coluna, diagnosticos);
+        this.limite = limite;
+        this.fimEmitido = true;
+    }
+
+    // Continua a análise de um texto a partir do estado de um início de token conhecido (usado pelo IncrementalLexer).
+    Lexer(CharSource codigoFonte, int inicio, int linha, int coluna, Diagnostics diagnosticos) {
+        this(codigoFonte);
+        this.atual = inicio;
+        this.linha = linha;
+        this.inicioLinha = inicio - (coluna - 1);
+        this.diagnosticos = diagnosticos;
+    }
+
+    public Lexer(Reader entrada) { // Lê aos poucos, guardando só um buffer limitado na memória
+        this.codigoFonte = new CharSource.ReaderSource(entrada, CharSource.WindowSource.TAMANHO_BUFFER);
+    }
+
+    public Lexer(ReadableByteChannel canal) { // Canal de bytes em UTF-8
+        this(Channels.newReader(canal, StandardCharsets.UTF_8));
+    }
+
+    private Lexer(CharSource codigoFonte) {
+        this.codigoFonte = codigoFonte;
+    }
+
+    // Lê o arquivo (UTF-8) mapeado na memória: sem Reader e sem uma String com o arquivo inteiro
+    public static Lexer deArquivoMapeado(Path arquivo) throws IOException {
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+            return new Lexer(new CharSource.MappedSource(canal, CharSource.WindowSource.TAMANHO_BUFFER,
+                    CharSource.MappedSource.TAMANHO_SEGMENTO));
+        } // O mapeamento continua válido depois que o canal é fechado
+    }
+
+    // Erros léxicos encontrados até agora (nada é escrito no System.err)
+    public Diagnostics diagnosticos() {
+        return diagnosticos;
+    }
+
+    public void usarDiagnosticos(Diagnostics diagnosticos) { // ex.: um limite diferente, ou juntar vários Lexers
+        this.diagnosticos = diagnosticos;
+    }
+
+    // Nomes distintos (identificadores) já vistos por este Lexer, cada um com um id estável
+    public LexemePool lexemas() {
+        return lexemas;
+    }
+
+    public void compartilharLexemas(LexemePool pool) { // vários Lexers (um de cada vez) com os mesmos ids
+        this.lexemas = pool;
+    }
+
+    // Entrega só os tokens destes tipos (ex.: só IDENTIFICADOR para uma tabela de símbolos, ou tudo
+    // menos COMENTARIO); sem o EOF, nextToken() devolve null logo depois do último token entregue.
+    public void filtrar(EnumSet<TokenType> tipos) {
+        long mascara = 0;
+        for (TokenType tipo : tipos) mascara |= 1L << tipo.ordinal();
+        this.tiposEntregues = mascara;
     }
 
     public List<Token> scanTokens() { //processa todo o texto.
-        while (!isAtEnd()) {
-            inicio = atual;
-            colunaInicio = coluna;
-            scanToken();
-        }
-        addToken(TokenType.EOF, "EOF", getTokenDescription("EOF", TokenType.EOF));
+        List<Token> tokens = new ArrayList<>();
+        Token token;
+        while ((token = nextToken()) != null) tokens.add(token);
         return tokens;
     }
 
-    private void scanToken() {
-        char c = advance();
+    public Token nextToken() { // devolve o próximo token, o EOF e depois null
+        if (!avancar()) return null;
+        String lexema = lexemaPendente != null ? lexemaPendente
+                : lexemas.nome(lexemas.intern(codigoFonte, inicio, atual, hashPendente));
+        return new Token(tipoPendente, lexema, linhaPendente, colunaPendente, inicio);
+    }
 
-        switch (c) {
-            case ' ': case '\r': case '\t':
-                break; // Ignora espaços em branco
+    // Reconhece o próximo token sem criar o objeto Token. O resultado fica disponível em
+    // tipoAtual(), inicioAtual(), fimAtual(), linhaAtual() e colunaAtual().
+    boolean avancar() {
+        tipoPendente = null;
+        while (tipoPendente == null) {
+            if (atual < limite && !isAtEnd()) {
+                codigoFonte.descartar(atual);
+                inicio = atual;
+                linhaInicio = linha;
+                colunaInicio = atual - inicioLinha + 1;
+                scanToken();
+            } else if (!fimEmitido) {
+                fimEmitido = true;
+                inicio = atual;
+                linhaInicio = linha;
+                colunaInicio = atual - inicioLinha + 1;
+                addToken(TokenType.EOF, "EOF");
+            } else {
+                return false;
+            }
+        }
+        return true;
+    }
 
-            case '\n':
-                linha++;
-                coluna = 1;
-                break;
+    TokenType tipoAtual() { return tipoPendente; }
+    int inicioAtual() { return inicio; }
+    int fimAtual() { return atual; }
+    int linhaAtual() { return linhaPendente; }
+    int colunaAtual() { return colunaPendente; }
 
-            // Símbolos especiais
-            case ';': addToken(TokenType.SIMBOLO_ESPECIAL, ";", getTokenDescription(";", TokenType.SIMBOLO_ESPECIAL)); break;
-            case ',': addToken(TokenType.SIMBOLO_ESPECIAL, ",", getTokenDescription(",", TokenType.SIMBOLO_ESPECIAL)); break;
-            case '(': addToken(TokenType.SIMBOLO_ESPECIAL, "(", getTokenDescription("(", TokenType.SIMBOLO_ESPECIAL)); break;
-            case ')': addToken(TokenType.SIMBOLO_ESPECIAL, ")", getTokenDescription(")", TokenType.SIMBOLO_ESPECIAL)); break;
-            case '{': addToken(TokenType.SIMBOLO_ESPECIAL, "{", getTokenDescription("{", TokenType.SIMBOLO_ESPECIAL)); break;
-            case '}': addToken(TokenType.SIMBOLO_ESPECIAL, "}", getTokenDescription("}", TokenType.SIMBOLO_ESPECIAL)); break;
-            case '[': addToken(TokenType.SIMBOLO_ESPECIAL, "[", getTokenDescription("[", TokenType.SIMBOLO_ESPECIAL)); break;
-            case ']': addToken(TokenType.SIMBOLO_ESPECIAL, "]", getTokenDescription("]", TokenType.SIMBOLO_ESPECIAL)); break;
-            case '.': addToken(TokenType.SIMBOLO_ESPECIAL, ".", getTokenDescription(".", TokenType.SIMBOLO_ESPECIAL)); break;
-
-            // Operadores aritméticos
-            case '+': addToken(TokenType.OPERADOR_ARITMETICO, "+", getTokenDescription("+", TokenType.OPERADOR_ARITMETICO)); break;
-            case '-': addToken(TokenType.OPERADOR_ARITMETICO, "-", getTokenDescription("-", TokenType.OPERADOR_ARITMETICO)); break;
-            case '*': addToken(TokenType.OPERADOR_ARITMETICO, "*", getTokenDescription("*", TokenType.OPERADOR_ARITMETICO)); break;
-            case '/':
-                if (match('/')) { 
-                    while (peek() != '\n' && !isAtEnd()) advance();
-                    addToken(TokenType.COMENTARIO, "// comentário de linha", getTokenDescription("// comentário de linha", TokenType.COMENTARIO));
-                } else if (match('*')) { 
-                    while (!(peek() == '*' && peekNext() == '/') && !isAtEnd()) {
-                        if (peek() == '\n') linha++;
-                        advance();
-                    }
-                    advance(); advance(); // Fechar comentário de bloco
-                    addToken(TokenType.COMENTARIO, "/* comentário de bloco */", getTokenDescription("/* comentário de bloco */", TokenType.COMENTARIO));
+    // Estado do Lexer depois do último token (de onde um próximo trecho continuaria)
+    int posicao() { return atual; }
+    int linha() { return linha; }
+    int coluna() { return atual - inicioLinha + 1; }
+
+    public Iterator<Token> iterator() {
+        return new Iterator<Token>() {
+            private Token proximo = nextToken();
+
+            @Override
+            public boolean hasNext() {
+                return proximo != null;
+            }
+
+            @Override
+            public Token next() {
+                if (proximo == null) throw new NoSuchElementException();
+                Token token = proximo;
+                proximo = nextToken();
+                return token;
+            }
+        };
+    }
+
+    public Stream<Token> stream() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator(),
+                Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    // TABELAS DO AUTÔMATO (montadas uma única vez a partir do TokenType)
+    // Cada caractere ASCII tem uma classe; caracteres fora do ASCII caem no caminho lento (Character.isLetter
+    // do code point, com os pares de substitutos juntados: um emoji é um caractere inesperado, não dois).
+    private static final byte INVALIDO = 0, ESPACO = 1, NOVA_LINHA = 2, LETRA = 3, DIGITO = 4,
+            OPERADOR = 5, ASPAS = 6, APOSTROFO = 7;
+    private static final byte[] CLASSE = new byte[128];
+    // Transições dos operadores: estado inicial --c--> TOKEN_UM[c]; estado c --d--> TOKEN_DOIS[c][d].
+    private static final TokenType[] TOKEN_UM = new TokenType[128];
+    private static final String[] LEXEMA_UM = new String[128];
+    private static final TokenType[][] TOKEN_DOIS = new TokenType[128][];
+    private static final String[][] LEXEMA_DOIS = new String[128][];
+    // Palavras-chave por hash perfeito de (tamanho, primeira, segunda e última letra): cada
+    // palavra tem uma posição só sua, então basta comparar o trecho com uma única candidata.
+    private static final String[] PALAVRA_POR_HASH = new String[128];
+    private static final int SEMENTE_PALAVRAS;
+    private static final int SEMENTE_CONHECIDA = 0x9E38D2A3; // a primeira sem colisões a partir de 0x9E3779B1
+    // Onde as buscas em bloco param (máscaras do CharSource: bit c para c < 64, bit c - 64 para 64 <= c < 128)
+    private static final long ESPACOS = 1L << ' ' | 1L << '\t' | 1L << '\r';
+    private static final long FIM_LINHA = 1L << '\n';
+    private static final long FIM_BLOCO = 1L << '\n' | 1L << '*';
+    private static final long FIM_STRING = 1L << '\n' | 1L << '"';
+    private static final long FIM_STRING_ALTA = 1L << ('\\' - 64);
+    // Caracteres do corpo de uma string que entram no lexema (metade da janela do WindowSource, que
+    // assim não cresce por causa de uma string; o resto de uma string maior é pulado, com um L006)
+    static final int MAIOR_STRING = CharSource.WindowSource.TAMANHO_BUFFER / 2;
+
+    static {
+        CLASSE[' '] = ESPACO; CLASSE['\r'] = ESPACO; CLASSE['\t'] = ESPACO;
+        CLASSE['\n'] = NOVA_LINHA;
+        CLASSE['"'] = ASPAS;
+        CLASSE['\''] = APOSTROFO;
+        CLASSE['_'] = LETRA;
+        for (char c = 'a'; c <= 'z'; c++) CLASSE[c] = LETRA;
+        for (char c = 'A'; c <= 'Z'; c++) CLASSE[c] = LETRA;
+        for (char c = '0'; c <= '9'; c++) CLASSE[c] = DIGITO;
+
+        for (TokenType tipo : TokenType.values()) {
+            for (String lexema : tipo.lexemasFixos) {
+                char primeiro = lexema.charAt(0);
+                CLASSE[primeiro] = OPERADOR;
+                if (lexema.length() == 1) {
+                    TOKEN_UM[primeiro] = tipo;
+                    LEXEMA_UM[primeiro] = lexema;
                 } else {
-                    addToken(TokenType.OPERADOR_ARITMETICO, "/", getTokenDescription("/", TokenType.OPERADOR_ARITMETICO));
+                    if (TOKEN_DOIS[primeiro] == null) {
+                        TOKEN_DOIS[primeiro] = new TokenType[128];
+                        LEXEMA_DOIS[primeiro] = new String[128];
+                    }
+                    TOKEN_DOIS[primeiro][lexema.charAt(1)] = tipo;
+                    LEXEMA_DOIS[primeiro][lexema.charAt(1)] = lexema;
                 }
-                break;
+            }
+        }
 
-            // Atribuição e comparação
-            case '=':
-    boolean ehComparacao = match('='); // Testa e consome UMA vez
-    addToken(ehComparacao ? TokenType.COMPARACAO : TokenType.ATRIBUICAO,
-             ehComparacao ? "==" : "=",
-             getTokenDescription(ehComparacao ? "==" : "=", 
-                                 ehComparacao ? TokenType.COMPARACAO : TokenType.ATRIBUICAO));
-    break;
-
-            case '!': 
-                addToken(match('=') ? TokenType.COMPARACAO : TokenType.OPERADOR_LOGICO,
-                         match('=') ? "!=" : "!",
-                         match('=') ? getTokenDescription("!=", TokenType.COMPARACAO)
-                                    : getTokenDescription("!", TokenType.OPERADOR_LOGICO));
-                break;
+        // Procura (sempre na mesma ordem) a primeira semente sem colisões entre as palavras-chave.
+        // A busca começa na semente já encontrada para as palavras atuais (SEMENTE_CONHECIDA): refazê-la
+        // a partir de 0x9E3779B1 a cada início levava dezenas de milhares de tentativas (~200 ms interpretado).
+        int semente = SEMENTE_CONHECIDA;
+        procura:
+        for (int tentativa = 0; ; tentativa++, semente += 2) {
+            if (tentativa == 1_000_000) throw new IllegalStateException("Sem hash perfeito para as palavras-chave");
+            Arrays.fill(PALAVRA_POR_HASH, null);
+            for (String palavra : PALAVRAS_CHAVE) {
+                int h = hashPalavra(palavra.length(), palavra.charAt(0), palavra.charAt(1),
+                        palavra.charAt(palavra.length() - 1), semente);
+                if (PALAVRA_POR_HASH[h] != null) continue procura;
+                PALAVRA_POR_HASH[h] = palavra;
+            }
+            break;
+        }
+        SEMENTE_PALAVRAS = semente;
+    }
 
-            case '<': 
-                if (match('=')) addToken(TokenType.COMPARACAO, "<=", getTokenDescription("<=", TokenType.COMPARACAO));
-                else if (match('<')) addToken(TokenType.OPERADOR_BIT_A_BIT, "<<", getTokenDescription("<<", TokenType.OPERADOR_BIT_A_BIT));
-                else addToken(TokenType.COMPARACAO, "<", getTokenDescription("<", TokenType.COMPARACAO));
-                break;
+    private static int hashPalavra(int tamanho, char primeiro, char segundo, char ultimo, int semente) {
+        return ((tamanho << 24 ^ primeiro << 16 ^ segundo << 8 ^ ultimo) * semente) >>> 25; // 0..127
+    }
 
-            case '>': 
-                if (match('=')) addToken(TokenType.COMPARACAO, ">=", getTokenDescription(">=", TokenType.COMPARACAO));
-                else if (match('>')) addToken(TokenType.OPERADOR_BIT_A_BIT, ">>", getTokenDescription(">>", TokenType.OPERADOR_BIT_A_BIT));
-                else addToken(TokenType.COMPARACAO, ">", getTokenDescription(">", TokenType.COMPARACAO));
-                break;
+    // A palavra-chave (a String constante) que ocupa [inicio, fim), ou null se o trecho não é uma
+    private String palavraChave(int inicio, int fim) {
+        int tamanho = fim - inicio;
+        if (tamanho < 2 || tamanho > 12) return null; // "do", "if" ... "synchronized"
+        String candidata = PALAVRA_POR_HASH[hashPalavra(tamanho, (char) codigoFonte.ler(inicio),
+                (char) codigoFonte.ler(inicio + 1), (char) codigoFonte.ler(fim - 1), SEMENTE_PALAVRAS)];
+        if (candidata == null || candidata.length() != tamanho) return null;
+        for (int i = 0; i < tamanho; i++) {
+            if (candidata.charAt(i) != codigoFonte.ler(inicio + i)) return null;
+        }
+        return candidata;
+    }
 
-            // Operadores lógicos e bit a bit
-            case '&': addToken(match('&') ? TokenType.OPERADOR_LOGICO : TokenType.OPERADOR_BIT_A_BIT,
-                               match('&') ? "&&" : "&",
-                               match('&') ? getTokenDescription("&&", TokenType.OPERADOR_LOGICO)
-                                          : getTokenDescription("&", TokenType.OPERADOR_BIT_A_BIT)); break;
+    private void scanToken() {
+        char c = advance();
+        byte classe;
+        int codigo = c; // o code point (um par de substitutos é lido inteiro)
+        if (c < 128) {
+            classe = CLASSE[c];
+        } else {
+            if (Character.isHighSurrogate(c) && Character.isLowSurrogate(peek())) codigo = Character.toCodePoint(c, advance());
+            classe = Character.isLetter(codigo) ? LETRA : INVALIDO;
+        }
 
-            case '|': addToken(match('|') ? TokenType.OPERADOR_LOGICO : TokenType.OPERADOR_BIT_A_BIT,
-                               match('|') ? "||" : "|",
-                               match('|') ? getTokenDescription("||", TokenType.OPERADOR_LOGICO)
-                                          : getTokenDescription("|", TokenType.OPERADOR_BIT_A_BIT)); break;
+        switch (classe) {
+            case ESPACO: // Ignora espaços em branco (a sequência inteira de uma vez)
+                pularAte(codigoFonte.pular(atual, ESPACOS));
+                break;
 
-            case '^': addToken(TokenType.OPERADOR_BIT_A_BIT, "^", getTokenDescription("^", TokenType.OPERADOR_BIT_A_BIT)); break;
-            case '~': addToken(TokenType.OPERADOR_BIT_A_BIT, "~", getTokenDescription("~", TokenType.OPERADOR_BIT_A_BIT)); break;
+            case NOVA_LINHA:
+                linha++;
+                inicioLinha = atual;
+                break;
 
-            // Literais
-            case '"': string(); break;
-            case '\'': character(); break;
+            case LETRA: identifier(); break;
+            case DIGITO: number(); break;
+            case ASPAS: string(); break;
+            case APOSTROFO: character(); break;
+            case OPERADOR: operador(c); break;
 
             default:
-                if (isDigit(c)) number();
-                else if (isAlpha(c)) identifier();
-                else System.err.println("Erro Léxico na linha " + linha + ", coluna " + coluna +
-                                        ": Caractere inesperado '" + c + "'");
+                diagnosticos.reportar(Diagnostics.Codigo.CARACTERE_INESPERADO, linhaInicio, colunaInicio, inicio, codigo);
                 break;
         }
     }
 
+    private void operador(char c) { // operadores, símbolos especiais e comentários
+        if (c == '/') {
+            if (match('/')) { // o lexema é constante: o texto do comentário pode sair da janela
+                pularAte(codigoFonte.atravessar(atual, FIM_LINHA, 0));
+                addToken(TokenType.COMENTARIO, COMENTARIO_LINHA);
+                return;
+            }
+            if (match('*')) { // pula até cada '\n' (conta a linha) ou '*' (pode ser o fechamento)
+                for (char p = pularAte(codigoFonte.atravessar(atual, FIM_BLOCO, 0)); !(p == '*' && peekNext() == '/') && !isAtEnd();
+                        p = pularAte(codigoFonte.atravessar(atual, FIM_BLOCO, 0))) {
+                    pular();
+                    codigoFonte.descartar(atual);
+                    if (p == '\n') {
+                        linha++;
+                        inicioLinha = atual;
+                    }
+                }
+                if (isAtEnd()) { // Sem "*/": o comentário vai até o fim do arquivo
+                    diagnosticos.reportar(Diagnostics.Codigo.COMENTARIO_NAO_TERMINADO, linhaInicio, colunaInicio, inicio, -1);
+                } else {
+                    advance(); advance(); // Fechar comentário de bloco
+                }
+                addToken(TokenType.COMENTARIO, COMENTARIO_BLOCO);
+                return;
+            }
+        }
+        TokenType[] transicoes = TOKEN_DOIS[c];
+        if (transicoes != null) { // Operador que pode ter dois caracteres (==, <=, <<, &&, ...)
+            char proximo = peek();
+            if (proximo < 128 && transicoes[proximo] != null) {
+                atual++;
+                addToken(transicoes[proximo], LEXEMA_DOIS[c][proximo]);
+                return;
+            }
+        }
+        addToken(TOKEN_UM[c], LEXEMA_UM[c]);
+    }
+
     //MÉTODOS AUXILIARES
     private void identifier() { // distingui Palavras chaves e identificadores em situaçoes especiais (int "valorint"  ≠ int valor  )
-        while (isAlphaNumeric(peek())) advance();
-        String texto = codigoFonte.substring(inicio, atual);
-        addToken(palavrasChave.contains(texto) ? TokenType.PALAVRA_CHAVE : TokenType.IDENTIFICADOR,
-                 texto,
-                 getTokenDescription(texto, palavrasChave.contains(texto) ? TokenType.PALAVRA_CHAVE : TokenType.IDENTIFICADOR));
+        int hash = codigoFonte.ler(inicio); // o hash do LexemePool é calculado enquanto o nome é lido
+        if (atual - inicio == 2) hash = 31 * hash + codigoFonte.ler(inicio + 1); // a letra era um par de substitutos
+        for (int p = codePoint(); isAlphaNumeric(p); p = codePoint()) {
+            if (p <= Character.MAX_VALUE) {
+                hash = 31 * hash + p;
+                pular();
+            } else { // o hash de String.hashCode() soma as duas unidades UTF-16
+                hash = 31 * (31 * hash + Character.highSurrogate(p)) + Character.lowSurrogate(p);
+                atual += 2;
+            }
+        }
+        String palavra = palavraChave(inicio, atual);
+        if (palavra != null) {
+            addToken(TokenType.PALAVRA_CHAVE, palavra);
+        } else {
+            addToken(TokenType.IDENTIFICADOR, null); // sem substring: o nome só é buscado se o Token for montado
+            hashPendente = hash;
+        }
     }
 
     private void number() { //consome dígitos inteiros e consome o ponto e os dígitos subsequentes (3.14)
-        while (isDigit(peek())) advance();
+        while (isDigit(peek())) pular();
         if (peek() == '.' && isDigit(peekNext())) {
-            advance();
-            while (isDigit(peek())) advance();
+            pular();
+            while (isDigit(peek())) pular();
         }
         if (peek() == 'f' || peek() == 'F') {
         advance();
     }
-        String texto = codigoFonte.substring(inicio, atual);
-        addToken(TokenType.LITERAL_NUMERICO, texto, getTokenDescription(texto, TokenType.LITERAL_NUMERICO));
+        addToken(TokenType.LITERAL_NUMERICO, texto(TokenType.LITERAL_NUMERICO, inicio, atual));
     }
 
     private void string() { //Absorção de dados caso não se encontre o fechamento de " e \n dentro de Strings
-        while (peek() != '"' && !isAtEnd()) {
-            if (peek() == '\n') linha++;
-            advance();
+        int corte = inicio + 1 + MAIOR_STRING; // o corpo a partir daqui não entra no lexema
+        for (char p = pularAte(codigoFonte.procurarAte(atual, corte, FIM_STRING, FIM_STRING_ALTA)); p == '\\' && atual < corte;
+                p = pularAte(codigoFonte.procurarAte(atual, corte, FIM_STRING, FIM_STRING_ALTA))) {
+            escape();
+        }
+        String cortado = null;
+        if (atual > corte || (atual == corte && peek() != '"' && peek() != '\n' && !isAtEnd())) {
+            // Longa demais: o lexema fica com o começo do corpo, e o resto é atravessado sem crescer a janela
+            cortado = texto(TokenType.LITERAL_STRING, inicio + 1, corte);
+            diagnosticos.reportar(Diagnostics.Codigo.STRING_LONGA, linhaInicio, colunaInicio, inicio, -1);
+            for (char p = pularAte(codigoFonte.atravessar(atual, FIM_STRING, FIM_STRING_ALTA)); p == '\\';
+                    p = pularAte(codigoFonte.atravessar(atual, FIM_STRING, FIM_STRING_ALTA))) {
+                escape();
+            }
+        }
+        if (peek() != '"') { // Sem as aspas de fechamento: a string termina no fim da linha
+            diagnosticos.reportar(Diagnostics.Codigo.STRING_NAO_TERMINADA, linhaInicio, colunaInicio, inicio, -1);
+            addToken(TokenType.LITERAL_STRING, cortado != null ? cortado : texto(TokenType.LITERAL_STRING, inicio + 1, atual));
+            return;
         }
-        advance(); 
-        String texto = codigoFonte.substring(inicio + 1, atual - 1);
-        addToken(TokenType.LITERAL_STRING, texto, getTokenDescription(texto, TokenType.LITERAL_STRING));
+        advance();
+        addToken(TokenType.LITERAL_STRING, cortado != null ? cortado : texto(TokenType.LITERAL_STRING, inicio + 1, atual - 1));
+    }
+
+    private void escape() { // a barra e o caractere depois dela: \" e \\ não fecham a string
+        pular();
+        if (peek() != '\n' && !isAtEnd()) advance();
     }
 
     private void character() { //Absorção de dados '\n', '\'', '\t' se houver escape.
+        boolean vazio = peek() == '\'';
         if (peek() == '\\') advance();
-        if (peek() != '\'' && !isAtEnd()) advance();
-        if (peek() == '\'') advance();
-        String texto = codigoFonte.substring(inicio, atual);
-        addToken(TokenType.LITERAL_CHAR, texto, getTokenDescription(texto, TokenType.LITERAL_CHAR));
+        if (!vazio && peek() != '\n' && !isAtEnd()) advance(); // o caractere (ou o que vem depois da barra)
+        if (peek() == '\'') {
+            advance();
+            if (vazio) diagnosticos.reportar(Diagnostics.Codigo.CHAR_VAZIO, linhaInicio, colunaInicio, inicio, -1);
+        } else {
+            diagnosticos.reportar(Diagnostics.Codigo.CHAR_NAO_TERMINADO, linhaInicio, colunaInicio, inicio, -1);
+        }
+        addToken(TokenType.LITERAL_CHAR, texto(TokenType.LITERAL_CHAR, inicio, atual));
     }
 
     // Controle de leitura
     private boolean match(char esperado) {
-        if (isAtEnd()) return false;
-        if (codigoFonte.charAt(atual) != esperado) return false;
+        if (codigoFonte.ler(atual) != esperado) return false;
         atual++;
         return true;
     }
 
-    private char peek() { return isAtEnd() ? '\0' : codigoFonte.charAt(atual); }  // peek() "espia" o caractere atual, sem andar para a frente'
-    private char peekNext() { return (atual + 1 >= codigoFonte.length()) ? '\0' : codigoFonte.charAt(atual + 1); } // peekNext() "espia" o caractere que vem *depois* do atual'
-    private boolean isAlpha(char c) { return Character.isLetter(c) || c == '_'; } //isAlpha() pergunta se é (A-Z) ou um sublinhado (_)?".
-    private boolean isAlphaNumeric(char c) { return isAlpha(c) || isDigit(c); } // isAlphaNumeric() pergunta se é uma letra OU um número?".
-    private boolean isDigit(char c) { return c >= '0' && c <= '9'; } // isDigit() pergunta se é um número (0-9)?".
-    private boolean isAtEnd() { return atual >= codigoFonte.length(); } // isAtEnd() verrifica se o codigo chegou ao fim.
-    private char advance() { coluna++; return codigoFonte.charAt(atual++); } // advance() retorna o caractere atual e avança para o próximo.
-
-    private void addToken(TokenType tipo, String lexema, String descricao) {//addToken() guarda o token na lista de tokens com seu tipo, lexema, descrição, linha e coluna.'
-        if (tipo == TokenType.EOF) {
-            tokens.add(new Token(tipo, lexema, descricao, linha, coluna));
-        } else {
-            tokens.add(new Token(tipo, lexema, descricao, linha, colunaInicio));
+    private char peek() { int c = codigoFonte.ler(atual); return c == CharSource.FIM ? '\0' : (char) c; }  // peek() "espia" o caractere atual, sem andar para a frente'
+    private char peekNext() { int c = codigoFonte.ler(atual + 1); return c == CharSource.FIM ? '\0' : (char) c; } // peekNext() "espia" o caractere que vem *depois* do atual'
+    private boolean isAlphaNumeric(int c) { // isAlphaNumeric() pergunta se o code point é uma letra, um sublinhado (_) OU um número?".
+        if (c < 128) { byte classe = CLASSE[c]; return classe == LETRA || classe == DIGITO; }
+        return Character.isLetter(c);
+    }
+    private int codePoint() { // codePoint() espia o code point atual: um par de substitutos vale um só (fora do BMP, ex.: U+1D465)
+        char c = peek();
+        if (Character.isHighSurrogate(c)) {
+            char baixo = peekNext();
+            if (Character.isLowSurrogate(baixo)) return Character.toCodePoint(c, baixo);
         }
+        return c;
     }
+    private boolean isDigit(char c) { return c >= '0' && c <= '9'; } // isDigit() pergunta se é um número (0-9)?".
+    private boolean isAtEnd() { return codigoFonte.ler(atual) == CharSource.FIM; } // isAtEnd() verrifica se o codigo chegou ao fim.
+    private char advance() { return (char) codigoFonte.ler(atual++); } // advance() retorna o caractere atual e avança para o próximo.
+    private void pular() { atual++; } // pular() avança sem reler um caractere que já foi espiado com peek().
+    private char pularAte(int pos) { atual = pos; return peek(); } // pularAte() anda até 'pos' (o resultado de uma busca em bloco) e espia o caractere de lá.
 
-    private String getTokenDescription(String lexema, TokenType tipo) {
-        switch (tipo) {
-            case PALAVRA_CHAVE: return "Palavra-chave -> " + lexema;
-            case IDENTIFICADOR: return "Identificador -> " + lexema;
-            case OPERADOR_ARITMETICO:
-                switch (lexema) {
-                    case "+": return "Operador aritmético -> Mais ('+')";
-                    case "-": return "Operador aritmético -> Menos ('-')";
-                    case "*": return "Operador aritmético -> Multiplicação ('*')";
-                    case "/": return "Operador aritmético -> Divisão ('/')";
-                }
-                break;
-            case OPERADOR_LOGICO:
-                switch (lexema) {
-                    case "&&": return "Operador lógico -> E lógico ('&&')";
-                    case "||": return "Operador lógico -> OU lógico ('||')";
-                    case "!": return "Operador lógico -> Negação ('!')";
-                }
-                break;
-            case OPERADOR_BIT_A_BIT:
-                switch (lexema) {
-                    case "&": return "Operador bit a bit -> AND bit a bit ('&')";
-                    case "|": return "Operador bit a bit -> OR bit a bit ('|')";
-                    case "^": return "Operador bit a bit -> XOR bit a bit ('^')";
-                    case "~": return "Operador bit a bit -> NOT bit a bit ('~')";
-                    case "<<": return "Operador bit a bit -> Deslocamento à esquerda ('<<')";
-                    case ">>": return "Operador bit a bit -> Deslocamento à direita ('>>')";
-                }
-                break;
-            case ATRIBUICAO: return "Atribuição -> '='";
-            case COMPARACAO: return "Comparação -> '" + lexema + "'";
-            case SIMBOLO_ESPECIAL:
-                switch (lexema) {
-                    case ";": return "Símbolo especial -> Ponto e vírgula (';')";
-                    case ",": return "Símbolo especial -> Vírgula (',')";
-                    case "(": return "Símbolo especial -> Parêntese esquerdo ('(')";
-                    case ")": return "Símbolo especial -> Parêntese direito (')')";
-                    case "{": return "Símbolo especial -> Chave esquerda ('{')";
-                    case "}": return "Símbolo especial -> Chave direita ('}')";
-                    case "[": return "Símbolo especial -> Colchete esquerdo ('[')";
-                    case "]": return "Símbolo especial -> Colchete direito (']')";
-                    case ".": return "Símbolo especial -> Ponto ('.')";
-                }
-                break;
-            case LITERAL_NUMERICO: return "Literal numérico -> " + lexema;
-            case LITERAL_STRING: return "Literal string -> \"" + lexema + "\"";
-            case LITERAL_CHAR: return "Literal de Char -> '" + lexema + "'";
-            case COMENTARIO: return "Comentário -> " + lexema;
-            case EOF: return "Fim do arquivo";
-            default: return "Token desconhecido -> " + lexema;
-        }
-        return lexema;
+    private boolean entregue(TokenType tipo) { return (tiposEntregues >>> tipo.ordinal() & 1) != 0; } // entregue() diz se o filtro deixa este tipo sair.
+    private String texto(TokenType tipo, int de, int ate) { return entregue(tipo) ? codigoFonte.texto(de, ate) : null; } // texto() só recorta o lexema de um token que vai ser entregue.
+
+    private void addToken(TokenType tipo, String lexema) {//addToken() prepara o token que será entregue por nextToken() com seu tipo, lexema, linha e coluna (a descrição é montada só quando pedida).'
+        if (!entregue(tipo)) return; // filtrado: avancar() segue para o próximo token
+        tipoPendente = tipo;
+        lexemaPendente = lexema;
+        linhaPendente = linhaInicio;
+        colunaPendente = colunaInicio;
     }
 }
\ No newline at end of file
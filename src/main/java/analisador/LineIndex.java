@@ -0,0 +1,61 @@
+/*
+Esta classe é o índice das linhas de um texto: a posição onde cada linha começa.
+Com ela, quem guarda só a posição de um token (TokenBuffer) descobre a linha e a
+coluna quando alguém as pede, por busca binária, em vez de guardá-las por token.
+    - de() monta o índice em uma passada, pulando de '\n' em '\n' (String.indexOf,
+      que a JVM vetoriza); só '\n' quebra a linha, como no Lexer ("\r\n" também).
+    - A linha e a coluna começam em 1; a coluna conta caracteres (UTF-16) desde o
+      início da linha, também como no Lexer.
+    - A posição do fim do texto (a do EOF) fica na última linha.
+O Lexer faz a mesma conta sem o índice: ele guarda só o início da linha atual.
+*/
+
+package analisador;
+
+import java.util.Arrays;
+
+public final class LineIndex {
+    private int[] inicios; // inicios[k]: posição do primeiro caractere da linha k + 1
+    private int quantidade;
+
+    private LineIndex(int capacidade) {
+        inicios = new int[Math.max(1, capacidade)];
+        quantidade = 1; // a linha 1 começa na posição 0
+    }
+
+    public static LineIndex de(String texto) {
+        LineIndex indice = new LineIndex(texto.length() / 32);
+        for (int quebra = texto.indexOf('\n'); quebra >= 0; quebra = texto.indexOf('\n', quebra + 1)) {
+            indice.novaLinha(quebra + 1);
+        }
+        return indice;
+    }
+
+    private void novaLinha(int inicio) {
+        if (quantidade == inicios.length) inicios = Arrays.copyOf(inicios, inicios.length * 2);
+        inicios[quantidade++] = inicio;
+    }
+
+    public int linhas() {
+        return quantidade;
+    }
+
+    // A linha (a partir de 1) da posição 'pos': a última que começa em 'pos' ou antes
+    public int linha(int pos) {
+        int baixo = 0, alto = quantidade - 1;
+        while (baixo < alto) {
+            int meio = (baixo + alto + 1) >>> 1;
+            if (inicios[meio] <= pos) baixo = meio;
+            else alto = meio - 1;
+        }
+        return baixo + 1;
+    }
+
+    public int coluna(int pos) {
+        return pos - inicio(linha(pos)) + 1;
+    }
+
+    public int inicio(int linha) { // posição do primeiro caractere da linha
+        return inicios[linha - 1];
+    }
+}
@@ -0,0 +1,135 @@
+/*
+Esta classe analisa um único código-fonte grande usando vários núcleos.
+O texto é dividido em trechos que começam logo depois de uma quebra de linha,
+e cada trecho é analisado por um Lexer próprio em um ForkJoinPool.
+Como um trecho pode começar no meio de um comentário de bloco ou de uma string,
+o estado inicial de cada trecho é apenas um palpite:
+    - Antes de analisar, o LineIndex do texto (uma passada) diz em que linha cada
+      trecho começa, para que cada um já comece na linha certa (coluna 1). O mesmo
+      índice dá a linha e a coluna dos tokens do TokenBuffer devolvido.
+    - Depois, os trechos são conferidos em ordem: se o trecho anterior não terminou
+      exatamente no início deste, na mesma linha e na coluna 1, o palpite estava
+      errado e o trecho é analisado de novo a partir de onde o anterior parou.
+O resultado (tokens, linhas, colunas e erros léxicos) é idêntico ao de uma
+análise sequencial com o Lexer. Os diagnósticos de cada trecho aceito são juntados,
+em ordem, aos do TokenBuffer devolvido.
+*/
+
+package analisador;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import analisador.core.TokenType;
+
+public class ParallelLexer {
+    static final int TAMANHO_MINIMO_TRECHO = 256 * 1024;
+
+    private ParallelLexer() {
+    }
+
+    public static TokenBuffer scan(String codigoFonte) {
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        if (pool.getParallelism() < 2 || codigoFonte.length() < 2 * TAMANHO_MINIMO_TRECHO) {
+            return new TokenBuffer(codigoFonte); // Sem núcleos sobrando ou texto pequeno: dividir só custaria mais
+        }
+        int tamanhoTrecho = Math.max(TAMANHO_MINIMO_TRECHO, codigoFonte.length() / (pool.getParallelism() * 4) + 1);
+        return scan(codigoFonte, pool, tamanhoTrecho);
+    }
+
+    public static TokenBuffer scan(String codigoFonte, ForkJoinPool pool, int tamanhoTrecho) {
+        List<Integer> cortes = dividir(codigoFonte, tamanhoTrecho);
+        int numTrechos = cortes.size() - 1;
+
+        // PASSO 1: linha inicial de cada trecho (pelo índice de linhas)
+        LineIndex indice = LineIndex.de(codigoFonte);
+
+        // PASSO 2: análise especulativa de todos os trechos em paralelo
+        List<Callable<Trecho>> analises = new ArrayList<>();
+        for (int i = 0; i < numTrechos; i++) {
+            int inicio = cortes.get(i), fim = cortes.get(i + 1), linha = indice.linha(inicio);
+            analises.add(() -> Trecho.analisar(codigoFonte, indice, inicio, fim, linha, 1));
+        }
+        List<Trecho> trechos = aguardar(pool.invokeAll(analises));
+
+        // PASSO 3: conferência em ordem, refazendo os trechos cujo palpite estava errado
+        TokenBuffer resultado = new TokenBuffer(codigoFonte, indice, Math.max(16, codigoFonte.length() / 8));
+        Trecho anterior = null;
+        for (int i = 0; i < numTrechos; i++) {
+            Trecho trecho = trechos.get(i);
+            if (anterior != null && !anterior.continuaEm(trecho)) {
+                trecho = Trecho.analisar(codigoFonte, indice, anterior.posicaoFinal, cortes.get(i + 1),
+                        anterior.linhaFinal, anterior.colunaFinal);
+            }
+            resultado.adicionarTodos(trecho.tokens);
+            resultado.diagnosticos().adicionarTodos(trecho.diagnosticos);
+            anterior = trecho;
+        }
+        resultado.adicionar(TokenType.EOF, anterior.posicaoFinal, 0);
+        resultado.aparar();
+        return resultado;
+    }
+
+    // Posições de corte: 0, alguns inícios de linha e o fim do texto
+    private static List<Integer> dividir(String codigoFonte, int tamanhoTrecho) {
+        List<Integer> cortes = new ArrayList<>();
+        cortes.add(0);
+        int proximo = tamanhoTrecho;
+        while (proximo < codigoFonte.length()) {
+            int quebra = codigoFonte.indexOf('\n', proximo);
+            if (quebra < 0 || quebra + 1 >= codigoFonte.length()) break;
+            cortes.add(quebra + 1);
+            proximo = quebra + 1 + tamanhoTrecho;
+        }
+        cortes.add(codigoFonte.length());
+        return cortes;
+    }
+
+    private static <T> List<T> aguardar(List<Future<T>> futuros) {
+        List<T> resultados = new ArrayList<>(futuros.size());
+        try {
+            for (Future<T> futuro : futuros) resultados.add(futuro.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Análise paralela interrompida", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Falha na análise paralela", e.getCause());
+        }
+        return resultados;
+    }
+
+    private static class Trecho {
+        final int posicaoInicial;
+        final int linhaInicial;
+        final TokenBuffer tokens;
+        final Diagnostics diagnosticos = new Diagnostics();
+        int posicaoFinal;
+        int linhaFinal;
+        int colunaFinal;
+
+        private Trecho(String codigoFonte, LineIndex indice, int posicaoInicial, int linhaInicial, int capacidade) {
+            this.posicaoInicial = posicaoInicial;
+            this.linhaInicial = linhaInicial;
+            this.tokens = new TokenBuffer(codigoFonte, indice, capacidade);
+        }
+
+        static Trecho analisar(String codigoFonte, LineIndex indice, int inicio, int fim, int linha, int coluna) {
+            Trecho trecho = new Trecho(codigoFonte, indice, inicio, linha, Math.max(16, (fim - inicio) / 8));
+            Lexer lexer = new Lexer(codigoFonte, inicio, fim, linha, coluna, trecho.diagnosticos);
+            trecho.tokens.preencher(lexer);
+            trecho.posicaoFinal = lexer.posicao();
+            trecho.linhaFinal = lexer.linha();
+            trecho.colunaFinal = lexer.coluna();
+            return trecho;
+        }
+
+        // O próximo trecho foi analisado a partir do estado em que este terminou?
+        boolean continuaEm(Trecho proximo) {
+            return posicaoFinal == proximo.posicaoInicial && linhaFinal == proximo.linhaInicial && colunaFinal == 1;
+        }
+    }
+}
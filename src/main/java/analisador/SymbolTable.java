@@ -1,56 +1,492 @@
+/*
+Esta classe é a Tabela de Símbolos: os identificadores distintos, na ordem em que
+aparecem pela primeira vez, e o índice de TODAS as suas ocorrências.
+    - Cada identificador distinto ganha um id de símbolo (0, 1, 2, ...) na primeira vez que
+      aparece. Os nomes ficam em um LexemePool, que pode ser o do próprio Lexer
+      (new SymbolTable(lexer.lexemas())): aí o nome já foi internado uma vez pelo Lexer, e
+      a tabela só liga o id dele no pool ao id do símbolo (um vetor de int). add() acha o id
+      no pool pela própria String do token, que é a instância do pool: o hash já está
+      guardado nela e a busca para na igualdade de referência. Quem já tem o id do pool
+      usa adicionar(id, ...) direto.
+    - As ocorrências ficam em vetores paralelos de int (id do nome no pool, linha, coluna,
+      posição), cerca de 16 bytes cada, sem um Token guardado por ocorrência.
+    - Para "encontrar todas as referências", as ocorrências são agrupadas por símbolo
+      (ordenação por contagem, mantendo a ordem do arquivo) só quando alguém pergunta;
+      o agrupamento é refeito se entrarem novas ocorrências depois.
+    - Depois de uma edição do IncrementalLexer, substituir() troca só as ocorrências dos
+      tokens que mudaram. Os vetores têm uma lacuna, como os tokens do IncrementalLexer:
+      as ocorrências depois dela guardam posição e linha relativas ao deslocamento acumulado
+      das edições, então as seguintes não são corrigidas uma por uma, e só os símbolos dos
+      tokens do delta são revistos. Se a ordem da primeira ocorrência deles mudar (um nome
+      novo, um nome que sumiu), só eles mudam de lugar na numeração, e a tabela fica igual
+      à de uma análise do texto novo do zero. O custo de uma edição depende do delta e da
+      distância até a edição anterior, não do tamanho do arquivo.
+O ID mostrado no console e no PDF é o id + 1.
+*/
+
 package analisador;
 
-import java.util.LinkedHashMap;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
 import java.util.ArrayList;
-import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
 
 import analisador.core.TokenType;
 
 public class SymbolTable {
-    private final Map<String, Token> simbolos = new LinkedHashMap<>();
+    private final LexemePool lexemas; // os nomes (o pool do Lexer ou um só desta tabela)
+    private int[] simboloDoLexema = new int[64]; // id no pool -> id do símbolo + 1 (0: ainda não apareceu)
+    private int[] lexemaDoSimbolo = new int[64]; // id do símbolo -> id no pool
+    private int[] contagens = new int[64]; // ocorrências por símbolo
+    private int[] primeiras = new int[64]; // índice físico (nos vetores das ocorrências) da primeira de cada símbolo
+    private int quantidade = 0; // símbolos distintos
+
+    // Ocorrências na ordem do arquivo, em vetores paralelos com uma lacuna (como os tokens do
+    // IncrementalLexer): [0, antes) têm posição e linha absolutas; [depois, capacidade) guardam posição
+    // e linha menos 'desvioPosicao' e 'desvioLinhas', a soma dos deslocamentos das edições.
+    // 'nomes' tem o id do nome no pool (não o id do símbolo), que não muda quando os ids são refeitos.
+    private int[] nomes = new int[256];
+    private int[] linhas = new int[256];
+    private int[] colunas = new int[256];
+    private int[] posicoes = new int[256];
+    private int antes = 0;
+    private int depois = 256;
+    private int desvioPosicao = 0;
+    private int desvioLinhas = 0;
+
+    // Agrupamento por símbolo (montado sob demanda): as ocorrências do símbolo 'id' são
+    // ordem[inicioGrupo[id]] ... ordem[inicioGrupo[id + 1] - 1] (índices físicos nos vetores)
+    private int[] inicioGrupo;
+    private int[] ordem;
+
+    public SymbolTable() {
+        this(new LexemePool());
+    }
+
+    public SymbolTable(LexemePool lexemas) { // ex.: lexer.lexemas(), para não internar os nomes duas vezes
+        this.lexemas = lexemas;
+    }
 
     public void add(Token token) {
-        if (token.tipo == TokenType.IDENTIFICADOR && !simbolos.containsKey(token.lexema)) {
-            simbolos.put(token.lexema, token);
+        if (token.tipo == TokenType.IDENTIFICADOR) {
+            adicionar(lexemas.intern(token.lexema), token.linha, token.coluna, token.posicao);
+        }
+    }
+
+    // Registra uma ocorrência do identificador e devolve o id do símbolo
+    public int adicionar(String lexema, int linha, int coluna, int posicao) {
+        return adicionar(lexemas.intern(lexema), linha, coluna, posicao);
+    }
+
+    // O mesmo, para um nome que já está no pool da tabela ('lexema' é o id dele no pool)
+    public int adicionar(int lexema, int linha, int coluna, int posicao) {
+        if (depois < nomes.length) moverLacuna(totalOcorrencias()); // a ocorrência vai para o fim
+        if (antes == depois) crescer();
+        int id = simboloDe(lexema);
+        if (id < 0) id = novoSimbolo(lexema);
+        guardar(lexema, linha, coluna, posicao);
+        contagens[id]++;
+        ordem = null; // o agrupamento ficou velho
+        return id;
+    }
+
+    private void guardar(int lexema, int linha, int coluna, int posicao) { // antes da lacuna
+        nomes[antes] = lexema;
+        linhas[antes] = linha;
+        colunas[antes] = coluna;
+        posicoes[antes] = posicao;
+        antes++;
+    }
+
+    private int simboloDe(int lexema) { // -1 se o nome ainda não apareceu nesta tabela
+        return lexema < simboloDoLexema.length ? simboloDoLexema[lexema] - 1 : -1;
+    }
+
+    private int novoSimbolo(int lexema) { // a primeira ocorrência é a próxima guardada antes da lacuna
+        if (quantidade == contagens.length) {
+            int capacidade = quantidade * 2;
+            contagens = Arrays.copyOf(contagens, capacidade);
+            primeiras = Arrays.copyOf(primeiras, capacidade);
+            lexemaDoSimbolo = Arrays.copyOf(lexemaDoSimbolo, capacidade);
+        }
+        if (lexema >= simboloDoLexema.length) {
+            simboloDoLexema = Arrays.copyOf(simboloDoLexema, Math.max(lexema + 1, simboloDoLexema.length * 2));
+        }
+        simboloDoLexema[lexema] = quantidade + 1;
+        lexemaDoSimbolo[quantidade] = lexema;
+        contagens[quantidade] = 0; // a vaga pode ser de um símbolo que sumiu
+        primeiras[quantidade] = antes;
+        return quantidade++;
+    }
+
+    // Tabela já pronta (usada pelo TokenCache): os nomes na ordem dos ids e as ocorrências na ordem
+    // do arquivo. Os vetores passam a ser da tabela; os nomes não são procurados por ocorrência.
+    static SymbolTable carregar(String[] nomes, int[] simbolos, int[] linhas, int[] colunas, int[] posicoes) {
+        SymbolTable tabela = new SymbolTable();
+        int n = simbolos.length;
+        for (String nome : nomes) {
+            int lexema = tabela.lexemas.intern(nome);
+            if (tabela.simboloDe(lexema) >= 0) throw new IllegalArgumentException("Nome repetido: " + nome);
+            tabela.novoSimbolo(lexema);
+        }
+        for (int i = n - 1; i >= 0; i--) { // de trás para frente: a última escrita é a primeira ocorrência
+            int id = simbolos[i];
+            tabela.contagens[id]++;
+            tabela.primeiras[id] = i;
+            simbolos[i] = tabela.lexemaDoSimbolo[id]; // o vetor passa a guardar o id do nome no pool
+        }
+        if (n > 0) {
+            tabela.nomes = simbolos;
+            tabela.linhas = linhas;
+            tabela.colunas = colunas;
+            tabela.posicoes = posicoes;
+            tabela.antes = n;
+            tabela.depois = n;
+        }
+        return tabela;
+    }
+
+    public int size() { // quantidade de símbolos distintos
+        return quantidade;
+    }
+
+    public int totalOcorrencias() {
+        return antes + nomes.length - depois;
+    }
+
+    // CONSULTAS POR SÍMBOLO
+    public int id(String lexema) { // -1 se o identificador nunca apareceu
+        int id = lexemas.id(lexema);
+        return id < 0 ? -1 : simboloDe(id);
+    }
+
+    public String lexema(int id) {
+        verificar(id);
+        return lexemas.nome(lexemaDoSimbolo[id]);
+    }
+
+    public int ocorrencias(int id) {
+        verificar(id);
+        return contagens[id];
+    }
+
+    public int ocorrencias(String lexema) {
+        int id = id(lexema);
+        return id < 0 ? 0 : contagens[id];
+    }
+
+    // k-ésima ocorrência do símbolo (0 = a primeira no arquivo)
+    public int linha(int id, int k) { return linhaDe(ocorrencia(id, k)); }
+    public int coluna(int id, int k) { return colunas[ocorrencia(id, k)]; }
+    public int posicao(int id, int k) { return posicaoDe(ocorrencia(id, k)); }
+
+    // Todas as referências ao identificador, na ordem do arquivo (vazia se ele não existe).
+    // Os Tokens são montados só quando lidos.
+    public List<Token> referencias(String lexema) {
+        int id = id(lexema);
+        return id < 0 ? List.of() : referencias(id);
+    }
+
+    public List<Token> referencias(int id) {
+        verificar(id);
+        return new Referencias(id);
+    }
+
+    private int ocorrencia(int id, int k) { // índice físico
+        verificar(id);
+        if (k < 0 || k >= contagens[id]) throw new IndexOutOfBoundsException("Ocorrência: " + k + ", total: " + contagens[id]);
+        if (k == 0) return primeiras[id];
+        agrupar();
+        return ordem[inicioGrupo[id] + k];
+    }
+
+    private void agrupar() {
+        if (ordem != null) return;
+        int[] inicio = new int[quantidade + 1];
+        for (int id = 0; id < quantidade; id++) inicio[id + 1] = inicio[id] + contagens[id];
+        int[] proxima = Arrays.copyOf(inicio, quantidade);
+        int[] agrupadas = new int[totalOcorrencias()];
+        for (int f = 0; f < antes; f++) agrupadas[proxima[simboloDoLexema[nomes[f]] - 1]++] = f;
+        for (int f = depois; f < nomes.length; f++) agrupadas[proxima[simboloDoLexema[nomes[f]] - 1]++] = f;
+        inicioGrupo = inicio;
+        ordem = agrupadas;
+    }
+
+    private void verificar(int id) {
+        if (id < 0 || id >= quantidade) throw new IndexOutOfBoundsException("Símbolo: " + id + ", tamanho: " + quantidade);
+    }
+
+    // Linha e posição da ocorrência no índice físico 'f' (as de depois da lacuna são relativas)
+    private int linhaDe(int f) {
+        return f < antes ? linhas[f] : linhas[f] + desvioLinhas;
+    }
+
+    private int posicaoDe(int f) {
+        return f < antes ? posicoes[f] : posicoes[f] + desvioPosicao;
+    }
+
+    private class Referencias extends AbstractList<Token> implements RandomAccess {
+        private final int id;
+
+        Referencias(int id) {
+            this.id = id;
+        }
+
+        @Override
+        public Token get(int k) {
+            int f = ocorrencia(id, k);
+            return new Token(TokenType.IDENTIFICADOR, lexema(id), linhaDe(f), colunas[f], posicaoDe(f));
+        }
+
+        @Override
+        public int size() {
+            return contagens[id];
         }
     }
 
+    // EDIÇÕES (IncrementalLexer): as ocorrências dos tokens 'removidos' (posições do texto antigo,
+    // a primeira em 'ancora', que é a do primeiro token que mudou) dão lugar às dos 'inseridos'
+    // (posições do texto novo); as seguintes andam 'deslocamento' posições e 'deslocamentoLinhas' linhas.
+    // A lacuna vai para a âncora (custo: a distância até a edição anterior); as removidas saem do
+    // começo do trecho de depois da lacuna, as inseridas entram no fim do de antes, e o deslocamento
+    // das seguintes é só uma soma nos desvios. Só os símbolos dos tokens do delta são revistos.
+    void substituir(int ancora, List<Token> removidos, List<Token> inseridos, int deslocamento, int deslocamentoLinhas) {
+        moverLacuna(primeiraDesde(ancora));
+        int[] afetados = new int[removidos.size() + inseridos.size()]; // ids dos nomes no pool
+        int n = 0;
+        for (Token token : removidos) {
+            if (token.tipo != TokenType.IDENTIFICADOR) continue;
+            if (depois == nomes.length || posicaoDe(depois) < ancora) {
+                throw new IllegalStateException("Ocorrência fora de ordem em " + token.posicao);
+            }
+            int id = simboloDe(nomes[depois]);
+            contagens[id]--;
+            if (primeiras[id] == depois) primeiras[id] = -1; // a primeira saiu: procurada mais abaixo
+            afetados[n++] = nomes[depois++];
+        }
+        desvioPosicao += deslocamento;
+        desvioLinhas += deslocamentoLinhas;
+
+        for (Token token : inseridos) {
+            if (token.tipo != TokenType.IDENTIFICADOR) continue;
+            if (antes == depois) crescer();
+            int lexema = lexemas.intern(token.lexema);
+            int id = simboloDe(lexema);
+            if (id < 0) id = novoSimbolo(lexema);
+            else if (primeiras[id] < 0 || primeiras[id] >= depois) primeiras[id] = antes; // nenhuma antes da lacuna
+            guardar(lexema, token.linha, token.coluna, token.posicao);
+            contagens[id]++;
+            afetados[n++] = lexema;
+        }
+
+        // A primeira ocorrência que saiu sem substituta é a próxima do mesmo nome depois da lacuna
+        boolean fora = false;
+        for (int i = 0; i < n; i++) {
+            int id = simboloDe(afetados[i]);
+            if (contagens[id] == 0) {
+                fora = true;
+                continue;
+            }
+            if (primeiras[id] < 0) {
+                int f = depois;
+                while (nomes[f] != afetados[i]) f++;
+                primeiras[id] = f;
+            }
+        }
+        for (int i = 0; i < n && !fora; i++) { // a ordem dos ids é a da primeira ocorrência
+            int id = simboloDe(afetados[i]);
+            fora = (id > 0 && primeiras[id - 1] >= primeiras[id]) || (id + 1 < quantidade && primeiras[id] >= primeiras[id + 1]);
+        }
+        if (fora) renumerar(afetados, n);
+        ordem = null;
+        inicioGrupo = null;
+    }
+
+    private int primeiraDesde(int posicao) { // índice lógico da primeira ocorrência que começa em 'posicao' ou depois
+        int baixo = 0, alto = totalOcorrencias();
+        while (baixo < alto) {
+            int meio = (baixo + alto) >>> 1;
+            if (posicaoDe(meio < antes ? meio : meio + depois - antes) < posicao) baixo = meio + 1;
+            else alto = meio;
+        }
+        return baixo;
+    }
+
+    // Refaz os ids na ordem da primeira ocorrência: os símbolos afetados saem da sequência (os outros
+    // continuam em ordem), e os que ainda têm ocorrências voltam intercalados pela primeira ocorrência.
+    // Só os ids a partir do menor lugar mexido mudam.
+    private void renumerar(int[] afetados, int n) {
+        long[] voltam = new long[n]; // primeira ocorrência << 32 | índice em 'nomesVoltam'
+        int[] nomesVoltam = new int[n];
+        int[] contagensVoltam = new int[n];
+        int q = 0;
+        int menor = quantidade;
+        for (int i = 0; i < n; i++) {
+            int id = simboloDe(afetados[i]);
+            if (id < 0) continue; // nome repetido no delta
+            simboloDoLexema[afetados[i]] = 0;
+            if (contagens[id] > 0) {
+                voltam[q] = (long) primeiras[id] << 32 | q;
+                nomesVoltam[q] = afetados[i];
+                contagensVoltam[q] = contagens[id];
+                q++;
+            }
+            contagens[id] = -1; // marca: sai da sequência
+            menor = Math.min(menor, id);
+        }
+        int livre = menor;
+        for (int id = menor; id < quantidade; id++) {
+            if (contagens[id] < 0) continue;
+            contagens[livre] = contagens[id];
+            primeiras[livre] = primeiras[id];
+            lexemaDoSimbolo[livre] = lexemaDoSimbolo[id];
+            livre++;
+        }
+        Arrays.sort(voltam, 0, q);
+        int i = livre - 1, destino = livre + q - 1; // intercala de trás para frente, no próprio vetor
+        for (int j = q - 1; j >= 0; destino--) {
+            int primeira = (int) (voltam[j] >>> 32);
+            if (i >= 0 && primeiras[i] > primeira) {
+                contagens[destino] = contagens[i];
+                primeiras[destino] = primeiras[i];
+                lexemaDoSimbolo[destino] = lexemaDoSimbolo[i];
+                i--;
+            } else {
+                int k = (int) voltam[j--];
+                contagens[destino] = contagensVoltam[k];
+                primeiras[destino] = primeira;
+                lexemaDoSimbolo[destino] = nomesVoltam[k];
+            }
+        }
+        quantidade = livre + q;
+        for (int id = Math.min(menor, destino + 1); id < quantidade; id++) simboloDoLexema[lexemaDoSimbolo[id]] = id + 1;
+    }
+
+    // LACUNA DAS OCORRÊNCIAS
+    // Deixa as ocorrências [0, indice) antes da lacuna e o resto depois dela
+    private void moverLacuna(int indice) {
+        if (indice < antes) {
+            int n = antes - indice;
+            copiar(indice, depois - n, n, -desvioPosicao, -desvioLinhas);
+            antes -= n;
+            depois -= n;
+        } else if (indice > antes) {
+            int n = indice - antes;
+            copiar(depois, antes, n, desvioPosicao, desvioLinhas);
+            antes += n;
+            depois += n;
+        }
+    }
+
+    // Copia n ocorrências de uma ponta à outra da lacuna, trocando a referência de posição e linha.
+    // A primeira ocorrência de um símbolo que mudou de lugar vai junto; o laço anda no sentido da
+    // cópia para que um índice já corrigido não seja confundido com um dos que ainda vão andar.
+    private void copiar(int de, int para, int n, int desvioPosicao, int desvioLinha) {
+        System.arraycopy(nomes, de, nomes, para, n);
+        System.arraycopy(linhas, de, linhas, para, n);
+        System.arraycopy(colunas, de, colunas, para, n);
+        System.arraycopy(posicoes, de, posicoes, para, n);
+        for (int k = 0; k < n; k++) {
+            int i = para > de ? n - 1 - k : k;
+            posicoes[para + i] += desvioPosicao;
+            linhas[para + i] += desvioLinha;
+            int id = simboloDe(nomes[para + i]);
+            if (primeiras[id] == de + i) primeiras[id] = para + i;
+        }
+    }
+
+    private void crescer() { // Dobra os vetores, levando as ocorrências de depois da lacuna para o fim
+        int capacidade = Math.max(16, nomes.length * 2);
+        int n = nomes.length - depois;
+        int novoDepois = capacidade - n;
+        nomes = afastar(nomes, capacidade, n);
+        linhas = afastar(linhas, capacidade, n);
+        colunas = afastar(colunas, capacidade, n);
+        posicoes = afastar(posicoes, capacidade, n);
+        for (int id = 0; id < quantidade; id++) {
+            if (primeiras[id] >= depois) primeiras[id] += novoDepois - depois;
+        }
+        depois = novoDepois;
+    }
+
+    private int[] afastar(int[] vetor, int capacidade, int n) {
+        int[] novo = Arrays.copyOf(vetor, capacidade);
+        System.arraycopy(novo, depois, novo, capacidade - n, n);
+        return novo;
+    }
+
     //IMPRESSÃO NO CONSOLE
     public void print() {
-        System.out.println("\n=== Tabela de Símbolos ===");
-        System.out.printf("%-5s | %-20s | %s\n", "ID", "Lexema", "Posição (Linha, Coluna)");
-        System.out.println("--------------------------------------------");
-        int id = 1;
-        for (Token token : simbolos.values()) {
-            String pos = "Linha " + token.linha + ", Col " + token.coluna;
-            System.out.printf("%-5d | %-20s | %s\n", id++, token.lexema, pos);
+        StringBuilder texto = new StringBuilder(64 * (quantidade + 5));
+        try {
+            print(texto);
+        } catch (IOException e) { // StringBuilder não lança IOException
+            throw new UncheckedIOException(e);
+        }
+        System.out.print(texto);
+    }
+
+    // Mesmo texto de print(), escrito em 'destino' uma linha por vez (sem printf)
+    public void print(Appendable destino) throws IOException {
+        String fimLinha = System.lineSeparator(); // o que o println usava (as linhas do printf terminam em \n)
+        destino.append("\n=== Tabela de Símbolos ===").append(fimLinha);
+        destino.append("ID    | Lexema               | Posição (Linha, Coluna)\n");
+        destino.append("--------------------------------------------").append(fimLinha);
+        StringBuilder linha = new StringBuilder(64);
+        for (int id = 0; id < quantidade; id++) {
+            int primeira = primeiras[id];
+            linha.setLength(0);
+            Token.alinharEsquerda(linha.append(id + 1), 0, 5).append(" | ");
+            int antes = linha.length();
+            Token.alinharEsquerda(linha.append(lexema(id)), antes, 20).append(" | ");
+            linha.append("Linha ").append(linhaDe(primeira)).append(", Col ").append(colunas[primeira]).append('\n');
+            destino.append(linha);
         }
-        System.out.println("--------------------------------------------");
+        destino.append("--------------------------------------------").append(fimLinha);
     }
 
     // MÉTODO PARA GERAR LINHAS PARA O PDF
     public List<String> getLinhas() {
         List<String> linhas = new ArrayList<>();
-        int id = 1;
-        for (Token token : simbolos.values()) {
-            String pos = "Linha " + token.linha + ", Col " + token.coluna;
-            linhas.add(String.format("%-5d | %-20s | %s", id++, token.lexema, pos));
+        for (int id = 0; id < quantidade; id++) {
+            String pos = "Linha " + linhaDe(primeiras[id]) + ", Col " + colunas[primeiras[id]];
+            linhas.add(String.format("%-5d | %-20s | %s", id + 1, lexema(id), pos));
         }
         return linhas;
     }
 
     public List<List<String>> getLinhasParaPDF() {
         List<List<String>> linhas = new ArrayList<>();
-        int id = 1;
-        for (Token token : simbolos.values()) {
-            String pos = "Linha " + token.linha + ", Col " + token.coluna;
-            linhas.add(List.of(
-                String.valueOf(id++), // Coluna 1: ID
-                token.lexema,         // Coluna 2: Lexema
-                pos                  // Coluna 3: Posição
-            ));
-        }
+        linhasParaPDF().forEachRemaining(linhas::add);
         return linhas;
     }
-}
\ No newline at end of file
+
+    // Mesmas linhas de getLinhasParaPDF(), montadas uma de cada vez (sem guardar todas)
+    public Iterator<List<String>> linhasParaPDF() {
+        return new Iterator<List<String>>() {
+            private int id = 0;
+
+            @Override
+            public boolean hasNext() {
+                return id < quantidade;
+            }
+
+            @Override
+            public List<String> next() {
+                if (id >= quantidade) throw new NoSuchElementException();
+                int primeira = primeiras[id];
+                String pos = "Linha " + linhaDe(primeira) + ", Col " + colunas[primeira];
+                return List.of(
+                    String.valueOf(++id), // Coluna 1: ID
+                    lexema(id - 1),       // Coluna 2: Lexema
+                    pos                  // Coluna 3: Posição
+                );
+            }
+        };
+    }
+}
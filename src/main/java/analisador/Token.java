@@ -5,31 +5,118 @@ um nome de variável, um número ou um operador.
  Cada objeto Token armazena:
     - O seu 'tipo' (do nosso enum TokenType)
     - O 'lexema' (o texto original do código, ex: "minhaVariavel")
-    - A 'linha' e 'coluna' onde ele foi encontrado no arquivo.
+    - A 'linha' e 'coluna' do seu primeiro caractere no arquivo.
+    - A 'posicao' (índice do primeiro caractere no código-fonte), ou -1 quando
+      quem criou o token não a conhece.
+ A 'descricao' não é guardada: ela é montada só quando alguém a pede (descricao()).
+ Tokens de lexema fixo (palavras-chave, operadores, símbolos) usam descrições
+ pré-calculadas e compartilhadas, sem criar uma String nova por token.
+ A linha do console (toString) é montada por formatar(), com o preenchimento das
+ colunas feito à mão em vez de String.format.
  */
 
 package analisador;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import analisador.core.TokenType;
 
 public class Token {
     public final TokenType tipo;
     public final String lexema;
-    public final String descricao;
     public final int linha;
     public final int coluna;
+    public final int posicao;
+
+    public Token(TokenType tipo, String lexema, int linha, int coluna){
+        this(tipo, lexema, linha, coluna, -1);
+    }
 
-    public Token(TokenType tipo, String lexema, String descricao, int linha, int coluna){
+    public Token(TokenType tipo, String lexema, int linha, int coluna, int posicao){
         this.tipo = tipo;
         this.lexema = lexema;
-        this.descricao = descricao;
         this.linha =linha;
         this.coluna = coluna;
+        this.posicao = posicao;
+    }
+
+    public String descricao() {
+        switch (tipo) {
+            case IDENTIFICADOR: return "Identificador -> " + lexema;
+            case LITERAL_NUMERICO: return "Literal numérico -> " + lexema;
+            case LITERAL_STRING: return "Literal string -> \"" + lexema + "\"";
+            case LITERAL_CHAR: return "Literal de Char -> '" + lexema + "'";
+            default:
+                String fixa = DESCRICOES_FIXAS.get(lexema);
+                return fixa != null ? fixa : lexema;
+        }
     }
+
     @Override
     public String toString() {
-        return String.format("[Linha: %-3d, Col: %-3d] %-20s : %s",
-                            linha, coluna, lexema, descricao);
+        return formatar(new StringBuilder(64)).toString();
+    }
+
+    // Acrescenta a linha do console, igual a String.format("[Linha: %-3d, Col: %-3d] %-20s : %s", ...)
+    public StringBuilder formatar(StringBuilder destino) {
+        destino.append("[Linha: ");
+        int antes = destino.length();
+        alinharEsquerda(destino.append(linha), antes, 3);
+        destino.append(", Col: ");
+        antes = destino.length();
+        alinharEsquerda(destino.append(coluna), antes, 3);
+        destino.append("] ");
+        antes = destino.length();
+        alinharEsquerda(destino.append(lexema), antes, 20);
+        return destino.append(" : ").append(descricao());
+    }
+
+    // Completa com espaços o que foi escrito a partir de 'inicio' até ter pelo menos 'largura' caracteres
+    public static StringBuilder alinharEsquerda(StringBuilder destino, int inicio, int largura) {
+        for (int falta = largura - (destino.length() - inicio); falta > 0; falta--) destino.append(' ');
+        return destino;
+    }
+
+    // DESCRIÇÕES PRÉ-CALCULADAS (uma única String por lexema fixo)
+    private static final Map<String, String> DESCRICOES_FIXAS = new HashMap<>();
+
+    static {
+        for (String palavra : Lexer.PALAVRAS_CHAVE) DESCRICOES_FIXAS.put(palavra, "Palavra-chave -> " + palavra);
+
+        DESCRICOES_FIXAS.put("+", "Operador aritmético -> Mais ('+')");
+        DESCRICOES_FIXAS.put("-", "Operador aritmético -> Menos ('-')");
+        DESCRICOES_FIXAS.put("*", "Operador aritmético -> Multiplicação ('*')");
+        DESCRICOES_FIXAS.put("/", "Operador aritmético -> Divisão ('/')");
+
+        DESCRICOES_FIXAS.put("&&", "Operador lógico -> E lógico ('&&')");
+        DESCRICOES_FIXAS.put("||", "Operador lógico -> OU lógico ('||')");
+        DESCRICOES_FIXAS.put("!", "Operador lógico -> Negação ('!')");
+
+        DESCRICOES_FIXAS.put("&", "Operador bit a bit -> AND bit a bit ('&')");
+        DESCRICOES_FIXAS.put("|", "Operador bit a bit -> OR bit a bit ('|')");
+        DESCRICOES_FIXAS.put("^", "Operador bit a bit -> XOR bit a bit ('^')");
+        DESCRICOES_FIXAS.put("~", "Operador bit a bit -> NOT bit a bit ('~')");
+        DESCRICOES_FIXAS.put("<<", "Operador bit a bit -> Deslocamento à esquerda ('<<')");
+        DESCRICOES_FIXAS.put(">>", "Operador bit a bit -> Deslocamento à direita ('>>')");
+
+        DESCRICOES_FIXAS.put("=", "Atribuição -> '='");
+        for (String comparacao : TokenType.COMPARACAO.lexemasFixos)
+            DESCRICOES_FIXAS.put(comparacao, "Comparação -> '" + comparacao + "'");
+
+        DESCRICOES_FIXAS.put(";", "Símbolo especial -> Ponto e vírgula (';')");
+        DESCRICOES_FIXAS.put(",", "Símbolo especial -> Vírgula (',')");
+        DESCRICOES_FIXAS.put("(", "Símbolo especial -> Parêntese esquerdo ('(')");
+        DESCRICOES_FIXAS.put(")", "Símbolo especial -> Parêntese direito (')')");
+        DESCRICOES_FIXAS.put("{", "Símbolo especial -> Chave esquerda ('{')");
+        DESCRICOES_FIXAS.put("}", "Símbolo especial -> Chave direita ('}')");
+        DESCRICOES_FIXAS.put("[", "Símbolo especial -> Colchete esquerdo ('[')");
+        DESCRICOES_FIXAS.put("]", "Símbolo especial -> Colchete direito (']')");
+        DESCRICOES_FIXAS.put(".", "Símbolo especial -> Ponto ('.')");
+
+        DESCRICOES_FIXAS.put(Lexer.COMENTARIO_LINHA, "Comentário -> " + Lexer.COMENTARIO_LINHA);
+        DESCRICOES_FIXAS.put(Lexer.COMENTARIO_BLOCO, "Comentário -> " + Lexer.COMENTARIO_BLOCO);
+        DESCRICOES_FIXAS.put("EOF", "Fim do arquivo");
     }
 }
 
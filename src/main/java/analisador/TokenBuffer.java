@@ -0,0 +1,138 @@
+/*
+Esta classe guarda uma lista de tokens de forma compacta.
+Em vez de um objeto Token por token (com duas Strings, linha e coluna), ela usa
+vetores paralelos de tipos primitivos:
+    - 'tipos': o TokenType de cada token (ordinal, 1 byte)
+    - 'inicios' e 'comprimentos': o trecho do código-fonte que forma o token
+São cerca de 9 bytes por token, contra ~100 bytes de um Token com suas Strings.
+O lexema só é recortado do código-fonte quando alguém o pede (lexema(i)), e a linha
+e a coluna vêm do LineIndex do texto (busca binária pela posição do token).
+Para quem já trabalha com List<Token> (SymbolTable, Main), get(i) monta um
+Token leve sob demanda a partir desses vetores. Os erros léxicos da análise ficam
+em diagnosticos().
+*/
+
+package analisador;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+import analisador.core.TokenType;
+
+public class TokenBuffer extends AbstractList<Token> implements RandomAccess {
+    private static final TokenType[] TIPOS = TokenType.values();
+
+    private final String codigoFonte;
+    private final LineIndex indice;
+    private byte[] tipos;
+    private int[] inicios;
+    private int[] comprimentos;
+    private int quantidade = 0;
+    private final Diagnostics diagnosticos = new Diagnostics();
+
+    public TokenBuffer(String codigoFonte) { // Analisa todo o código-fonte guardando os tokens de forma compacta
+        this(codigoFonte, LineIndex.de(codigoFonte), Math.max(16, codigoFonte.length() / 8));
+        Lexer lexer = new Lexer(codigoFonte);
+        lexer.usarDiagnosticos(diagnosticos);
+        preencher(lexer);
+        aparar();
+    }
+
+    TokenBuffer(String codigoFonte, LineIndex indice, int capacidade) { // Buffer vazio, preenchido por quem o criou
+        this.codigoFonte = codigoFonte;
+        this.indice = indice;
+        this.tipos = new byte[capacidade];
+        this.inicios = new int[capacidade];
+        this.comprimentos = new int[capacidade];
+    }
+
+    void preencher(Lexer lexer) { // Acrescenta todos os tokens que o Lexer ainda vai produzir
+        while (lexer.avancar()) {
+            adicionar(lexer.tipoAtual(), lexer.inicioAtual(), lexer.fimAtual() - lexer.inicioAtual());
+        }
+    }
+
+    void adicionarTodos(TokenBuffer outro) { // Acrescenta os tokens de outro buffer (do mesmo código-fonte)
+        while (quantidade + outro.quantidade > tipos.length) crescer();
+        System.arraycopy(outro.tipos, 0, tipos, quantidade, outro.quantidade);
+        System.arraycopy(outro.inicios, 0, inicios, quantidade, outro.quantidade);
+        System.arraycopy(outro.comprimentos, 0, comprimentos, quantidade, outro.quantidade);
+        quantidade += outro.quantidade;
+    }
+
+    void adicionar(TokenType tipo, int inicio, int comprimento) {
+        if (quantidade == tipos.length) crescer();
+        tipos[quantidade] = (byte) tipo.ordinal();
+        inicios[quantidade] = inicio;
+        comprimentos[quantidade] = comprimento;
+        quantidade++;
+    }
+
+    private void crescer() {
+        redimensionar(Math.max(16, tipos.length * 2));
+    }
+
+    void aparar() { // Libera a sobra dos vetores depois que o buffer está completo
+        if (quantidade < tipos.length) redimensionar(quantidade);
+    }
+
+    private void redimensionar(int novaCapacidade) {
+        tipos = Arrays.copyOf(tipos, novaCapacidade);
+        inicios = Arrays.copyOf(inicios, novaCapacidade);
+        comprimentos = Arrays.copyOf(comprimentos, novaCapacidade);
+    }
+
+    public Diagnostics diagnosticos() { // erros léxicos encontrados ao preencher o buffer
+        return diagnosticos;
+    }
+
+    // ACESSO DIRETO (sem criar objetos)
+    public TokenType tipo(int i) { return TIPOS[tipos[i]]; }
+    public int inicio(int i) { return inicios[i]; }
+    public int comprimento(int i) { return comprimentos[i]; }
+    public int linha(int i) { return indice.linha(inicios[i]); }
+    public int coluna(int i) { return indice.coluna(inicios[i]); }
+
+    public LineIndex linhas() { // o índice das linhas do código-fonte
+        return indice;
+    }
+
+    public String lexema(int i) { // Recorta o lexema do código-fonte só agora
+        return recortar(tipo(i), codigoFonte, inicios[i], inicios[i] + comprimentos[i]);
+    }
+
+    // O lexema que o Lexer daria a um token de 'tipo' que ocupa [inicio, fim) do texto
+    static String recortar(TokenType tipo, CharSequence texto, int inicio, int fim) {
+        switch (tipo) {
+            case LITERAL_STRING: // sem as aspas (uma string não terminada não tem a de fechamento), cortada como no Lexer
+                int fimCorpo = stringTerminada(texto, inicio, fim) ? fim - 1 : fim;
+                return texto.subSequence(inicio + 1, Math.min(fimCorpo, inicio + 1 + Lexer.MAIOR_STRING)).toString();
+            case COMENTARIO:
+                return texto.charAt(inicio + 1) == '/' ? Lexer.COMENTARIO_LINHA : Lexer.COMENTARIO_BLOCO;
+            case EOF: return "EOF";
+            default: return texto.subSequence(inicio, fim).toString();
+        }
+    }
+
+    // A string em [inicio, fim) termina com aspas que não são as de abertura nem estão escapadas?
+    static boolean stringTerminada(CharSequence texto, int inicio, int fim) {
+        if (fim - inicio < 2 || texto.charAt(fim - 1) != '"') return false;
+        int barras = 0;
+        for (int i = fim - 2; i > inicio && texto.charAt(i) == '\\'; i--) barras++;
+        return barras % 2 == 0;
+    }
+
+    // VISÃO COMO List<Token>
+    @Override
+    public Token get(int i) {
+        if (i < 0 || i >= quantidade) throw new IndexOutOfBoundsException("Índice: " + i + ", tamanho: " + quantidade);
+        int linha = indice.linha(inicios[i]);
+        return new Token(tipo(i), lexema(i), linha, inicios[i] - indice.inicio(linha) + 1, inicios[i]);
+    }
+
+    @Override
+    public int size() {
+        return quantidade;
+    }
+}
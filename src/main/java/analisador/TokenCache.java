@@ -0,0 +1,668 @@
+/*
+Esta classe é um cache em disco dos resultados do Lexer, para não analisar de novo
+arquivos que não mudaram entre uma execução e outra.
+    - Cada entrada é um arquivo na pasta do cache, com o nome
+      <SHA-256 do conteúdo>-<versão do Lexer>.tok. A versão do Lexer é um resumo dos
+      .class do Lexer, do CharSource, do LexemePool, do Token, do TokenType e do
+      Diagnostics, com as classes aninhadas e anônimas de cada um (CharSource$MappedSource,
+      Lexer$1, ...), que o javac grava em arquivos separados: qualquer mudança neles
+      invalida o cache.
+    - A entrada é compacta: os lexemas distintos ficam uma vez só e cada token ocupa o
+      tipo (1 byte) e quatro varints (o lexema e as diferenças de posição, linha e coluna
+      para o token anterior), em geral 5 ou 6 bytes. A Tabela de Símbolos guarda só os
+      nomes: as ocorrências são os identificadores, refeitas a partir dos tokens. Os
+      diagnósticos (erros léxicos) são guardados e mostrados de novo quando a entrada é usada.
+    - Na leitura o arquivo é mapeado na memória; os tokens são decodificados direto do
+      mapeamento, na ordem, sem passar pelo Lexer. Antes de ser usada, a entrada é validada
+      (cabeçalho, versões, hash do conteúdo, tamanhos, CRC32C do corpo e uma passada pelos
+      tokens); uma entrada inválida é apagada e tratada como ausente.
+    - Cada uso atualiza a data de modificação da entrada. Quando o cache passa do
+      limite de tamanho, as entradas usadas há mais tempo são apagadas (LRU).
+Formato (big-endian):
+    Cabeçalho (TAMANHO_CABECALHO bytes): MAGICO ("TOKC"), VERSAO_FORMATO, hash do
+    conteúdo (32 bytes), versão do Lexer (8 bytes), tamanho do arquivo-fonte, quantidade
+    de textos (lexemas), de diagnósticos guardados, de tokens, de símbolos e de ocorrências,
+    bytes dos textos, o CRC32C do corpo, o limite de diagnósticos da análise e os bytes dos varints.
+    Corpo: início de cada texto (int[textos + 1]) e os textos em UTF-8; tipos (byte[tokens]);
+    de cada token, em varints (7 bits por byte): o lexema e as diferenças de posição, linha
+    e coluna para o token anterior (em zigzag); o texto de cada símbolo (int[símbolos]);
+    o total de diagnósticos de cada código (int[CODIGOS]); código, linha, coluna, posição e
+    caractere de cada diagnóstico guardado (int[diagnósticos] cada).
+    Cada bloco começa em um múltiplo de 4 bytes.
+Várias threads podem usar o mesmo TokenCache; as entradas são gravadas em um arquivo
+temporário e só então renomeadas, então um leitor nunca vê uma entrada pela metade.
+*/
+
+package analisador;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32C;
+
+import analisador.core.TokenType;
+
+public final class TokenCache {
+    public static final long LIMITE_PADRAO = 512L * 1024 * 1024; // bytes
+    static final int VERSAO_FORMATO = 3;
+    static final String EXTENSAO = ".tok";
+    private static final int MAGICO = 0x544F4B43; // "TOKC"
+    private static final int TAMANHO_CABECALHO = 96;
+    private static final int POSICAO_CRC = 80;
+    private static final int MAIOR_ENTRADA = Integer.MAX_VALUE - 8; // um único mapeamento (e um único byte[])
+    private static final TokenType[] TIPOS = TokenType.values();
+    private static final Diagnostics.Codigo[] CODIGOS = Diagnostics.Codigo.values();
+    static final long VERSAO_LEXER = versaoLexer();
+
+    private final Path pasta;
+    private final long limite;
+    private final AtomicLong tamanho = new AtomicLong(); // soma das entradas (aproximada entre despejos)
+
+    public TokenCache(Path pasta, long limite) throws IOException {
+        if (limite <= 0) throw new IllegalArgumentException("Limite do cache deve ser positivo: " + limite);
+        this.pasta = Files.createDirectories(pasta);
+        this.limite = limite;
+        tamanho.set(entradas().stream().mapToLong(e -> e.tamanho).sum());
+    }
+
+    // Entrada do cache para o conteúdo atual do arquivo (calcula o SHA-256 do arquivo)
+    public Entrada entrada(Path arquivo) throws IOException {
+        MessageDigest sha = sha256();
+        long tamanhoFonte;
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+            tamanhoFonte = canal.size();
+            for (long desde = 0; desde < tamanhoFonte; desde += Integer.MAX_VALUE) {
+                sha.update(canal.map(FileChannel.MapMode.READ_ONLY, desde, Math.min(Integer.MAX_VALUE, tamanhoFonte - desde)));
+            }
+        }
+        byte[] hash = sha.digest();
+        String nome = HexFormat.of().formatHex(hash) + "-" + Long.toHexString(VERSAO_LEXER) + EXTENSAO;
+        return new Entrada(pasta.resolve(nome), hash, tamanhoFonte);
+    }
+
+    public final class Entrada {
+        private final Path caminho;
+        private final byte[] hash;
+        private final long tamanhoFonte;
+
+        private Entrada(Path caminho, byte[] hash, long tamanhoFonte) {
+            this.caminho = caminho;
+            this.hash = hash;
+            this.tamanhoFonte = tamanhoFonte;
+        }
+
+        // O resultado guardado, ou null se a entrada não existe ou não é válida
+        public Resultado ler() throws IOException {
+            MappedByteBuffer dados;
+            try (FileChannel canal = FileChannel.open(caminho, StandardOpenOption.READ)) {
+                long bytes = canal.size();
+                if (bytes < TAMANHO_CABECALHO || bytes > Integer.MAX_VALUE) return descartar();
+                dados = canal.map(FileChannel.MapMode.READ_ONLY, 0, bytes);
+            } catch (NoSuchFileException e) {
+                return null;
+            } // O mapeamento continua válido depois que o canal é fechado
+            Resultado resultado = Resultado.validar(dados, hash, tamanhoFonte);
+            if (resultado == null) return descartar();
+            try {
+                Files.setLastModifiedTime(caminho, FileTime.fromMillis(System.currentTimeMillis())); // usada agora (LRU)
+            } catch (IOException e) {
+                // outra thread pode ter despejado a entrada; o mapeamento continua valendo
+            }
+            return resultado;
+        }
+
+        // Grava os tokens de uma análise nova desta entrada
+        public Gravacao gravacao() {
+            return new Gravacao(this);
+        }
+
+        private Resultado descartar() throws IOException {
+            long bytes = tamanhoDe(caminho);
+            if (Files.deleteIfExists(caminho)) tamanho.addAndGet(-bytes);
+            return null;
+        }
+    }
+
+    // TOKENS GUARDADOS (lidos do arquivo mapeado)
+    public static final class Resultado {
+        private final String[] textos; // lexemas
+        private final int quantidadeTokens;
+        private final ByteBuffer tipos;
+        private final ByteBuffer varints; // lexema e diferenças de posição, linha e coluna de cada token (Leitura)
+        private final IntBuffer nomesSimbolos;
+        private final int[] simboloDoTexto; // -1 se o texto não é nome de símbolo
+        private final int quantidadeSimbolos;
+        private final int quantidadeOcorrencias;
+        private final IntBuffer totaisDiagnosticos; // por código
+        private final IntBuffer diagnosticos; // código, linha, coluna, posição e caractere (um bloco depois do outro)
+        private final int quantidadeDiagnosticos;
+        private final int limiteDiagnosticos;
+
+        private Resultado(ByteBuffer dados, int quantidadeTextos, int quantidadeDiagnosticos, int quantidadeTokens,
+                int quantidadeSimbolos, int quantidadeOcorrencias, int bytesTextos, int bytesVarints, int limiteDiagnosticos) {
+            this.quantidadeDiagnosticos = quantidadeDiagnosticos;
+            this.limiteDiagnosticos = limiteDiagnosticos;
+            this.quantidadeTokens = quantidadeTokens;
+            this.quantidadeSimbolos = quantidadeSimbolos;
+            this.quantidadeOcorrencias = quantidadeOcorrencias;
+
+            int posicao = TAMANHO_CABECALHO;
+            int[] inicios = new int[quantidadeTextos + 1];
+            dados.slice(posicao, inicios.length * 4).asIntBuffer().get(inicios);
+            posicao += inicios.length * 4;
+            byte[] utf8 = new byte[bytesTextos];
+            dados.get(posicao, utf8);
+            posicao += alinhar(bytesTextos);
+            textos = new String[quantidadeTextos];
+            for (int i = 0; i < quantidadeTextos; i++) {
+                textos[i] = new String(utf8, inicios[i], inicios[i + 1] - inicios[i], StandardCharsets.UTF_8);
+            }
+
+            tipos = dados.slice(posicao, quantidadeTokens);
+            posicao += alinhar(quantidadeTokens);
+            varints = dados.slice(posicao, bytesVarints);
+            posicao += alinhar(bytesVarints);
+            nomesSimbolos = dados.slice(posicao, quantidadeSimbolos * 4).asIntBuffer();
+            posicao += quantidadeSimbolos * 4;
+            totaisDiagnosticos = dados.slice(posicao, CODIGOS.length * 4).asIntBuffer();
+            posicao += CODIGOS.length * 4;
+            diagnosticos = dados.slice(posicao, quantidadeDiagnosticos * 20).asIntBuffer();
+
+            simboloDoTexto = new int[quantidadeTextos];
+            Arrays.fill(simboloDoTexto, -1);
+            for (int id = 0; id < quantidadeSimbolos; id++) {
+                int texto = nomesSimbolos.get(id);
+                if (simboloDoTexto[texto] >= 0) throw new IllegalArgumentException("Símbolo repetido: " + texto);
+                simboloDoTexto[texto] = id;
+            }
+        }
+
+        // Confere o cabeçalho, os tamanhos e o CRC; devolve null se algo não bate
+        static Resultado validar(ByteBuffer dados, byte[] hash, long tamanhoFonte) {
+            if (dados.getInt(0) != MAGICO || dados.getInt(4) != VERSAO_FORMATO) return null;
+            byte[] hashGuardado = new byte[32];
+            dados.get(8, hashGuardado);
+            if (!Arrays.equals(hashGuardado, hash) || dados.getLong(40) != VERSAO_LEXER
+                    || dados.getLong(48) != tamanhoFonte) return null;
+            int textos = dados.getInt(56), diagnosticos = dados.getInt(60), tokens = dados.getInt(64),
+                    simbolos = dados.getInt(68), ocorrencias = dados.getInt(72), bytesTextos = dados.getInt(76),
+                    limiteDiagnosticos = dados.getInt(84), bytesVarints = dados.getInt(88);
+            if (textos < 0 || diagnosticos < 0 || diagnosticos > limiteDiagnosticos || tokens < 0 || simbolos < 0
+                    || ocorrencias < 0 || bytesTextos < 0 || bytesVarints < 0) return null;
+            if (tamanhoEsperado(textos, bytesTextos, tokens, bytesVarints, simbolos, diagnosticos) != dados.capacity()) return null;
+            CRC32C crc = new CRC32C();
+            crc.update(dados.slice(TAMANHO_CABECALHO, dados.capacity() - TAMANHO_CABECALHO));
+            if ((int) crc.getValue() != dados.getInt(POSICAO_CRC)) return null;
+
+            try {
+                Resultado resultado = new Resultado(dados, textos, diagnosticos, tokens, simbolos, ocorrencias, bytesTextos,
+                        bytesVarints, limiteDiagnosticos);
+                return resultado.consistente() ? resultado : null;
+            } catch (IndexOutOfBoundsException | IllegalArgumentException e) { // texto, símbolo ou varint fora do lugar
+                return null;
+            }
+        }
+
+        // Índices dentro dos limites e varints que terminam junto com o bloco (o CRC não protege contra
+        // um gravador com defeito)
+        private boolean consistente() {
+            Leitura leitura = new Leitura(varints);
+            int identificadores = 0;
+            for (int i = 0; i < quantidadeTokens; i++) {
+                leitura.proximo();
+                int tipo = tipos.get(i) & 0xFF;
+                if (tipo >= TIPOS.length || leitura.lexema >= textos.length) return false;
+                if (tipo == TokenType.IDENTIFICADOR.ordinal()) {
+                    if (simboloDoTexto[leitura.lexema] < 0) return false;
+                    identificadores++;
+                }
+            }
+            if (!leitura.noFim() || identificadores != quantidadeOcorrencias) return false;
+            int[] guardadosPorCodigo = new int[CODIGOS.length];
+            for (int k = 0; k < quantidadeDiagnosticos; k++) {
+                int codigo = diagnosticos.get(k);
+                if (codigo < 0 || codigo >= CODIGOS.length) return false;
+                guardadosPorCodigo[codigo]++;
+            }
+            for (int c = 0; c < CODIGOS.length; c++) {
+                if (totaisDiagnosticos.get(c) < guardadosPorCodigo[c]) return false;
+            }
+            return true;
+        }
+
+        public int size() {
+            return quantidadeTokens;
+        }
+
+        // Os tokens (inclusive o EOF), decodificados na ordem, só quando lidos
+        public Iterable<Token> tokens() {
+            return () -> new Iterator<Token>() {
+                private final Leitura leitura = new Leitura(varints);
+                private int i = 0;
+
+                @Override
+                public boolean hasNext() {
+                    return i < quantidadeTokens;
+                }
+
+                @Override
+                public Token next() {
+                    if (i >= quantidadeTokens) throw new NoSuchElementException();
+                    leitura.proximo();
+                    return new Token(TIPOS[tipos.get(i++)], textos[leitura.lexema], leitura.linha, leitura.coluna,
+                            leitura.posicao);
+                }
+            };
+        }
+
+        // Erros léxicos da análise que gerou a entrada (os guardados e os totais por código, com o mesmo limite)
+        public Diagnostics diagnosticos() {
+            Diagnostics resultado = new Diagnostics(limiteDiagnosticos);
+            int n = quantidadeDiagnosticos;
+            int[] guardadosPorCodigo = new int[CODIGOS.length];
+            for (int k = 0; k < n; k++) {
+                int codigo = diagnosticos.get(k);
+                guardadosPorCodigo[codigo]++;
+                resultado.reportar(CODIGOS[codigo], diagnosticos.get(n + k), diagnosticos.get(2 * n + k),
+                        diagnosticos.get(3 * n + k), diagnosticos.get(4 * n + k));
+            }
+            for (int c = 0; c < CODIGOS.length; c++) {
+                resultado.contarNaoGuardados(CODIGOS[c], totaisDiagnosticos.get(c) - guardadosPorCodigo[c]);
+            }
+            return resultado;
+        }
+
+        // Tabela de Símbolos guardada (uma nova a cada chamada), sem procurar os nomes de novo: as ocorrências
+        // são os identificadores, na ordem dos tokens
+        public SymbolTable tabela() {
+            String[] nomes = new String[quantidadeSimbolos];
+            for (int id = 0; id < quantidadeSimbolos; id++) nomes[id] = textos[nomesSimbolos.get(id)];
+            int n = quantidadeOcorrencias;
+            int[] simbolos = new int[n], linhasOcorrencias = new int[n], colunasOcorrencias = new int[n], posicoesOcorrencias = new int[n];
+            Leitura leitura = new Leitura(varints);
+            for (int i = 0, k = 0; i < quantidadeTokens; i++) {
+                leitura.proximo();
+                if (tipos.get(i) != TokenType.IDENTIFICADOR.ordinal()) continue;
+                simbolos[k] = simboloDoTexto[leitura.lexema];
+                linhasOcorrencias[k] = leitura.linha;
+                colunasOcorrencias[k] = leitura.coluna;
+                posicoesOcorrencias[k++] = leitura.posicao;
+            }
+            return SymbolTable.carregar(nomes, simbolos, linhasOcorrencias, colunasOcorrencias, posicoesOcorrencias);
+        }
+    }
+
+    // Decodifica os varints dos tokens, um token de cada vez, na ordem em que foram gravados
+    private static final class Leitura {
+        private final ByteBuffer varints;
+        private int proximoByte = 0;
+        int lexema, posicao, linha, coluna; // do último token lido
+
+        Leitura(ByteBuffer varints) {
+            this.varints = varints;
+        }
+
+        void proximo() {
+            lexema = varint();
+            posicao += zigzag(varint());
+            linha += zigzag(varint());
+            coluna += zigzag(varint());
+        }
+
+        boolean noFim() {
+            return proximoByte == varints.capacity();
+        }
+
+        private int varint() { // IndexOutOfBoundsException se passar do fim do bloco
+            int valor = 0;
+            for (int deslocamento = 0; ; deslocamento += 7) {
+                byte b = varints.get(proximoByte++);
+                valor |= (b & 0x7F) << deslocamento;
+                if (b >= 0) return valor;
+                if (deslocamento == 28) throw new IllegalArgumentException("Varint longo demais");
+            }
+        }
+
+        private static int zigzag(int valor) {
+            return (valor >>> 1) ^ -(valor & 1);
+        }
+    }
+
+    // GRAVAÇÃO DE UMA ENTRADA NOVA (uma thread por gravação)
+    public final class Gravacao {
+        private final Entrada entrada;
+        private final LexemePool textos = new LexemePool();
+        private byte[] tipos = new byte[1024];
+        private byte[] varints = new byte[4096]; // já no formato da entrada
+        private int quantidade = 0;
+        private int bytesVarints = 0;
+        private int ultimaPosicao = 0, ultimaLinha = 0, ultimaColuna = 0;
+        private boolean grandeDemais = false; // não cabe em uma entrada: nada mais é guardado
+        // Símbolo de cada texto (-1 se ainda não é um símbolo), na ordem em que os identificadores aparecem
+        private int[] simboloDoTexto = new int[256];
+        private int[] nomesSimbolos = new int[256];
+        private int quantidadeSimbolos = 0;
+        private int identificadores = 0;
+
+        private Gravacao(Entrada entrada) {
+            this.entrada = entrada;
+            Arrays.fill(simboloDoTexto, -1);
+        }
+
+        public void add(Token token) {
+            if (grandeDemais) return;
+            if (quantidade == tipos.length || bytesVarints + 20 > varints.length) { // 20: quatro varints de 5 bytes
+                if (!crescer()) return;
+            }
+            int texto = textos.intern(token.lexema);
+            tipos[quantidade++] = (byte) token.tipo.ordinal();
+            varint(texto);
+            varint(zigzag(token.posicao - ultimaPosicao));
+            varint(zigzag(token.linha - ultimaLinha));
+            varint(zigzag(token.coluna - ultimaColuna));
+            ultimaPosicao = token.posicao;
+            ultimaLinha = token.linha;
+            ultimaColuna = token.coluna;
+            if (token.tipo == TokenType.IDENTIFICADOR) { // mesma numeração da SymbolTable: ordem da primeira ocorrência
+                identificadores++;
+                if (texto >= simboloDoTexto.length) {
+                    int antigo = simboloDoTexto.length;
+                    simboloDoTexto = Arrays.copyOf(simboloDoTexto, Math.max(antigo * 2, texto + 1));
+                    Arrays.fill(simboloDoTexto, antigo, simboloDoTexto.length, -1);
+                }
+                if (simboloDoTexto[texto] < 0) {
+                    if (quantidadeSimbolos == nomesSimbolos.length) nomesSimbolos = Arrays.copyOf(nomesSimbolos, quantidadeSimbolos * 2);
+                    nomesSimbolos[quantidadeSimbolos] = texto;
+                    simboloDoTexto[texto] = quantidadeSimbolos++;
+                }
+            }
+        }
+
+        private boolean crescer() { // false (e a gravação é abandonada) se a entrada passaria de MAIOR_ENTRADA
+            if ((long) quantidade + bytesVarints + 20 > MAIOR_ENTRADA - TAMANHO_CABECALHO) {
+                grandeDemais = true;
+                tipos = null;
+                varints = null;
+                return false;
+            }
+            if (quantidade == tipos.length) tipos = Arrays.copyOf(tipos, (int) Math.min(2L * tipos.length, MAIOR_ENTRADA));
+            if (bytesVarints + 20 > varints.length) varints = Arrays.copyOf(varints, (int) Math.min(2L * varints.length, MAIOR_ENTRADA));
+            return true;
+        }
+
+        private void varint(int valor) {
+            while ((valor & ~0x7F) != 0) {
+                varints[bytesVarints++] = (byte) ((valor & 0x7F) | 0x80);
+                valor >>>= 7;
+            }
+            varints[bytesVarints++] = (byte) valor;
+        }
+
+        private int zigzag(int valor) {
+            return (valor << 1) ^ (valor >> 31);
+        }
+
+        // Grava a entrada, com os diagnósticos da mesma análise (em um temporário renomeado no fim), e despeja as
+        // antigas se o cache passou do limite. Devolve false, sem gravar nada, se a entrada não caberia em um
+        // único mapeamento (2 GB); quem chamou decide como avisar.
+        public boolean concluir(Diagnostics diagnosticos) throws IOException {
+            if (grandeDemais) return false;
+            int quantidadeTextos = textos.size();
+            byte[][] utf8 = new byte[quantidadeTextos][];
+            long bytesTextos = 0;
+            for (int i = 0; i < quantidadeTextos; i++) {
+                utf8[i] = textos.nome(i).getBytes(StandardCharsets.UTF_8);
+                bytesTextos += utf8[i].length;
+            }
+            List<Diagnostics.Diagnostico> guardados = diagnosticos.lista();
+            long total = tamanhoEsperado(quantidadeTextos, bytesTextos, quantidade, bytesVarints, quantidadeSimbolos,
+                    guardados.size());
+            if (total > MAIOR_ENTRADA) return false;
+
+            Path temporario = Files.createTempFile(pasta, "gravando-", ".tmp");
+            try {
+                try (FileChannel canal = FileChannel.open(temporario, StandardOpenOption.WRITE)) {
+                    Escrita escrita = new Escrita(canal, TAMANHO_CABECALHO);
+                    int inicio = 0;
+                    escrita.inteiro(0);
+                    for (byte[] texto : utf8) escrita.inteiro(inicio += texto.length);
+                    for (byte[] texto : utf8) escrita.bytes(texto, texto.length);
+                    escrita.alinhar();
+                    escrita.bytes(tipos, quantidade);
+                    escrita.alinhar();
+                    escrita.bytes(varints, bytesVarints);
+                    escrita.alinhar();
+                    escrita.inteiros(nomesSimbolos, quantidadeSimbolos);
+                    escreverDiagnosticos(escrita, diagnosticos);
+                    escrita.terminar();
+
+                    ByteBuffer cabecalho = ByteBuffer.allocate(TAMANHO_CABECALHO);
+                    cabecalho.putInt(MAGICO).putInt(VERSAO_FORMATO).put(entrada.hash).putLong(VERSAO_LEXER)
+                            .putLong(entrada.tamanhoFonte).putInt(quantidadeTextos).putInt(guardados.size())
+                            .putInt(quantidade).putInt(quantidadeSimbolos).putInt(identificadores)
+                            .putInt((int) bytesTextos).putInt(escrita.crc()).putInt(diagnosticos.limite())
+                            .putInt(bytesVarints);
+                    cabecalho.clear();
+                    while (cabecalho.hasRemaining()) canal.write(cabecalho, cabecalho.position());
+                }
+                mover(temporario, entrada.caminho);
+            } finally {
+                Files.deleteIfExists(temporario);
+            }
+            if (tamanho.addAndGet(total) > limite) despejar();
+            return true;
+        }
+
+        // Totais por código e, dos diagnósticos guardados: código, linha, coluna, posição e caractere (um bloco de cada)
+        private void escreverDiagnosticos(Escrita escrita, Diagnostics diagnosticos) throws IOException {
+            for (Diagnostics.Codigo codigo : CODIGOS) escrita.inteiro(diagnosticos.total(codigo));
+            List<Diagnostics.Diagnostico> guardados = diagnosticos.lista();
+            for (Diagnostics.Diagnostico d : guardados) escrita.inteiro(d.codigo.ordinal());
+            for (Diagnostics.Diagnostico d : guardados) escrita.inteiro(d.linha);
+            for (Diagnostics.Diagnostico d : guardados) escrita.inteiro(d.coluna);
+            for (Diagnostics.Diagnostico d : guardados) escrita.inteiro(d.posicao);
+            for (Diagnostics.Diagnostico d : guardados) escrita.inteiro(d.caractere);
+        }
+    }
+
+    // Escreve o corpo de uma entrada em blocos de 64 KB, calculando o CRC32C
+    private static final class Escrita {
+        private final FileChannel canal;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024);
+        private final CRC32C crc = new CRC32C();
+        private long posicao;
+        private long escritos = 0;
+
+        Escrita(FileChannel canal, long posicao) {
+            this.canal = canal;
+            this.posicao = posicao;
+        }
+
+        void inteiro(int valor) throws IOException {
+            if (buffer.remaining() < 4) descarregar();
+            buffer.putInt(valor);
+            escritos += 4;
+        }
+
+        void inteiros(int[] valores, int quantidade) throws IOException {
+            for (int i = 0; i < quantidade; ) {
+                if (buffer.remaining() < 4) descarregar();
+                int n = Math.min(quantidade - i, buffer.remaining() / 4);
+                buffer.asIntBuffer().put(valores, i, n);
+                buffer.position(buffer.position() + n * 4);
+                i += n;
+            }
+            escritos += 4L * quantidade;
+        }
+
+        void bytes(byte[] valores, int quantidade) throws IOException {
+            for (int i = 0; i < quantidade; ) {
+                if (!buffer.hasRemaining()) descarregar();
+                int n = Math.min(quantidade - i, buffer.remaining());
+                buffer.put(valores, i, n);
+                i += n;
+            }
+            escritos += quantidade;
+        }
+
+        void alinhar() throws IOException { // completa com zeros até um múltiplo de 4
+            while (escritos % 4 != 0) {
+                if (!buffer.hasRemaining()) descarregar();
+                buffer.put((byte) 0);
+                escritos++;
+            }
+        }
+
+        void terminar() throws IOException {
+            descarregar();
+        }
+
+        int crc() {
+            return (int) crc.getValue();
+        }
+
+        private void descarregar() throws IOException {
+            buffer.flip();
+            crc.update(buffer.duplicate());
+            while (buffer.hasRemaining()) posicao += canal.write(buffer, posicao);
+            buffer.clear();
+        }
+    }
+
+    // DESPEJO (LRU pela data de modificação, atualizada a cada uso)
+    private synchronized void despejar() throws IOException {
+        List<Arquivo> todas = entradas();
+        long total = todas.stream().mapToLong(e -> e.tamanho).sum();
+        todas.sort(Comparator.comparing((Arquivo e) -> e.usado));
+        for (Arquivo antiga : todas) {
+            if (total <= limite) break;
+            try {
+                if (Files.deleteIfExists(antiga.caminho)) total -= antiga.tamanho;
+            } catch (IOException e) {
+                // em uso (ex.: mapeada no Windows): fica para o próximo despejo
+            }
+        }
+        tamanho.set(total);
+    }
+
+    private static final class Arquivo {
+        final Path caminho;
+        final long tamanho;
+        final FileTime usado;
+
+        Arquivo(Path caminho, long tamanho, FileTime usado) {
+            this.caminho = caminho;
+            this.tamanho = tamanho;
+            this.usado = usado;
+        }
+    }
+
+    private List<Arquivo> entradas() throws IOException {
+        List<Arquivo> todas = new ArrayList<>();
+        try (DirectoryStream<Path> arquivos = Files.newDirectoryStream(pasta, "*" + EXTENSAO)) {
+            for (Path caminho : arquivos) {
+                try {
+                    BasicFileAttributes atributos = Files.readAttributes(caminho, BasicFileAttributes.class);
+                    todas.add(new Arquivo(caminho, atributos.size(), atributos.lastModifiedTime()));
+                } catch (NoSuchFileException e) {
+                    // despejada por outra thread enquanto a pasta era listada
+                }
+            }
+        }
+        return todas;
+    }
+
+    // AUXILIARES
+    private static long tamanhoEsperado(int textos, long bytesTextos, int tokens, int bytesVarints, int simbolos,
+            int diagnosticos) {
+        return TAMANHO_CABECALHO + 4L * (textos + 1) + alinhar(bytesTextos) + alinhar(tokens) + alinhar(bytesVarints)
+                + 4L * simbolos + 4L * CODIGOS.length + 20L * diagnosticos;
+    }
+
+    private static long alinhar(long bytes) {
+        return (bytes + 3) & ~3L;
+    }
+
+    private static long tamanhoDe(Path caminho) {
+        try {
+            return Files.size(caminho);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static void mover(Path de, Path para) throws IOException {
+        try {
+            Files.move(de, para, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(de, para, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // toda JVM tem SHA-256
+        }
+    }
+
+    // Resumo dos .class que decidem quais tokens saem de um código-fonte. Cada classe aninhada ou
+    // anônima é um .class à parte (CharSource$MappedSource, Lexer$1): entram todas, senão uma mudança
+    // só nelas deixaria as entradas antigas valendo.
+    private static long versaoLexer() {
+        MessageDigest sha = sha256();
+        for (Class<?> classe : List.of(Lexer.class, CharSource.class, LexemePool.class, Token.class, TokenType.class,
+                Diagnostics.class)) {
+            resumir(sha, classe);
+        }
+        sha.update((byte) VERSAO_FORMATO);
+        return ByteBuffer.wrap(sha.digest()).getLong();
+    }
+
+    private static void resumir(MessageDigest sha, Class<?> classe) {
+        sha.update(classe.getName().getBytes(StandardCharsets.UTF_8));
+        resumirArquivo(sha, classe, classe.getName());
+        Class<?>[] aninhadas = classe.getDeclaredClasses();
+        Arrays.sort(aninhadas, Comparator.comparing(Class::getName)); // a ordem do getDeclaredClasses() não é garantida
+        for (Class<?> aninhada : aninhadas) resumir(sha, aninhada);
+        for (int n = 1; resumirArquivo(sha, classe, classe.getName() + "$" + n); n++) { // anônimas: Classe$1, Classe$2, ...
+        }
+    }
+
+    private static boolean resumirArquivo(MessageDigest sha, Class<?> vizinha, String nome) { // false se o .class não existe
+        String recurso = nome.substring(nome.lastIndexOf('.') + 1) + ".class";
+        try (InputStream bytes = vizinha.getResourceAsStream(recurso)) {
+            if (bytes == null) return false;
+            sha.update(recurso.getBytes(StandardCharsets.UTF_8));
+            sha.update(bytes.readAllBytes());
+            return true;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
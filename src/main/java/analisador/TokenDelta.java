@@ -0,0 +1,38 @@
+/*
+Esta classe descreve o que mudou na lista de tokens depois de uma edição
+feita pelo IncrementalLexer.
+A partir do token de número 'indice', os tokens em 'removidos' (com as posições
+do texto antigo) foram trocados pelos tokens em 'inseridos' (com as posições do
+texto novo). Os tokens seguintes continuam os mesmos, só que com a linha
+deslocada em 'deslocamentoLinhas' (e a posição no texto em 'deslocamento').
+*/
+
+package analisador;
+
+import java.util.List;
+
+public class TokenDelta {
+    public final int indice;
+    public final List<Token> removidos;
+    public final List<Token> inseridos;
+    public final int deslocamento;
+    public final int deslocamentoLinhas;
+
+    TokenDelta(int indice, List<Token> removidos, List<Token> inseridos, int deslocamento, int deslocamentoLinhas) {
+        this.indice = indice;
+        this.removidos = removidos;
+        this.inseridos = inseridos;
+        this.deslocamento = deslocamento;
+        this.deslocamentoLinhas = deslocamentoLinhas;
+    }
+
+    public boolean vazio() { // a edição não mudou nenhum token (ex.: texto digitado dentro de um comentário)
+        return removidos.isEmpty() && inseridos.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "Delta[indice=" + indice + ", -" + removidos.size() + " +" + inseridos.size()
+                + ", linhas " + (deslocamentoLinhas >= 0 ? "+" : "") + deslocamentoLinhas + "]";
+    }
+}
@@ -4,9 +4,13 @@ os tipos de tokens que o nosso Analisador Léxico pode reconhecer.
 Cada item aqui é um "tipo" de etiqueta que podemos colocar em um pedaço
 do código-fonte. Por exemplo, "int" será etiquetado como INT, 
 "minhaVariavel" como IDENTIFIER, e "+" como MAIS.
+Os tipos de lexema fixo (operadores e símbolos) trazem junto a lista dos
+seus lexemas; o Lexer monta a sua tabela de transições a partir dela.
  */
 package analisador.core;
 
+import java.util.List;
+
 public enum TokenType {
 
     PALAVRA_CHAVE, 
@@ -17,16 +21,22 @@ public enum TokenType {
     LITERAL_STRING,
     LITERAL_CHAR,
 
-    ATRIBUICAO,          // =
-    COMPARACAO,          // ==, !=, <, <=, >, >=
-    OPERADOR_ARITMETICO, // +, -, *, /
-    OPERADOR_LOGICO,     // &&, ||
-    OPERADOR_BIT_A_BIT,   // &, |, ^, ~, <<, >>
+    ATRIBUICAO("="),
+    COMPARACAO("==", "!=", "<", "<=", ">", ">="),
+    OPERADOR_ARITMETICO("+", "-", "*", "/"),
+    OPERADOR_LOGICO("&&", "||", "!"),
+    OPERADOR_BIT_A_BIT("&", "|", "^", "~", "<<", ">>"),
 
 
-    SIMBOLO_ESPECIAL,  // ; , ( ) { } [ ]
+    SIMBOLO_ESPECIAL(";", ",", "(", ")", "{", "}", "[", "]", "."),
 
     COMENTARIO,
 
-    EOF  // Fim do arquivo
+    EOF; // Fim do arquivo
+
+    public final List<String> lexemasFixos;
+
+    TokenType(String... lexemasFixos) {
+        this.lexemasFixos = List.of(lexemasFixos);
+    }
 }
@@ -0,0 +1,117 @@
+/*
+Esta classe lê os tokens gravados pelo BinaryTokenSink (o formato está descrito lá).
+Funciona como o Lexer.nextToken(): ler() devolve um token por vez e null no fim do
+arquivo, então os tokens podem ser consumidos sem carregar o arquivo inteiro.
+Os diagnósticos gravados (versão 2) são pulados por ler() e ficam em diagnosticos();
+arquivos da versão 1 (sem diagnósticos) continuam legíveis.
+Um arquivo cortado no meio de um token ou com cabeçalho inválido gera IOException.
+*/
+
+package analisador.saida;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import analisador.Diagnostics;
+import analisador.Token;
+import analisador.core.TokenType;
+
+public class BinaryTokenReader implements Closeable {
+    private final InputStream entrada;
+    private final TokenType[] tipos; // índice gravado no arquivo -> tipo
+    private byte[] lexema = new byte[256];
+    private int linhaAnterior = 0;
+    private final List<Diagnostics.Diagnostico> diagnosticos = new ArrayList<>();
+
+    public BinaryTokenReader(InputStream entrada) throws IOException {
+        this.entrada = new BufferedInputStream(entrada, 64 * 1024);
+        for (byte esperado : BinaryTokenSink.MAGICO) {
+            if (this.entrada.read() != esperado) throw new IOException("Não é um arquivo de tokens binário");
+        }
+        int versao = lerByte();
+        if (versao < 1 || versao > BinaryTokenSink.VERSAO) throw new IOException("Versão de arquivo de tokens não suportada: " + versao);
+        tipos = new TokenType[lerVarint()];
+        for (int i = 0; i < tipos.length; i++) {
+            int comprimento = lerVarint();
+            String nome = new String(lerBytes(comprimento), 0, comprimento, StandardCharsets.US_ASCII);
+            try {
+                tipos[i] = TokenType.valueOf(nome);
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Tipo de token desconhecido no arquivo: " + nome);
+            }
+        }
+    }
+
+    // Próximo token, ou null no fim do arquivo
+    public Token ler() throws IOException {
+        int indice = entrada.read();
+        while (indice == BinaryTokenSink.DIAGNOSTICO) {
+            lerDiagnostico();
+            indice = entrada.read();
+        }
+        if (indice < 0) return null;
+        if (indice >= tipos.length) throw new IOException("Índice de tipo inválido: " + indice);
+        int zigzag = lerVarint();
+        int linha = linhaAnterior + ((zigzag >>> 1) ^ -(zigzag & 1));
+        linhaAnterior = linha;
+        int coluna = lerVarint();
+        int comprimento = lerVarint();
+        String texto = new String(lerBytes(comprimento), 0, comprimento, StandardCharsets.UTF_8);
+        return new Token(tipos[indice], texto, linha, coluna);
+    }
+
+    // Diagnósticos lidos até agora (todos, depois que ler() devolveu null)
+    public List<Diagnostics.Diagnostico> diagnosticos() {
+        return Collections.unmodifiableList(diagnosticos);
+    }
+
+    private void lerDiagnostico() throws IOException {
+        int comprimento = lerVarint();
+        String id = new String(lerBytes(comprimento), 0, comprimento, StandardCharsets.US_ASCII);
+        Diagnostics.Codigo codigo;
+        try {
+            codigo = Diagnostics.Codigo.deId(id);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Código de diagnóstico desconhecido no arquivo: " + id);
+        }
+        int linha = lerVarint();
+        int coluna = lerVarint();
+        int caractere = lerVarint() - 1;
+        diagnosticos.add(new Diagnostics.Diagnostico(codigo, linha, coluna, -1, caractere));
+    }
+
+    @Override
+    public void close() throws IOException {
+        entrada.close();
+    }
+
+    private byte[] lerBytes(int comprimento) throws IOException {
+        if (comprimento > lexema.length) lexema = new byte[Math.max(comprimento, lexema.length * 2)];
+        int lidos = entrada.readNBytes(lexema, 0, comprimento);
+        if (lidos < comprimento) throw new EOFException("Arquivo de tokens cortado no meio de um token");
+        return lexema;
+    }
+
+    private int lerByte() throws IOException {
+        int b = entrada.read();
+        if (b < 0) throw new EOFException("Arquivo de tokens cortado no meio de um token");
+        return b;
+    }
+
+    private int lerVarint() throws IOException {
+        int valor = 0;
+        for (int deslocamento = 0; deslocamento < 35; deslocamento += 7) {
+            int b = lerByte();
+            valor |= (b & 0x7F) << deslocamento;
+            if ((b & 0x80) == 0) return valor;
+        }
+        throw new IOException("Varint inválido no arquivo de tokens");
+    }
+}
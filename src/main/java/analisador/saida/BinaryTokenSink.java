@@ -0,0 +1,81 @@
+/*
+Grava os tokens em um formato binário compacto, lido de volta pelo BinaryTokenReader.
+Cabeçalho:
+    - MAGICO ("TOKB") e VERSAO (1 byte).
+    - A quantidade de tipos e o nome de cada um (varint + ASCII), na ordem do enum
+      TokenType. O leitor mapeia os tipos pelo nome, então o arquivo continua legível
+      mesmo que o enum ganhe ou reordene tipos.
+Cada token:
+    - O índice do tipo (1 byte).
+    - A diferença para a linha do token anterior (varint zigzag) e a coluna (varint).
+    - O comprimento do lexema em bytes (varint) seguido do lexema em UTF-8.
+Cada diagnóstico (desde a VERSAO 2):
+    - O byte DIAGNOSTICO (0xFF, que nunca é um índice de tipo).
+    - O código ("L001", varint + ASCII), a linha e a coluna (varint) e o caractere
+      inesperado mais 1 (varint; 0 quando não há caractere).
+Varint: 7 bits por byte, o bit mais alto indica que há mais bytes. Em código comum
+um token ocupa poucos bytes além do próprio lexema.
+*/
+
+package analisador.saida;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import analisador.Diagnostics;
+import analisador.Token;
+import analisador.core.TokenType;
+
+public class BinaryTokenSink extends SaidaBufferizada {
+    static final byte[] MAGICO = { 'T', 'O', 'K', 'B' };
+    static final int VERSAO = 2;
+    static final int DIAGNOSTICO = 0xFF;
+
+    private boolean cabecalhoEscrito = false;
+    private int linhaAnterior = 0;
+
+    public BinaryTokenSink(OutputStream destino) {
+        super(destino);
+    }
+
+    @Override
+    public void escrever(Token token) throws IOException {
+        if (!cabecalhoEscrito) escreverCabecalho();
+        byteBruto(token.tipo.ordinal());
+        int delta = token.linha - linhaAnterior;
+        varint((delta << 1) ^ (delta >> 31)); // zigzag: diferenças pequenas (negativas ou não) ficam curtas
+        linhaAnterior = token.linha;
+        varint(token.coluna);
+        varint(comprimentoUtf8(token.lexema));
+        utf8(token.lexema);
+    }
+
+    @Override
+    public void escrever(Diagnostics.Diagnostico diagnostico) throws IOException {
+        if (!cabecalhoEscrito) escreverCabecalho();
+        byteBruto(DIAGNOSTICO);
+        varint(diagnostico.codigo.id.length());
+        ascii(diagnostico.codigo.id);
+        varint(diagnostico.linha);
+        varint(diagnostico.coluna);
+        varint(diagnostico.caractere + 1);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!cabecalhoEscrito) escreverCabecalho(); // arquivo sem tokens ainda é legível
+        super.close();
+    }
+
+    private void escreverCabecalho() throws IOException {
+        for (byte b : MAGICO) byteBruto(b);
+        byteBruto(VERSAO);
+        TokenType[] tipos = TokenType.values();
+        varint(tipos.length);
+        for (TokenType tipo : tipos) {
+            varint(tipo.name().length());
+            ascii(tipo.name());
+        }
+        cabecalhoEscrito = true;
+    }
+}
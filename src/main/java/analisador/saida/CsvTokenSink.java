@@ -0,0 +1,76 @@
+/*
+Grava os tokens em CSV (RFC 4180, UTF-8, linhas terminadas em \n), com cabeçalho:
+    tipo,lexema,linha,coluna
+O lexema só vai entre aspas quando precisa (vírgula, aspas ou quebra de linha),
+com as aspas internas dobradas. Cada diagnóstico é uma linha com tipo DIAGNOSTICO
+e, no lugar do lexema, o código e a mensagem (ex.: "L001 Caractere inesperado '#'").
+*/
+
+package analisador.saida;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import analisador.Diagnostics;
+import analisador.Token;
+
+public class CsvTokenSink extends SaidaBufferizada {
+    static final String CABECALHO = "tipo,lexema,linha,coluna\n";
+
+    private boolean cabecalhoEscrito = false;
+
+    public CsvTokenSink(OutputStream destino) {
+        super(destino);
+    }
+
+    @Override
+    public void escrever(Token token) throws IOException {
+        linha(token.tipo.name(), token.lexema, token.linha, token.coluna);
+    }
+
+    @Override
+    public void escrever(Diagnostics.Diagnostico diagnostico) throws IOException {
+        linha("DIAGNOSTICO", diagnostico.codigo.id + " " + diagnostico.mensagem(), diagnostico.linha, diagnostico.coluna);
+    }
+
+    private void linha(String tipo, String lexema, int linha, int coluna) throws IOException {
+        if (!cabecalhoEscrito) {
+            ascii(CABECALHO);
+            cabecalhoEscrito = true;
+        }
+        ascii(tipo);
+        byteBruto(',');
+        if (precisaDeAspas(lexema)) {
+            byteBruto('"');
+            for (int i = 0; i < lexema.length(); ) {
+                int codigo = lexema.codePointAt(i);
+                if (codigo == '"') byteBruto('"');
+                utf8(codigo);
+                i += Character.charCount(codigo);
+            }
+            byteBruto('"');
+        } else {
+            utf8(lexema);
+        }
+        byteBruto(',');
+        decimal(linha);
+        byteBruto(',');
+        decimal(coluna);
+        byteBruto('\n');
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!cabecalhoEscrito) ascii(CABECALHO); // arquivo sem tokens ainda tem o cabeçalho
+        cabecalhoEscrito = true;
+        super.close();
+    }
+
+    private static boolean precisaDeAspas(String lexema) {
+        for (int i = 0; i < lexema.length(); i++) {
+            char c = lexema.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') return true;
+        }
+        return false;
+    }
+}
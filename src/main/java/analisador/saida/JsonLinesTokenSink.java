@@ -0,0 +1,79 @@
+/*
+Grava os tokens em JSON Lines (um objeto JSON por linha, em UTF-8):
+    {"tipo":"IDENTIFICADOR","lexema":"media","linha":5,"coluna":10}
+e cada diagnóstico:
+    {"diagnostico":"L001","mensagem":"Caractere inesperado '#'","linha":7,"coluna":3}
+Os textos são escapados como manda o JSON (aspas, barra invertida e caracteres de controle).
+*/
+
+package analisador.saida;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import analisador.Diagnostics;
+import analisador.Token;
+
+public class JsonLinesTokenSink extends SaidaBufferizada {
+    private static final char[] HEXA = "0123456789abcdef".toCharArray();
+
+    public JsonLinesTokenSink(OutputStream destino) {
+        super(destino);
+    }
+
+    @Override
+    public void escrever(Token token) throws IOException {
+        ascii("{\"tipo\":\"");
+        ascii(token.tipo.name());
+        ascii("\",\"lexema\":\"");
+        texto(token.lexema);
+        ascii("\",\"linha\":");
+        decimal(token.linha);
+        ascii(",\"coluna\":");
+        decimal(token.coluna);
+        ascii("}\n");
+    }
+
+    @Override
+    public void escrever(Diagnostics.Diagnostico diagnostico) throws IOException {
+        ascii("{\"diagnostico\":\"");
+        ascii(diagnostico.codigo.id);
+        ascii("\",\"mensagem\":\"");
+        texto(diagnostico.mensagem());
+        ascii("\",\"linha\":");
+        decimal(diagnostico.linha);
+        ascii(",\"coluna\":");
+        decimal(diagnostico.coluna);
+        ascii("}\n");
+    }
+
+    private void texto(String texto) throws IOException { // conteúdo de uma string JSON, já escapado
+        for (int i = 0; i < texto.length(); ) {
+            int codigo = texto.codePointAt(i);
+            if (codigo == '"' || codigo == '\\') {
+                byteBruto('\\');
+                byteBruto(codigo);
+            } else if (codigo < ' ') {
+                escaparControle(codigo);
+            } else {
+                utf8(codigo);
+            }
+            i += Character.charCount(codigo);
+        }
+    }
+
+    private void escaparControle(int codigo) throws IOException {
+        byteBruto('\\');
+        switch (codigo) {
+            case '\n': byteBruto('n'); break;
+            case '\r': byteBruto('r'); break;
+            case '\t': byteBruto('t'); break;
+            case '\b': byteBruto('b'); break;
+            case '\f': byteBruto('f'); break;
+            default:
+                ascii("u00");
+                byteBruto(HEXA[codigo >> 4]);
+                byteBruto(HEXA[codigo & 0xF]);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+/*
+Base dos sinks: um buffer de bytes próprio na frente do OutputStream.
+Os números são escritos dígito a dígito e os textos são codificados em UTF-8 aqui
+mesmo, caractere a caractere, sem criar Strings nem byte[] intermediários.
+Pares substitutos inválidos viram '?', como em String.getBytes(UTF_8).
+*/
+
+package analisador.saida;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+abstract class SaidaBufferizada implements TokenSink {
+    private static final int TAMANHO_BUFFER = 64 * 1024;
+
+    private final OutputStream destino;
+    private final byte[] buffer = new byte[TAMANHO_BUFFER];
+    private int usado = 0;
+
+    SaidaBufferizada(OutputStream destino) {
+        this.destino = destino;
+    }
+
+    final void byteBruto(int b) throws IOException {
+        if (usado == buffer.length) descarregar();
+        buffer[usado++] = (byte) b;
+    }
+
+    final void ascii(String texto) throws IOException {
+        for (int i = 0; i < texto.length(); i++) byteBruto(texto.charAt(i));
+    }
+
+    final void decimal(int numero) throws IOException {
+        if (numero < 0) {
+            byteBruto('-');
+            if (numero == Integer.MIN_VALUE) {
+                ascii("2147483648");
+                return;
+            }
+            numero = -numero;
+        }
+        if (usado + 10 > buffer.length) descarregar();
+        int fim = usado + digitos(numero);
+        for (int i = fim - 1; i >= usado; i--) {
+            buffer[i] = (byte) ('0' + numero % 10);
+            numero /= 10;
+        }
+        usado = fim;
+    }
+
+    // Inteiro sem sinal em 7 bits por byte (o bit mais alto diz se há mais bytes)
+    final void varint(int numero) throws IOException {
+        while ((numero & ~0x7F) != 0) {
+            byteBruto((numero & 0x7F) | 0x80);
+            numero >>>= 7;
+        }
+        byteBruto(numero);
+    }
+
+    // Um caractere (code point) em UTF-8
+    final void utf8(int codigo) throws IOException {
+        if (codigo < 0x80) {
+            byteBruto(codigo);
+        } else if (codigo < 0x800) {
+            byteBruto(0xC0 | (codigo >> 6));
+            byteBruto(0x80 | (codigo & 0x3F));
+        } else if (codigo < 0x10000) {
+            if (Character.isSurrogate((char) codigo)) {
+                byteBruto('?');
+                return;
+            }
+            byteBruto(0xE0 | (codigo >> 12));
+            byteBruto(0x80 | ((codigo >> 6) & 0x3F));
+            byteBruto(0x80 | (codigo & 0x3F));
+        } else {
+            byteBruto(0xF0 | (codigo >> 18));
+            byteBruto(0x80 | ((codigo >> 12) & 0x3F));
+            byteBruto(0x80 | ((codigo >> 6) & 0x3F));
+            byteBruto(0x80 | (codigo & 0x3F));
+        }
+    }
+
+    final void utf8(String texto) throws IOException {
+        for (int i = 0; i < texto.length(); ) {
+            int codigo = texto.codePointAt(i);
+            utf8(codigo);
+            i += Character.charCount(codigo);
+        }
+    }
+
+    // Quantos bytes utf8(texto) vai escrever
+    static int comprimentoUtf8(String texto) {
+        int bytes = 0;
+        for (int i = 0; i < texto.length(); ) {
+            int codigo = texto.codePointAt(i);
+            if (codigo < 0x80) bytes += 1;
+            else if (codigo < 0x800) bytes += 2;
+            else if (codigo < 0x10000) bytes += Character.isSurrogate((char) codigo) ? 1 : 3;
+            else bytes += 4;
+            i += Character.charCount(codigo);
+        }
+        return bytes;
+    }
+
+    private static int digitos(int numero) {
+        int digitos = 1;
+        while (numero >= 10) {
+            numero /= 10;
+            digitos++;
+        }
+        return digitos;
+    }
+
+    private void descarregar() throws IOException {
+        destino.write(buffer, 0, usado);
+        usado = 0;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        descarregar();
+        destino.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            descarregar();
+        } finally {
+            destino.close();
+        }
+    }
+}
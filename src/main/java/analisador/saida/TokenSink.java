@@ -0,0 +1,43 @@
+/*
+Esta interface é o destino dos tokens para quem vai consumi-los em outro programa.
+Cada implementação grava os tokens em um formato, direto em bytes e com buffer próprio,
+sem String.format nem um println por token:
+    - "jsonl": JSON Lines, um objeto por linha (JsonLinesTokenSink).
+    - "csv": CSV com cabeçalho (CsvTokenSink).
+    - "bin": binário compacto, com comprimentos prefixados, lido de volta pelo
+      BinaryTokenReader (BinaryTokenSink).
+Os tokens são gravados na ordem em que chegam; os diagnósticos (erros léxicos) da
+análise vão depois do EOF, um registro por diagnóstico. Fechar o sink descarrega o
+buffer e fecha o OutputStream de destino.
+*/
+
+package analisador.saida;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+import analisador.Diagnostics;
+import analisador.Token;
+
+public interface TokenSink extends Closeable, Flushable {
+    List<String> FORMATOS = List.of("jsonl", "csv", "bin");
+
+    void escrever(Token token) throws IOException;
+
+    void escrever(Diagnostics.Diagnostico diagnostico) throws IOException;
+
+    // Cria o sink do formato pedido (um dos FORMATOS) gravando em 'saida'
+    static TokenSink abrir(String formato, OutputStream saida) {
+        switch (formato) {
+            case "jsonl": return new JsonLinesTokenSink(saida);
+            case "csv": return new CsvTokenSink(saida);
+            case "bin": return new BinaryTokenSink(saida);
+            default:
+                throw new IllegalArgumentException(
+                        "Formato de saída desconhecido: '" + formato + "' (use " + String.join(", ", FORMATOS) + ")");
+        }
+    }
+}
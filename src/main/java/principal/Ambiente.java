@@ -0,0 +1,68 @@
+/*
+Esta classe diz onde uma execução do analisador roda e para onde vai o que ela escreve.
+    - diretorio: a pasta de trabalho. Os caminhos relativos dos argumentos (arquivo,
+      --saida, --cache, --relatorio, --metricas, a fonte e o PDF) são resolvidos nela.
+    - saida: os bytes da saída padrão (ConsoleReporter, --formato, resumo do lote),
+      codificados no 'charset' da saída padrão de quem pediu a análise.
+    - erros: a saída de erros (diagnósticos, avisos, --metricas -).
+    - pool: as threads do --lote, reaproveitadas entre execuções.
+Executada pela linha de comando, é o próprio processo (doProcesso()). No Servidor, cada
+pedido tem o seu: a pasta do cliente e as saídas que voltam pelo socket.
+*/
+
+package principal;
+
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+final class Ambiente {
+    final Path diretorio; // absoluto
+    final OutputStream saida;
+    final Charset charset;
+    final PrintStream texto; // 'saida' para quem escreve texto (println/printf)
+    final PrintStream erros;
+    final ExecutorService pool;
+
+    Ambiente(Path diretorio, OutputStream saida, Charset charset, PrintStream erros, ExecutorService pool) {
+        this.diretorio = diretorio.toAbsolutePath();
+        this.saida = saida;
+        this.charset = charset;
+        this.texto = new PrintStream(saida, true, charset);
+        this.erros = erros;
+        this.pool = pool;
+    }
+
+    // A linha de comando: a pasta atual, o descritor da saída padrão (sem o PrintStream do System.out) e o System.err
+    static Ambiente doProcesso() {
+        return new Ambiente(Paths.get(""), new FileOutputStream(FileDescriptor.out), charsetDaSaidaPadrao(), System.err,
+                novoPool(Runtime.getRuntime().availableProcessors()));
+    }
+
+    // O mesmo charset que o System.out usaria
+    static Charset charsetDaSaidaPadrao() {
+        String nome = System.getProperty("stdout.encoding", System.getProperty("sun.stdout.encoding"));
+        return nome != null ? Charset.forName(nome) : Charset.defaultCharset();
+    }
+
+    // Threads daemon: o pool não segura o fim da JVM e não precisa ser encerrado a cada execução
+    static ExecutorService novoPool(int threads) {
+        AtomicInteger contador = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, tarefa -> {
+            Thread thread = new Thread(tarefa, "analise-lote-" + contador.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    Path caminho(String nome) {
+        return diretorio.resolve(nome);
+    }
+}
@@ -0,0 +1,370 @@
+/*
+Modo lote: analisa muitos arquivos em uma única execução da JVM.
+Recebe pastas, arquivos ou padrões glob (ex: "src/**.java"), encontra todos os
+arquivos .java com Files.walk e analisa cada um no pool de threads do Ambiente (do
+tamanho do número de núcleos). Caminhos relativos partem da pasta do Ambiente e
+aparecem no relatório como foram escritos. Cada arquivo é lido aos poucos (Lexer com Reader), então a
+memória não depende do tamanho dos arquivos.
+No final grava um relatório único com:
+    - Um resumo por arquivo (bytes, linhas, tokens, identificadores, símbolos, erros, tempo).
+    - Os totais do lote e a contagem de tokens por tipo.
+    - Os diagnósticos (erros léxicos): o total de cada código e, de cada arquivo, os
+      primeiros DIAGNOSTICOS_POR_ARQUIVO com arquivo, linha e coluna.
+    - A Tabela de Símbolos global do projeto (GlobalSymbolTable): cada símbolo com a
+      primeira ocorrência, o total de ocorrências e os arquivos que o usam e o declaram.
+      Cada thread junta a tabela do seu arquivo à global assim que termina, sem trava global.
+Com --cache, um arquivo que não mudou desde a última análise tem os tokens lidos do
+TokenCache (mapeado, sem passar pelo Lexer); os outros são analisados e guardados nele.
+Com --metricas, cada arquivo mede as suas fases (Metricas) e as junta às do lote, que
+também mede a descoberta dos arquivos e o relatório.
+Um arquivo que não pode ser lido (sem permissão, apagado no meio do lote, ...) não para o
+lote: ele aparece no relatório com a FALHA e fica fora dos totais e da tabela global, os
+outros continuam, e o código de saída passa a ser 1.
+*/
+
+package principal;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import analisador.Diagnostics;
+import analisador.GlobalSymbolTable;
+import analisador.Lexer;
+import analisador.Token;
+import analisador.TokenCache;
+import analisador.core.TokenType;
+
+public class AnaliseLote {
+    static final String RELATORIO_PADRAO = "relatorio_lote.txt";
+    static final int DIAGNOSTICOS_POR_ARQUIVO = 100; // guardados por arquivo (os demais só são contados)
+
+    private AnaliseLote() {
+    }
+
+    // cache e destinoMetricas podem ser null. Devolve o código de saída: 1 se algum arquivo não pôde ser lido
+    static int executar(List<String> entradas, Path relatorio, TokenCache cache, String destinoMetricas,
+            Ambiente ambiente) throws IOException {
+        long inicio = System.nanoTime();
+        Metricas metricas = new Metricas("lote");
+        Metricas.Cronometro descoberta = metricas.medir(Metricas.Fase.DESCOBERTA);
+        List<Path> arquivos = encontrarArquivos(entradas, ambiente);
+        descoberta.close();
+        int nucleos = Runtime.getRuntime().availableProcessors();
+        ExecutorService pool = ambiente.pool;
+
+        GlobalSymbolTable global = new GlobalSymbolTable(arquivos);
+
+        ResumoArquivo total = new ResumoArquivo(Paths.get("TOTAL"));
+        List<Future<ResumoArquivo>> futuros = new ArrayList<>(arquivos.size());
+        try (PrintWriter saida = new PrintWriter(Files.newBufferedWriter(relatorio, StandardCharsets.UTF_8))) {
+            List<ResumoArquivo> comErros = new ArrayList<>();
+            List<ResumoArquivo> falhas = new ArrayList<>();
+            for (int i = 0; i < arquivos.size(); i++) {
+                int indice = i;
+                Path arquivo = arquivos.get(i);
+                Path real = ambiente.diretorio.resolve(arquivo);
+                futuros.add(pool.submit(() -> analisar(arquivo, real, global, indice, cache, metricas)));
+            }
+
+            saida.println("=== Relatório do Lote ===");
+            saida.printf("%-60s | %10s | %8s | %9s | %9s | %8s | %5s | %8s%n",
+                    "Arquivo", "Bytes", "Linhas", "Tokens", "Identif.", "Símbolos", "Erros", "Tempo ms");
+            for (Future<ResumoArquivo> futuro : futuros) { // Em ordem de caminho, à medida que ficam prontos
+                ResumoArquivo resumo = aguardar(futuro);
+                saida.println(resumo.formatar());
+                total.somar(resumo);
+                if (resumo.falha != null) falhas.add(resumo);
+                if (!resumo.diagnosticos.isEmpty()) comErros.add(resumo);
+            }
+            Metricas.Cronometro escrita = metricas.medir(Metricas.Fase.RELATORIO); // o resto só depende do main
+            saida.println("-".repeat(140));
+            saida.println(total.formatar());
+
+            saida.println("\n=== Tokens por Tipo ===");
+            for (TokenType tipo : TokenType.values()) {
+                if (total.porTipo[tipo.ordinal()] > 0) saida.printf("%-20s | %d%n", tipo, total.porTipo[tipo.ordinal()]);
+            }
+
+            if (!falhas.isEmpty()) {
+                saida.println("\n=== Falhas de Leitura (" + falhas.size() + " arquivos fora dos totais) ===");
+                for (ResumoArquivo resumo : falhas) saida.println(resumo.arquivo + ": " + resumo.falha);
+            }
+
+            if (total.erros > 0) imprimirDiagnosticos(saida, total, comErros);
+
+            imprimirTabelaGlobal(saida, global); // todos os arquivos já foram juntados (futuros concluídos)
+            saida.flush();
+            escrita.close();
+        } finally {
+            for (Future<ResumoArquivo> futuro : futuros) futuro.cancel(false); // o pool é compartilhado: nada fica para trás
+        }
+        metricas.concluir();
+        Main.gravarMetricas(metricas, destinoMetricas, ambiente);
+
+        double segundos = (System.nanoTime() - inicio) / 1e9;
+        ambiente.texto.printf("Lote analisado: %d arquivos, %d tokens, %d símbolos globais, %d erros léxicos em %.2f s (%d threads)%n",
+                arquivos.size(), total.tokens, global.size(), total.erros, segundos, nucleos);
+        if (cache != null) ambiente.texto.printf("Cache: %d de %d arquivos sem análise léxica%n", total.doCache, arquivos.size());
+        if (total.foraDoCache > 0) {
+            ambiente.erros.printf("AVISO: %d arquivos não guardados no cache (a entrada passaria de 2 GB)%n", total.foraDoCache);
+        }
+        ambiente.texto.println("Relatório gerado: " + relatorio);
+        if (total.falhas > 0) {
+            ambiente.erros.printf("ERRO: %d arquivos não puderam ser lidos (veja \"Falhas de Leitura\" no relatório)%n", total.falhas);
+            return 1;
+        }
+        return 0;
+    }
+
+    // ENCONTRAR ARQUIVOS (pastas, arquivos avulsos e padrões glob)
+    // Os caminhos devolvidos são como o usuário os escreveu (relativos à pasta do ambiente, se eram relativos)
+    static List<Path> encontrarArquivos(List<String> entradas, Ambiente ambiente) throws IOException {
+        TreeSet<Path> arquivos = new TreeSet<>(); // ordenados e sem repetição
+        for (String entrada : entradas) {
+            boolean relativo = !Paths.get(ehGlob(entrada) ? baseDoGlob(entrada).toString() : entrada).isAbsolute();
+            if (ehGlob(entrada)) {
+                PathMatcher padrao = FileSystems.getDefault().getPathMatcher("glob:" + entrada);
+                try (Stream<Path> caminhos = Files.walk(ambiente.diretorio.resolve(baseDoGlob(entrada)))) {
+                    caminhos.filter(Files::isRegularFile).map(p -> comoEscrito(p, relativo, ambiente))
+                            .filter(padrao::matches).forEach(arquivos::add);
+                }
+            } else {
+                Path caminho = ambiente.caminho(entrada);
+                if (Files.isDirectory(caminho)) {
+                    try (Stream<Path> caminhos = Files.walk(caminho)) {
+                        caminhos.filter(Files::isRegularFile)
+                                .filter(p -> p.getFileName().toString().endsWith(".java"))
+                                .map(p -> comoEscrito(p, relativo, ambiente))
+                                .forEach(arquivos::add);
+                    }
+                } else if (Files.isRegularFile(caminho)) {
+                    arquivos.add(comoEscrito(caminho, relativo, ambiente));
+                } else {
+                    ambiente.erros.println("AVISO: '" + entrada + "' não existe, ignorado.");
+                }
+            }
+        }
+        return new ArrayList<>(arquivos);
+    }
+
+    private static Path comoEscrito(Path caminho, boolean relativo, Ambiente ambiente) {
+        return relativo ? ambiente.diretorio.relativize(caminho) : caminho;
+    }
+
+    private static boolean ehGlob(String entrada) {
+        return entrada.indexOf('*') >= 0 || entrada.indexOf('?') >= 0
+                || entrada.indexOf('[') >= 0 || entrada.indexOf('{') >= 0;
+    }
+
+    private static Path baseDoGlob(String glob) { // parte fixa do padrão, ex: "src/main/" em "src/main/**.java"
+        int coringa = glob.length();
+        for (char c : new char[] { '*', '?', '[', '{' }) {
+            int i = glob.indexOf(c);
+            if (i >= 0) coringa = Math.min(coringa, i);
+        }
+        int barra = glob.lastIndexOf('/', coringa);
+        return barra < 0 ? Paths.get("") : Paths.get(glob.substring(0, barra + 1));
+    }
+
+    // ANÁLISE DE UM ARQUIVO (executada nas threads do pool)
+    // As métricas do arquivo são locais à thread e juntadas às do lote no fim
+    // 'arquivo' é o caminho mostrado no relatório e 'real' o que é aberto (resolvido na pasta do ambiente);
+    // a tabela local do arquivo ('indice' na tabela global) usa o pool de nomes do Lexer.
+    // Se a leitura falhar, o resumo devolvido só tem a falha (nada do arquivo entra na tabela global)
+    static ResumoArquivo analisar(Path arquivo, Path real, GlobalSymbolTable global, int indice, TokenCache cache,
+            Metricas lote) {
+        long inicio = System.nanoTime();
+        ResumoArquivo resumo = new ResumoArquivo(arquivo);
+        Metricas metricas = new Metricas(arquivo.toString());
+        GlobalSymbolTable.Arquivo tabela;
+        try {
+            Metricas.Cronometro leitura = metricas.medir(Metricas.Fase.LEITURA);
+            TokenCache.Entrada entrada = cache != null ? cache.entrada(real) : null;
+            TokenCache.Resultado guardado = entrada != null ? entrada.ler() : null;
+            if (guardado != null) { // Arquivo igual ao de uma análise anterior
+                tabela = global.arquivo(indice);
+                leitura.close();
+                Iterator<Token> tokens = metricas.fonte(Metricas.Fase.LEXER, guardado.tokens().iterator());
+                while (tokens.hasNext()) {
+                    Token t = tokens.next();
+                    long etapa = metricas.inicioAmostra();
+                    tabela.add(t);
+                    metricas.fimAmostra(Metricas.Fase.TABELA_SIMBOLOS, etapa);
+                    resumo.contar(t);
+                }
+                resumo.diagnosticos.adicionarTodos(guardado.diagnosticos());
+                resumo.doCache = 1;
+            } else {
+                TokenCache.Gravacao gravacao = entrada != null ? entrada.gravacao() : null;
+                // InputStreamReader troca UTF-8 inválido por U+FFFD (Files.newBufferedReader pararia o arquivo)
+                try (Reader leitor = new InputStreamReader(Files.newInputStream(real), StandardCharsets.UTF_8)) {
+                    Lexer lexer = new Lexer(leitor);
+                    lexer.usarDiagnosticos(resumo.diagnosticos);
+                    tabela = global.arquivo(indice, lexer.lexemas());
+                    leitura.close();
+                    Iterator<Token> tokens = metricas.fonte(Metricas.Fase.LEXER, lexer.iterator());
+                    while (tokens.hasNext()) {
+                        Token t = tokens.next();
+                        long etapa = metricas.inicioAmostra();
+                        tabela.add(t);
+                        etapa = metricas.fimAmostra(Metricas.Fase.TABELA_SIMBOLOS, etapa);
+                        if (gravacao != null) {
+                            gravacao.add(t);
+                            metricas.fimAmostra(Metricas.Fase.CACHE, etapa);
+                        }
+                        resumo.contar(t);
+                    }
+                }
+                if (gravacao != null) {
+                    metricas.medir(Metricas.Fase.CACHE, () -> {
+                        if (!gravacao.concluir(resumo.diagnosticos)) resumo.foraDoCache = 1;
+                    });
+                }
+            }
+            resumo.erros = resumo.diagnosticos.total();
+            resumo.bytes = Files.size(real);
+        } catch (IOException | UncheckedIOException e) { // o Lexer com Reader lança UncheckedIOException
+            ResumoArquivo falhou = new ResumoArquivo(arquivo);
+            falhou.falha = String.valueOf(e instanceof UncheckedIOException ? e.getCause() : e);
+            falhou.falhas = 1;
+            falhou.nanos = System.nanoTime() - inicio;
+            return falhou;
+        }
+        resumo.simbolos = tabela.size();
+        Metricas.Cronometro juncao = metricas.medir(Metricas.Fase.TABELA_GLOBAL);
+        tabela.concluir(); // junta à tabela global
+        juncao.close();
+        resumo.nanos = System.nanoTime() - inicio;
+        metricas.contar(resumo);
+        metricas.concluir();
+        lote.juntar(metricas);
+        return resumo;
+    }
+
+    private static void imprimirDiagnosticos(PrintWriter saida, ResumoArquivo total, List<ResumoArquivo> comErros) {
+        saida.println("\n=== Diagnósticos (" + total.erros + " erros léxicos) ===");
+        for (Map.Entry<Diagnostics.Codigo, Long> codigo : total.porCodigo.entrySet())
+            saida.printf("%s %-35s | %d%n", codigo.getKey().id, codigo.getKey().descricao, codigo.getValue());
+        saida.println();
+        for (ResumoArquivo resumo : comErros) {
+            for (Diagnostics.Diagnostico d : resumo.diagnosticos) {
+                saida.println(resumo.arquivo + ":" + d.linha + ":" + d.coluna + ": " + d.codigo.id + " " + d.mensagem());
+            }
+            if (resumo.diagnosticos.naoGuardados() > 0) {
+                saida.println(resumo.arquivo + ": ... mais " + resumo.diagnosticos.naoGuardados() + " não mostrados");
+            }
+        }
+    }
+
+    private static void imprimirTabelaGlobal(PrintWriter saida, GlobalSymbolTable global) {
+        List<GlobalSymbolTable.Simbolo> simbolos = global.simbolos();
+        saida.println("\n=== Tabela de Símbolos Global (" + simbolos.size() + " símbolos) ===");
+        saida.printf("%-6s | %-30s | %11s | %-40s | %8s | %s%n",
+                "ID", "Lexema", "Ocorrências", "Primeira ocorrência", "Arquivos", "Declarado em");
+        int id = 0;
+        for (GlobalSymbolTable.Simbolo simbolo : simbolos) {
+            String primeira = simbolo.arquivo() + ":" + simbolo.linha() + ":" + simbolo.coluna();
+            if (primeira.length() > 40) primeira = "..." + primeira.substring(primeira.length() - 37);
+            List<Path> declaracoes = simbolo.declaradoEm();
+            saida.printf("%-6d | %-30s | %11d | %-40s | %8d | %s%n", ++id, simbolo.lexema, simbolo.ocorrencias(),
+                    primeira, simbolo.usadoEm().size(), declaracoes.isEmpty() ? "-" : juntar(declaracoes));
+        }
+    }
+
+    private static String juntar(List<Path> caminhos) {
+        StringBuilder texto = new StringBuilder();
+        for (Path caminho : caminhos) {
+            if (texto.length() > 0) texto.append(", ");
+            texto.append(caminho);
+        }
+        return texto.toString();
+    }
+
+    private static ResumoArquivo aguardar(Future<ResumoArquivo> futuro) throws IOException {
+        try {
+            return futuro.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Análise em lote interrompida", e);
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        }
+    }
+
+    static class ResumoArquivo {
+        final Path arquivo;
+        final long[] porTipo = new long[TokenType.values().length]; // por ordinal()
+        final Diagnostics diagnosticos = new Diagnostics(DIAGNOSTICOS_POR_ARQUIVO);
+        final Map<Diagnostics.Codigo, Long> porCodigo = new EnumMap<>(Diagnostics.Codigo.class); // só no total
+        long bytes;
+        long linhas;
+        long tokens;
+        long identificadores;
+        long simbolos;
+        long erros;
+        long nanos;
+        long doCache; // arquivos lidos do TokenCache
+        long foraDoCache; // arquivos analisados que não couberam em uma entrada do TokenCache
+        long falhas; // arquivos que não puderam ser lidos
+        String falha; // o erro de leitura deste arquivo, ou null
+
+        ResumoArquivo(Path arquivo) {
+            this.arquivo = arquivo;
+        }
+
+        void contar(Token t) {
+            if (t.tipo == TokenType.EOF) {
+                linhas = t.linha;
+                return;
+            }
+            tokens++;
+            if (t.tipo == TokenType.IDENTIFICADOR) identificadores++;
+            porTipo[t.tipo.ordinal()]++;
+        }
+
+        void somar(ResumoArquivo outro) {
+            bytes += outro.bytes;
+            linhas += outro.linhas;
+            tokens += outro.tokens;
+            identificadores += outro.identificadores;
+            simbolos += outro.simbolos; // soma dos símbolos distintos de cada arquivo
+            erros += outro.erros;
+            nanos += outro.nanos;
+            doCache += outro.doCache;
+            foraDoCache += outro.foraDoCache;
+            falhas += outro.falhas;
+            for (int i = 0; i < porTipo.length; i++) porTipo[i] += outro.porTipo[i];
+            for (Diagnostics.Codigo codigo : Diagnostics.Codigo.values()) {
+                if (outro.diagnosticos.total(codigo) > 0) porCodigo.merge(codigo, (long) outro.diagnosticos.total(codigo), Long::sum);
+            }
+        }
+
+        String formatar() {
+            String nome = arquivo.toString();
+            if (nome.length() > 60) nome = "..." + nome.substring(nome.length() - 57);
+            if (falha != null) return String.format("%-60s | FALHA: %s", nome, falha);
+            return String.format("%-60s | %10d | %8d | %9d | %9d | %8d | %5d | %8.1f",
+                    nome, bytes, linhas, tokens, identificadores, simbolos, erros, nanos / 1e6);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+/*
+Esta classe guarda uma versão reduzida da fonte do relatório, para o PDF não ler a fonte
+inteira a cada execução.
+A Roboto variável tem centenas de KB de tabelas (variações, GSUB, kerning) que o relatório
+não usa, e ler a fonte com o TTFParser custava quase tanto quanto o resto do PDF.
+    - A fonte reduzida só tem os caracteres de COBERTURA (latim, acentos, pontuação e
+      símbolos de moeda) e as tabelas de TABELAS. Ela é gerada uma vez (TTFSubsetter)
+      e gravada em uma pasta do usuário (0700) na pasta temporária, com o tamanho e a data
+      da fonte original no nome: se a fonte mudar, o nome muda e uma nova é gerada.
+    - Os bytes também ficam na memória (o Servidor não relê o arquivo a cada pedido),
+      mas cada relatório recebe a sua TrueTypeFont, porque o PDFBox a usa sem sincronização.
+    - Se o código analisado tiver algum caractere fora da COBERTURA (ou não for UTF-8
+      válido), abrir() lê a fonte original, como antes: o PDF sai igual de qualquer jeito.
+Qualquer falha com a fonte reduzida (pasta sem permissão, arquivo corrompido) também
+volta para a fonte original.
+*/
+
+package principal;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.fontbox.ttf.CmapLookup;
+import org.apache.fontbox.ttf.TTFParser;
+import org.apache.fontbox.ttf.TTFSubsetter;
+import org.apache.fontbox.ttf.TrueTypeFont;
+import org.apache.pdfbox.io.RandomAccessReadBuffer;
+import org.apache.pdfbox.io.RandomAccessReadBufferedFile;
+
+final class CacheFonte {
+    static final int VERSAO = 1; // muda quando COBERTURA ou TABELAS mudarem
+    // Intervalos [início, fim] de code points que a fonte reduzida tem
+    private static final int[][] COBERTURA = { { 0x0000, 0x024F }, { 0x2000, 0x206F }, { 0x20A0, 0x20CF } };
+    // O que o PDFBox lê de uma TrueType para embuti-la (as outras tabelas seriam copiadas inteiras)
+    private static final List<String> TABELAS = List.of("head", "hhea", "maxp", "OS/2", "name", "post", "cmap",
+            "glyf", "loca", "hmtx", "cvt ", "fpgm", "prep", "gasp");
+
+    private static final int BLOCO = 16 * 1024; // caracteres lidos de cada vez por coberto()
+
+    private static final ConcurrentHashMap<String, byte[]> REDUZIDAS = new ConcurrentHashMap<>();
+
+    private CacheFonte() {
+    }
+
+    // A fonte para o relatório de 'codigo': a reduzida, se ela tiver todos os caracteres do código, ou a original
+    static TrueTypeFont abrir(File original, Path codigo) throws IOException {
+        if (coberto(codigo)) {
+            try {
+                byte[] reduzida = reduzida(original);
+                return new TTFParser().parse(new RandomAccessReadBuffer(reduzida));
+            } catch (IOException | RuntimeException e) { // a fonte original sempre serve
+            }
+        }
+        return new TTFParser().parse(new RandomAccessReadBufferedFile(original));
+    }
+
+    // true se todos os caracteres do arquivo estão na COBERTURA. O arquivo é lido aos poucos, em
+    // blocos de BLOCO caracteres (nunca inteiro), e a leitura para no primeiro caractere de fora.
+    static boolean coberto(Path codigo) throws IOException {
+        CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT);
+        char[] bloco = new char[BLOCO];
+        try (Reader leitor = new InputStreamReader(Files.newInputStream(codigo), decoder)) {
+            for (int lidos; (lidos = leitor.read(bloco)) > 0; ) {
+                for (int i = 0; i < lidos; i++) {
+                    // A COBERTURA é toda do BMP: um char substituto (code point acima de U+FFFF) já fica de fora
+                    if (bloco[i] > 0x024F && !coberto(bloco[i])) return false;
+                }
+            }
+        } catch (CharacterCodingException e) { // não é UTF-8 válido
+            return false;
+        }
+        return true;
+    }
+
+    private static boolean coberto(int codePoint) {
+        for (int[] intervalo : COBERTURA) {
+            if (codePoint >= intervalo[0] && codePoint <= intervalo[1]) return true;
+        }
+        return false;
+    }
+
+    private static byte[] reduzida(File original) throws IOException {
+        String nome = original.getName().replaceAll("[^A-Za-z0-9._-]", "_")
+                + "-" + original.length() + "-" + original.lastModified() + "-v" + VERSAO + ".ttf";
+        byte[] bytes = REDUZIDAS.get(nome);
+        if (bytes != null) return bytes;
+        // Uma pasta por usuário, conferida como a do socket do Servidor: numa pasta compartilhada, outro
+        // usuário poderia deixar lá uma "fonte reduzida" que iria para o PDF
+        Path pasta = Paths.get(System.getProperty("java.io.tmpdir"), "analisador-lexico-fontes-" + System.getProperty("user.name"));
+        Servidor.prepararPasta(pasta);
+        Path arquivo = pasta.resolve(nome);
+        if (Files.isRegularFile(arquivo)) {
+            bytes = Files.readAllBytes(arquivo);
+        } else {
+            bytes = gerar(original);
+            Path temporario = Files.createTempFile(pasta, nome, ".tmp");
+            try {
+                Files.write(temporario, bytes);
+                mover(temporario, arquivo);
+            } finally {
+                Files.deleteIfExists(temporario);
+            }
+        }
+        REDUZIDAS.put(nome, bytes);
+        return bytes;
+    }
+
+    private static byte[] gerar(File original) throws IOException {
+        try (TrueTypeFont ttf = new TTFParser().parse(new RandomAccessReadBufferedFile(original))) {
+            TTFSubsetter subconjunto = new TTFSubsetter(ttf, TABELAS);
+            CmapLookup cmap = ttf.getUnicodeCmapLookup();
+            for (int[] intervalo : COBERTURA) {
+                for (int c = intervalo[0]; c <= intervalo[1]; c++) {
+                    if (cmap.getGlyphId(c) != 0) subconjunto.add(c);
+                }
+            }
+            ByteArrayOutputStream saida = new ByteArrayOutputStream();
+            subconjunto.writeToStream(saida);
+            return saida.toByteArray();
+        }
+    }
+
+    // Troca atômica: outro processo gerando a mesma fonte ao mesmo tempo não lê um arquivo pela metade
+    private static void mover(Path de, Path para) throws IOException {
+        try {
+            Files.move(de, para, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(de, para, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
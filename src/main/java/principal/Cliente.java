@@ -0,0 +1,132 @@
+/*
+Esta classe é o cliente leve do Servidor: aceita os mesmos argumentos do Main e manda
+o pedido para o servidor que já está no ar, em vez de começar uma análise do zero.
+    - Envia a pasta atual, o charset da saída padrão e os argumentos; com --stdin, envia
+      também o código-fonte lido da entrada padrão (no lugar do caminho do arquivo).
+    - Copia os blocos da resposta para a saída padrão e a de erros, na ordem em que
+      chegam, e sai com o código de saída da análise.
+    - Sem servidor no ar, faz a análise neste mesmo processo (como o Main), então pode
+      substituir o Main em qualquer script. O mesmo acontece quando o socket não é do
+      usuário: o código-fonte e os argumentos não vão para o processo de outra pessoa.
+Ela só carrega as classes do analisador quando precisa analisar sozinha.
+    java principal.Cliente [--socket caminho] [--stdin] <argumentos do Main>
+    java principal.Cliente [--socket caminho] --parar
+*/
+
+package principal;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+public final class Cliente {
+    static final int TAMANHO_BLOCO = 64 * 1024;
+
+    private Cliente() {
+    }
+
+    public static void main(String[] args) {
+        List<String> argumentos = new ArrayList<>(List.of(args));
+        int i = argumentos.indexOf("--socket");
+        Path socket = Servidor.socketPadrao();
+        if (i >= 0 && i + 1 < argumentos.size()) {
+            socket = Paths.get(argumentos.remove(i + 1));
+            argumentos.remove(i);
+        }
+        boolean entradaPadrao = argumentos.remove("--stdin");
+        int codigo;
+        try {
+            codigo = executar(socket, argumentos, entradaPadrao ? System.in.readAllBytes() : null);
+        } catch (IOException e) {
+            e.printStackTrace();
+            codigo = 1;
+        }
+        System.exit(codigo);
+    }
+
+    // 'fonte' é o código-fonte do --stdin, ou null
+    static int executar(Path socket, List<String> argumentos, byte[] fonte) throws IOException {
+        SocketChannel canal = conectar(socket);
+        if (canal == null) { // sem servidor (deste usuário): a análise roda aqui mesmo
+            if (argumentos.equals(List.of(Servidor.PARAR))) {
+                System.err.println("Nenhum servidor no ar em " + socket);
+                return 1;
+            }
+            return sozinho(argumentos, fonte);
+        }
+        try (canal) {
+            DataOutputStream pedido = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(canal)));
+            pedido.writeInt(Servidor.VERSAO_PROTOCOLO);
+            pedido.writeUTF(Paths.get("").toAbsolutePath().toString());
+            pedido.writeUTF(Ambiente.charsetDaSaidaPadrao().name());
+            pedido.writeInt(argumentos.size());
+            for (String argumento : argumentos) pedido.writeUTF(argumento);
+            pedido.writeInt(fonte != null ? fonte.length : -1);
+            if (fonte != null) pedido.write(fonte);
+            pedido.flush();
+
+            DataInputStream resposta = new DataInputStream(new BufferedInputStream(Channels.newInputStream(canal), TAMANHO_BLOCO));
+            OutputStream saida = new FileOutputStream(FileDescriptor.out);
+            OutputStream erros = new FileOutputStream(FileDescriptor.err);
+            byte[] bloco = new byte[TAMANHO_BLOCO];
+            try {
+                while (true) {
+                    byte tipo = resposta.readByte();
+                    if (tipo == Servidor.FIM) return resposta.readInt();
+                    OutputStream destino = tipo == Servidor.SAIDA ? saida : erros;
+                    for (int falta = resposta.readInt(); falta > 0; ) {
+                        int lidos = resposta.read(bloco, 0, Math.min(falta, bloco.length));
+                        if (lidos < 0) throw new EOFException();
+                        destino.write(bloco, 0, lidos);
+                        falta -= lidos;
+                    }
+                }
+            } catch (EOFException e) {
+                System.err.println("O servidor encerrou a conexão antes de terminar a análise.");
+                return 1;
+            }
+        }
+    }
+
+    // O servidor do usuário em 'socket', ou null (não existe, ninguém atende ou o socket é de outro usuário)
+    private static SocketChannel conectar(Path socket) {
+        try {
+            if (Servidor.doUsuario(socket)) return SocketChannel.open(UnixDomainSocketAddress.of(socket));
+            System.err.println("AVISO: o socket " + socket + " não é deste usuário e foi ignorado.");
+        } catch (IOException | UnsupportedOperationException e) {
+        }
+        return null;
+    }
+
+    private static int sozinho(List<String> argumentos, byte[] fonte) throws IOException {
+        Path temporario = fonte != null ? fonteTemporaria(fonte) : null;
+        try {
+            List<String> completos = new ArrayList<>(argumentos);
+            if (temporario != null) completos.add(temporario.toString());
+            return Main.executar(completos, Ambiente.doProcesso());
+        } finally {
+            if (temporario != null) Files.deleteIfExists(temporario);
+        }
+    }
+
+    // O código-fonte do --stdin em um arquivo temporário (o Lexer e o PDF leem arquivos)
+    static Path fonteTemporaria(byte[] fonte) throws IOException {
+        Path temporario = Files.createTempFile("analisador-", ".java");
+        Files.write(temporario, fonte);
+        return temporario;
+    }
+}
@@ -0,0 +1,169 @@
+/*
+Esta classe escreve o relatório do console sem travar a análise.
+    - O texto é montado em um StringBuilder grande; quando ele passa de TAMANHO_BLOCO
+      caracteres, é entregue a uma thread escritora e um novo começa a ser preenchido.
+    - A thread escritora codifica o texto (no charset da saída padrão) e grava no
+      descritor em blocos grandes, sem o PrintStream sincronizado do System.out
+      (que descarrega a cada println).
+    - A fila entre as duas threads tem BLOCOS_NA_FILA blocos: um terminal lento só
+      segura a análise quando a fila inteira (alguns MB) está esperando para ser escrita,
+      em vez de a memória crescer sem limite.
+    - O nível (COMPLETO, RESUMO, SILENCIOSO) diz o que o Main deve ecoar.
+close() espera tudo ser escrito; um erro de escrita (ex.: pipe fechado) aparece nele.
+*/
+
+package principal;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import analisador.Token;
+
+class ConsoleReporter implements Appendable, Closeable {
+    static final int TAMANHO_BLOCO = 64 * 1024; // caracteres
+    static final int BLOCOS_NA_FILA = 32;
+    private static final Object FIM = new Object();
+
+    enum Nivel {
+        COMPLETO, // código-fonte, lista de tokens e tabela de símbolos (o padrão)
+        RESUMO, // só a tabela de símbolos e uma linha de resumo (--summary)
+        SILENCIOSO // só o resultado final (--quiet)
+    }
+
+    final Nivel nivel;
+    private final OutputStream destino;
+    private final Writer texto; // codifica para 'destino' (bufferizado)
+    private final BlockingQueue<Object> fila = new ArrayBlockingQueue<>(BLOCOS_NA_FILA);
+    private final Thread escritor;
+    private final String fimLinha = System.lineSeparator();
+    private StringBuilder atual = new StringBuilder(TAMANHO_BLOCO + 1024);
+    private volatile IOException erro;
+
+    ConsoleReporter(Nivel nivel, OutputStream destino, Charset charset) {
+        this.nivel = nivel;
+        this.destino = new BufferedOutputStream(destino, TAMANHO_BLOCO);
+        this.texto = new OutputStreamWriter(this.destino, charset);
+        this.escritor = new Thread(this::escrever, "console-reporter");
+        escritor.setDaemon(true);
+        escritor.start();
+    }
+
+    // Na saída padrão do ambiente (a do processo, ou a do cliente do Servidor), no charset dela
+    static ConsoleReporter saidaPadrao(Nivel nivel, Ambiente ambiente) {
+        return new ConsoleReporter(nivel, ambiente.saida, ambiente.charset);
+    }
+
+    void println(String linha) {
+        atual.append(linha).append(fimLinha);
+        talvezEntregar();
+    }
+
+    void token(Token token) { // mesma linha do println(token)
+        token.formatar(atual).append(fimLinha);
+        talvezEntregar();
+    }
+
+    // Copia os bytes do arquivo sem decodificá-los (como Files.copy para o System.out)
+    void copiar(Path arquivo) throws IOException {
+        entregar();
+        try (InputStream entrada = Files.newInputStream(arquivo)) {
+            byte[] bloco;
+            while ((bloco = entrada.readNBytes(TAMANHO_BLOCO)).length > 0) colocar(bloco);
+        }
+    }
+
+    @Override
+    public ConsoleReporter append(CharSequence texto) {
+        atual.append(texto);
+        talvezEntregar();
+        return this;
+    }
+
+    @Override
+    public ConsoleReporter append(CharSequence texto, int inicio, int fim) {
+        atual.append(texto, inicio, fim);
+        talvezEntregar();
+        return this;
+    }
+
+    @Override
+    public ConsoleReporter append(char c) {
+        atual.append(c);
+        return this;
+    }
+
+    @Override
+    public void close() throws IOException {
+        entregar();
+        colocar(FIM);
+        try {
+            escritor.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Escrita do console interrompida", e);
+        }
+        if (erro != null) throw erro;
+    }
+
+    private void talvezEntregar() {
+        if (atual.length() >= TAMANHO_BLOCO) entregar();
+    }
+
+    private void entregar() {
+        if (atual.length() == 0) return;
+        colocar(atual);
+        atual = new StringBuilder(TAMANHO_BLOCO + 1024);
+    }
+
+    private void colocar(Object bloco) {
+        try {
+            fila.put(bloco);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Escrita do console interrompida", e);
+        }
+    }
+
+    // THREAD ESCRITORA
+    private void escrever() {
+        char[] letras = new char[TAMANHO_BLOCO + 1024];
+        try {
+            while (true) {
+                Object bloco = fila.take();
+                if (bloco == FIM) break;
+                if (erro != null) continue; // depois de um erro, só esvazia a fila para ninguém ficar esperando
+                try {
+                    if (bloco instanceof byte[]) {
+                        texto.flush(); // o texto anterior sai antes dos bytes
+                        destino.write((byte[]) bloco);
+                    } else {
+                        StringBuilder pedaco = (StringBuilder) bloco;
+                        if (pedaco.length() > letras.length) letras = new char[pedaco.length()];
+                        pedaco.getChars(0, pedaco.length(), letras, 0);
+                        texto.write(letras, 0, pedaco.length());
+                    }
+                } catch (IOException e) {
+                    erro = e;
+                }
+            }
+            if (erro == null) {
+                texto.flush();
+                destino.flush();
+            }
+        } catch (IOException e) {
+            erro = e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,63 @@
+/*
+Esta classe dá acesso à fonte do relatório para várias threads ao mesmo tempo.
+A PDType0Font do PDFBox não é segura para uso concorrente, então:
+    - Cada caractere é codificado (código do glifo, em hexadecimal) e medido uma
+      única vez, com a fonte travada; depois disso as threads só leem os caches.
+    - Os caracteres usados são informados ao subconjunto da fonte pela thread
+      que monta o documento (adicionarAoSubconjunto).
+*/
+
+package principal;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.font.PDType0Font;
+
+class FonteRelatorio {
+    static final COSName NOME = COSName.getPDFName("F1"); // nome da fonte nos recursos de cada página
+    private static final char[] HEXA = "0123456789ABCDEF".toCharArray();
+
+    final PDType0Font font;
+    private final Map<Integer, String> codigos = new ConcurrentHashMap<>();
+    private final Map<Float, LargurasFonte> larguras = new ConcurrentHashMap<>();
+
+    FonteRelatorio(PDType0Font font) {
+        this.font = font;
+    }
+
+    // Código do glifo do caractere, em hexadecimal (para um operador Tj com <...>)
+    String hexa(int codigo) throws IOException {
+        String hexa = codigos.get(codigo);
+        if (hexa == null) {
+            byte[] bytes;
+            synchronized (font) {
+                bytes = font.encode(new String(Character.toChars(codigo)));
+            }
+            StringBuilder texto = new StringBuilder(bytes.length * 2);
+            for (byte b : bytes) texto.append(HEXA[(b >> 4) & 0xF]).append(HEXA[b & 0xF]);
+            hexa = texto.toString();
+            codigos.put(codigo, hexa);
+        }
+        return hexa;
+    }
+
+    LargurasFonte larguras(float tamanho) {
+        return larguras.computeIfAbsent(tamanho, t -> new LargurasFonte(this, t));
+    }
+
+    float medir(int codigo, float tamanho) throws IOException {
+        synchronized (font) {
+            return font.getStringWidth(new String(Character.toChars(codigo))) / 1000 * tamanho;
+        }
+    }
+
+    void adicionarAoSubconjunto(Set<Integer> usados) {
+        synchronized (font) {
+            for (int codigo : usados) font.addToSubset(codigo);
+        }
+    }
+}
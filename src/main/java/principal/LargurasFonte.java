@@ -0,0 +1,70 @@
+/*
+Esta classe guarda as larguras dos caracteres de uma fonte em um tamanho.
+font.getStringWidth codifica e mede o texto inteiro a cada chamada; aqui cada
+caractere é medido uma única vez e as larguras seguintes são só somas.
+Também corta textos que não cabem em uma largura, medindo de verdade
+(em vez de estimar pela quantidade de caracteres).
+Pode ser usada por várias threads: a medição em si passa pela FonteRelatorio.
+*/
+
+package principal;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+class LargurasFonte {
+    static final String RETICENCIAS = "...";
+
+    private final FonteRelatorio fonte;
+    private final float tamanho;
+    private final float[] ascii = new float[128]; // NaN = ainda não medido
+    private final Map<Integer, Float> outros = new ConcurrentHashMap<>();
+
+    LargurasFonte(FonteRelatorio fonte, float tamanho) {
+        this.fonte = fonte;
+        this.tamanho = tamanho;
+        Arrays.fill(ascii, Float.NaN);
+    }
+
+    float largura(String texto) throws IOException {
+        float total = 0;
+        for (int i = 0; i < texto.length(); ) {
+            int codigo = texto.codePointAt(i);
+            total += largura(codigo);
+            i += Character.charCount(codigo);
+        }
+        return total;
+    }
+
+    private float largura(int codigo) throws IOException {
+        if (codigo < 128) {
+            float l = ascii[codigo];
+            if (Float.isNaN(l)) l = ascii[codigo] = fonte.medir(codigo, tamanho); // corrida inofensiva: o valor é sempre o mesmo
+            return l;
+        }
+        Float l = outros.get(codigo);
+        if (l == null) {
+            l = fonte.medir(codigo, tamanho);
+            outros.put(codigo, l);
+        }
+        return l;
+    }
+
+    // O texto inteiro, se couber em 'maximo'; senão, o maior começo que cabe junto com "..."
+    String cortar(String texto, float maximo) throws IOException {
+        if (texto == null) return null;
+        float larguraReticencias = largura(RETICENCIAS);
+        float total = 0;
+        int corte = 0;
+        for (int i = 0; i < texto.length(); ) {
+            int codigo = texto.codePointAt(i);
+            total += largura(codigo);
+            if (total > maximo) return texto.substring(0, corte) + RETICENCIAS;
+            i += Character.charCount(codigo);
+            if (total + larguraReticencias <= maximo) corte = i;
+        }
+        return texto;
+    }
+}
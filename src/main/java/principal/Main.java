@@ -3,343 +3,446 @@ Esta é a classe principal que "amarra" todo o projeto.
 Suas responsabilidades são:
     1. Ser o ponto de entrada do programa (o método 'public static void main').
     2. Verificar se o usuário passou o caminho do arquivo .c como argumento.
-    3. Ler o conteúdo completo do arquivo de código-fonte (ex: "teste.c") 
-para uma string. (Cumprindo o Pré-Requisito).
-    4. Criar uma instância do Lexer, passando o código-fonte para ele.
-    5. Chamar o Lexer para obter a lista de Tokens.
-    6. Criar uma instância da SymbolTable.
-    7. Imprimir a "Lista de Tokens" (Requisito do Barema).
-    8. Popular a Tabela de Símbolos com os tokens encontrados.
-    9. Imprimir a "Tabela de Símbolos" (Requisito do Barema).
+    3. Abrir o arquivo de código-fonte (ex: "teste.c") para leitura.
+    4. Criar uma instância do Lexer, que lê o arquivo aos poucos.
+    5. Criar uma instância da SymbolTable.
+    6. Pedir os Tokens ao Lexer um por vez, imprimindo a "Lista de Tokens"
+e populando a Tabela de Símbolos à medida que eles são produzidos.
+    7. Imprimir a "Tabela de Símbolos" (Requisito do Barema).
+    8. Gerar o relatório em PDF (RelatorioPdf), que puxa as linhas da tabela de
+tokens da mesma sequência de tokens do console, sem guardar todas na memória.
+Com --formato, em vez do console e do PDF, os tokens vão para um TokenSink
+(JSON Lines, CSV ou binário), no arquivo de --saida ou na saída padrão; --tipos
+(ex.: IDENTIFICADOR,PALAVRA_CHAVE) deixa só esses tipos, e o Lexer nem cria os outros.
+O console é escrito pelo ConsoleReporter, em outra thread; --summary deixa de ecoar
+o código e a lista de tokens, e --quiet mostra só o resultado final.
+Com --cache pasta, os tokens e a tabela de símbolos de um arquivo que não mudou vêm do
+TokenCache em vez do Lexer (no modo normal e no modo lote).
+Os erros léxicos (Diagnostics) são mostrados de uma vez no System.err depois da lista
+de tokens, entram no PDF como a tabela "Diagnósticos" e, com --formato, vão para o
+TokenSink depois do EOF.
+Com --metricas arquivo.json (ou "-" para a saída de erros), o tempo de cada fase, os
+tokens por tipo, bytes/s e tokens/s vão para um resumo em JSON no fim da execução;
+com uma gravação JFR ativa, as mesmas medidas viram eventos (ver Metricas).
+Com --sem-pdf, só o console: as classes do PDFBox nem chegam a ser carregadas (o Main
+só conhece a interface Relatorio). --pdf arquivo muda onde o PDF é gravado.
+Com --servidor, o processo fica no ar atendendo pedidos do Cliente por um socket local
+(ver Servidor): cada pedido roda executar() com o Ambiente do cliente.
 */
 package principal;
 
+import analisador.Diagnostics;
 import analisador.Lexer;
-import analisador.Token;
 import analisador.SymbolTable;
+import analisador.Token;
+import analisador.TokenCache;
+import analisador.core.TokenType;
+import analisador.saida.TokenSink;
 
-import org.apache.pdfbox.pdmodel.PDDocument;
-import org.apache.pdfbox.pdmodel.PDPage;
-import org.apache.pdfbox.pdmodel.PDPageContentStream;
-import org.apache.pdfbox.pdmodel.font.PDType0Font;
-import org.apache.pdfbox.pdmodel.common.PDRectangle;
-import java.awt.Color;
 import java.io.File;
+import java.io.FilterOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
+import java.util.NoSuchElementException;
 public class Main {
     public static void main(String[] args) {
-        if (args.length == 0) {
-            System.err.println("Uso: java principal.Main <caminho_para_arquivo.java>");
-            System.exit(1);
+        if (args.length > 0 && args[0].equals("--servidor")) { // MODO SERVIDOR: fica no ar atendendo o Cliente
+            try {
+                Servidor.executar(args.length > 1 ? Paths.get(args[1]) : Servidor.socketPadrao());
+            } catch (IOException e) {
+                e.printStackTrace();
+                System.exit(1);
+            }
+            return;
         }
+        int codigo = executar(List.of(args), Ambiente.doProcesso());
+        if (codigo != 0) System.exit(codigo);
+    }
 
-        try {
-            String filePath = args[0];
-            String sourceCode = Files.readString(Paths.get(filePath), java.nio.charset.StandardCharsets.UTF_8);
+    // Uma execução completa da linha de comando (também usada pelo Servidor, com o Ambiente do cliente).
+    // Devolve o código de saída do processo.
+    static int executar(List<String> args, Ambiente ambiente) {
+        PrintStream erros = ambiente.erros;
+        if (args.isEmpty()) {
+            erros.println("Uso: java principal.Main [--summary|--quiet] [--sem-pdf|--pdf arquivo.pdf] [--cache pasta [--cache-limite MB]] [--metricas arquivo.json] <caminho_para_arquivo.java>");
+            erros.println("     java principal.Main --lote [--relatorio arquivo.txt] [--cache pasta [--cache-limite MB]] [--metricas arquivo.json] <pasta|arquivo|glob>...");
+            erros.println("     java principal.Main --formato " + String.join("|", TokenSink.FORMATOS)
+                    + " [--saida arquivo] [--tipos TIPO,...] [--metricas arquivo.json] <caminho_para_arquivo.java>");
+            erros.println("     java principal.Main --servidor [socket]");
+            return 1;
+        }
 
-            Lexer lexer = new Lexer(sourceCode);
-            List<Token> tokens = lexer.scanTokens();
+        if (args.get(0).equals("--lote")) { // MODO LOTE: vários arquivos na mesma execução
+            try {
+                List<String> entradas = new ArrayList<>(args.subList(1, args.size()));
+                String relatorio = extrairOpcao(entradas, "--relatorio");
+                String metricas = extrairOpcao(entradas, "--metricas");
+                long limiteCache = lerLimiteCache(entradas);
+                if (limiteCache < 0) {
+                    erros.println("--cache-limite: tamanho em MB, um número inteiro maior que zero");
+                    erros.println("Uso: java principal.Main --lote [--relatorio arquivo.txt] [--cache pasta [--cache-limite MB]] [--metricas arquivo.json] <pasta|arquivo|glob>...");
+                    return 1;
+                }
+                TokenCache cache = abrirCache(entradas, limiteCache, ambiente);
+                return AnaliseLote.executar(entradas, ambiente.caminho(relatorio != null ? relatorio : AnaliseLote.RELATORIO_PADRAO),
+                        cache, metricas, ambiente);
+            } catch (IOException e) {
+                e.printStackTrace(erros);
+                return 1;
+            }
+        }
 
-            SymbolTable tabela = new SymbolTable(); //Criando e Populando tabela simbolica.
-            for (Token t : tokens)
-                tabela.add(t);
+        List<String> argumentos = new ArrayList<>(args);
+        String destinoMetricas = extrairOpcao(argumentos, "--metricas");
+        String formato = extrairOpcao(argumentos, "--formato");
+        if (formato != null) { // SAÍDA PARA OUTROS PROGRAMAS: só os tokens, no formato pedido
+            String destino = extrairOpcao(argumentos, "--saida");
+            String listaTipos = extrairOpcao(argumentos, "--tipos");
+            EnumSet<TokenType> tipos = listaTipos != null ? lerTipos(listaTipos) : EnumSet.allOf(TokenType.class);
+            if (tipos == null) {
+                erros.println("Tipos de token: " + Arrays.toString(TokenType.values()));
+                return 1;
+            }
+            if (!TokenSink.FORMATOS.contains(formato) || argumentos.size() != 1) {
+                erros.println("Uso: java principal.Main --formato " + String.join("|", TokenSink.FORMATOS)
+                        + " [--saida arquivo] [--tipos TIPO,...] [--metricas arquivo.json] <caminho_para_arquivo.java>");
+                return 1;
+            }
+            try {
+                exportarTokens(argumentos.get(0), formato, tipos, destino, destinoMetricas, ambiente);
+            } catch (IOException | UncheckedIOException e) {
+                e.printStackTrace(erros);
+                return 1;
+            }
+            return 0;
+        }
 
+        boolean silencioso = argumentos.remove("--quiet");
+        boolean resumido = argumentos.remove("--summary");
+        boolean semPdf = argumentos.remove("--sem-pdf");
+        String destinoPdf = extrairOpcao(argumentos, "--pdf");
+        String nomePdf = destinoPdf != null ? destinoPdf : Relatorio.SAIDA;
+        long limiteCache = lerLimiteCache(argumentos);
+        if (limiteCache < 0) {
+            erros.println("--cache-limite: tamanho em MB, um número inteiro maior que zero");
+            erros.println("Uso: java principal.Main [--summary|--quiet] [--sem-pdf|--pdf arquivo.pdf] [--cache pasta [--cache-limite MB]] [--metricas arquivo.json] <caminho_para_arquivo.java>");
+            return 1;
+        }
+        TokenCache cache;
+        try {
+            cache = abrirCache(argumentos, limiteCache, ambiente);
+        } catch (IOException e) {
+            e.printStackTrace(erros);
+            return 1;
+        }
+        if (argumentos.isEmpty()) {
+            erros.println("Uso: java principal.Main [--summary|--quiet] [--sem-pdf|--pdf arquivo.pdf] [--cache pasta [--cache-limite MB]] [--metricas arquivo.json] <caminho_para_arquivo.java>");
+            return 1;
+        }
+        ConsoleReporter.Nivel nivel = silencioso ? ConsoleReporter.Nivel.SILENCIOSO
+                : resumido ? ConsoleReporter.Nivel.RESUMO : ConsoleReporter.Nivel.COMPLETO;
+        boolean completo = nivel == ConsoleReporter.Nivel.COMPLETO;
+        String filePath = argumentos.get(0);
+        Path arquivo = ambiente.caminho(filePath);
+        AnaliseLote.ResumoArquivo resumo = new AnaliseLote.ResumoArquivo(arquivo);
+        Metricas metricas = new Metricas(filePath);
+
+        // O console é escrito por outra thread (ConsoleReporter), então a análise não espera o terminal
+        try (ConsoleReporter console = ConsoleReporter.saidaPadrao(nivel, ambiente)) {
             // PASSO 1: IMPRIMIR NO CONSOLE
-            System.out.println("--- Código Fonte Sendo Analisado ---");
-            System.out.println(sourceCode);
-            System.out.println("------------------------------------");
-
-            System.out.println("\n--- Lista de Tokens (Console) ---");
-            for (Token t : tokens) {
-                System.out.println(t);
+            if (completo) {
+                metricas.medir(Metricas.Fase.CONSOLE_CODIGO, () -> {
+                    console.println("--- Código Fonte Sendo Analisado ---");
+                    console.copiar(arquivo); // Copia o arquivo sem carregá-lo inteiro na memória
+                    console.println("");
+                    console.println("------------------------------------");
+                });
             }
-            tabela.print();
 
-            // PASSO 2: GERAR O PDF
-            try (PDDocument doc = new PDDocument()) {
-                File fontFile = new File("Roboto-VariableFont_wdth,wght.ttf");
-                if (!fontFile.exists()) {
-                    System.err.println(
-                            "AVISO: Fonte 'Roboto-VariableFont_wdth,wght.ttf' não encontrada. Use uma fonte padrão.");
-                    throw new IOException("Fonte Roboto não encontrada na pasta do projeto. Baixe-a e coloque-a lá.");
+            if (completo) console.println("\n--- Lista de Tokens (Console) ---");
+            Metricas.Cronometro leitura = metricas.medir(Metricas.Fase.LEITURA);
+            resumo.bytes = Files.size(arquivo);
+            TokenCache.Entrada entrada = cache != null ? cache.entrada(arquivo) : null;
+            TokenCache.Resultado guardado = entrada != null ? entrada.ler() : null;
+            TokenCache.Gravacao gravacao = guardado == null && entrada != null ? entrada.gravacao() : null;
+            SymbolTable tabela; //Criando e Populando tabela simbolica.
+            Diagnostics diagnosticos;
+            Iterator<Token> fonte;
+            if (guardado != null) { // Arquivo igual ao de uma análise anterior: nada passa pelo Lexer
+                tabela = guardado.tabela();
+                diagnosticos = guardado.diagnosticos();
+                fonte = guardado.tokens().iterator();
+            } else {
+                Lexer lexer = Lexer.deArquivoMapeado(arquivo); // Lê os bytes do arquivo mapeado, sem Reader
+                tabela = new SymbolTable(lexer.lexemas()); // os nomes internados pelo Lexer, sem outro pool
+                diagnosticos = lexer.diagnosticos();
+                fonte = lexer.iterator();
+            }
+            leitura.close();
+            // Cada token é impresso e entra na tabela de símbolos assim que é produzido;
+            // o PDF puxa as linhas da tabela de tokens desta mesma sequência, sem guardá-las.
+            // Cada etapa é cronometrada por amostragem (Metricas).
+            boolean novo = guardado == null;
+            Iterator<Token> tokens = metricas.fonte(Metricas.Fase.LEXER, fonte);
+            Iterator<List<String>> tokensLinhas = new Iterator<List<String>>() {
+                private List<String> proxima; // linha do PDF do próximo token (o EOF é processado, mas não vira linha)
+
+                @Override
+                public boolean hasNext() {
+                    while (proxima == null && tokens.hasNext()) {
+                        Token t = tokens.next();
+                        processar(t);
+                        if (t.tipo != TokenType.EOF) {
+                            proxima = List.of(String.valueOf(t.linha), String.valueOf(t.coluna), t.lexema, t.descricao());
+                        }
+                    }
+                    return proxima != null;
                 }
 
-                PDType0Font font = PDType0Font.load(doc, fontFile);
-                PDPage page = new PDPage(PDRectangle.LETTER);
-                doc.addPage(page);
-                PDPageContentStream content = new PDPageContentStream(doc, page);
-                float y = 700;
-                final float MARGEM = 50;
-
-                String titulo = "Analisador Léxico - Compiladores - AV3\n" +
-                        "Alunos(a): Gabriel Luiz Nascimento Barata, João Guilherme Sanches Brito, \nLaís Hillary Santos De Miranda, Paulo Avelino Neves Araujo";
-                y = escreverBlocoCentralizado(content, font, 14, page, y, titulo);
-                y = 630;
+                @Override
+                public List<String> next() {
+                    if (!hasNext()) throw new NoSuchElementException();
+                    List<String> linha = proxima;
+                    proxima = null;
+                    return linha;
+                }
 
-                // CÓDIGO FONTE
-                List<List<String>> codigoFonteLinhas = new ArrayList<>();
-                int linhaNum = 1;
-                for (String linha : sourceCode.replace("\r", "").split("\n")) {
-                    codigoFonteLinhas.add(List.of(String.valueOf(linhaNum), linha));
-                    linhaNum++;
+                private void processar(Token t) { // tabela, cache, resumo e console, cada etapa cronometrada
+                    long etapa = metricas.inicioAmostra();
+                    if (novo) {
+                        tabela.add(t);
+                        etapa = metricas.fimAmostra(Metricas.Fase.TABELA_SIMBOLOS, etapa);
+                    }
+                    if (gravacao != null) {
+                        gravacao.add(t);
+                        etapa = metricas.fimAmostra(Metricas.Fase.CACHE, etapa);
+                    }
+                    resumo.contar(t);
+                    if (completo) console.token(t);
+                    metricas.fimAmostra(Metricas.Fase.CONSOLE_TOKENS, etapa);
                 }
+            };
+
+            // PASSO 2: GERAR O PDF
+            if (semPdf) {
+                tokensLinhas.forEachRemaining(linha -> { });
+                concluirAnalise(resumo, diagnosticos, gravacao, metricas, erros);
+                imprimirTabela(console, tabela, resumo, metricas);
+                return 0;
+            }
+            File fontFile = ambiente.caminho(Relatorio.FONTE).toFile();
+            if (!fontFile.exists()) {
+                tokensLinhas.forEachRemaining(linha -> { }); // O console continua completo mesmo sem o PDF
+                concluirAnalise(resumo, diagnosticos, gravacao, metricas, erros);
+                imprimirTabela(console, tabela, resumo, metricas);
+                erros.println(
+                        "AVISO: Fonte 'Roboto-VariableFont_wdth,wght.ttf' não encontrada. Use uma fonte padrão.");
+                throw new IOException("Fonte Roboto não encontrada na pasta do projeto. Baixe-a e coloque-a lá.");
+            }
 
+            String titulo = "Analisador Léxico - Compiladores - AV3\n" +
+                    "Alunos(a): Gabriel Luiz Nascimento Barata, João Guilherme Sanches Brito, \nLaís Hillary Santos De Miranda, Paulo Avelino Neves Araujo";
+            Metricas.Cronometro abertura = metricas.medir(Metricas.Fase.PDF_ABRIR);
+            try (Relatorio relatorio = Relatorio.pdf(fontFile, arquivo, titulo)) {
+                abertura.close();
                 // TABELA 1 DO PDF: CÓDIGO FONTE
-                TabelaResult resultado = escreverCodigoFonte(doc, content, font, "Código Fonte",
-                        codigoFonteLinhas, y, MARGEM);
-                content = resultado.content;
-                y = resultado.y;
+                metricas.medir(Metricas.Fase.PDF_CODIGO, () -> relatorio.codigoFonte("Código Fonte", arquivo));
 
-                // LISTA DE TOKENS
-                List<List<String>> tokensLinhas = new ArrayList<>();
-                for (Token t : tokens) {
-                    if (t.tipo == analisador.core.TokenType.EOF)
-                        continue;
-                    tokensLinhas.add(List.of(
-                            String.valueOf(t.linha),
-                            String.valueOf(t.coluna),
-                            t.lexema,
-                            t.descricao));
+                // TABELA 2 DO PDF: LISTA DE TOKENS (puxa os tokens: o tempo das etapas por token é descontado)
+                try (Metricas.Cronometro c = metricas.medir(Metricas.Fase.PDF_TOKENS)) {
+                    long etapas = metricas.estimativaEtapas();
+                    relatorio.tabela("Lista de Tokens", List.of("Linha", "Col", "Lexema", "Descrição"), tokensLinhas);
+                    c.descontar(metricas.estimativaEtapas() - etapas);
                 }
-
-                // TABELA 2 DO PDF: LISTA DE TOKENS
-                resultado = escreverTabela(doc, content, font, "Lista de Tokens",
-                        List.of("Linha", "Col", "Lexema", "Descrição"), tokensLinhas, y - 30, MARGEM);
-                content = resultado.content;
-                y = resultado.y;
-
-                // TABELA DE SÍMBOLOS
-                List<List<String>> simbolosLinhas = tabela.getLinhasParaPDF();
+                concluirAnalise(resumo, diagnosticos, gravacao, metricas, erros); // todos os tokens já passaram
+                imprimirTabela(console, tabela, resumo, metricas);
 
                 // TABELA 3 DO PDF: TABELA DE SÍMBOLOS
-                resultado = escreverTabela(doc, content, font, "Tabela de Símbolos",
-                        List.of("ID", "Lexema", "Posição (Linha, Coluna)"), simbolosLinhas, y - 30, MARGEM);
-                content = resultado.content;
-                y = resultado.y;
+                metricas.medir(Metricas.Fase.PDF_SIMBOLOS, () -> {
+                    relatorio.tabela("Tabela de Símbolos", List.of("ID", "Lexema", "Posição (Linha, Coluna)"),
+                            tabela.linhasParaPDF());
+                });
+
+                // TABELA 4 DO PDF: DIAGNÓSTICOS (só quando há erros léxicos)
+                if (!diagnosticos.isEmpty()) {
+                    metricas.medir(Metricas.Fase.PDF_DIAGNOSTICOS, () -> {
+                        relatorio.tabela("Diagnósticos", List.of("Código", "Linha", "Col", "Mensagem"),
+                                linhasDiagnosticos(diagnosticos));
+                    });
+                }
 
-                content.close();
-                doc.save("saida_analisador_lexico.pdf");
+                metricas.medir(Metricas.Fase.PDF_SALVAR, () -> relatorio.salvar(ambiente.caminho(nomePdf).toString()));
             }
 
-            System.out.println("\nPDF gerado com sucesso: saida_analisador_lexico.pdf");
+            console.println("\nPDF gerado com sucesso: " + nomePdf);
 
-        } catch (IOException e) {
-            e.printStackTrace();
+        } catch (IOException | UncheckedIOException e) { // o Lexer de um arquivo mapeado lança UncheckedIOException
+            e.printStackTrace(erros);
+            return 1;
+        } finally {
+            metricas.contar(resumo);
+            metricas.concluir();
+            gravarMetricas(metricas, destinoMetricas, ambiente);
         }
+        return 0;
     }
 
-    public static float escreverBlocoCentralizado(
-            PDPageContentStream content,
-            PDType0Font font,
-            float fontSize,
-            PDPage page,
-            float y,
-            String texto) throws IOException {
-
-        float larguraPagina = page.getMediaBox().getWidth();
-
-        content.setFont(font, fontSize);
-
-        for (String linha : texto.split("\n")) {
-            float larguraTexto = font.getStringWidth(linha) / 1000 * fontSize;
-
-            float xCentral = (larguraPagina - larguraTexto) / 2;
-
-            content.beginText();
-            content.newLineAtOffset(xCentral, y);
-            content.showText(linha);
-            content.endText();
-
-            y -= fontSize + 4; // espaçamento entre linhas
+    // Depois do último token: conta e mostra os erros léxicos e grava a entrada nova do cache
+    private static void concluirAnalise(AnaliseLote.ResumoArquivo resumo, Diagnostics diagnosticos,
+            TokenCache.Gravacao gravacao, Metricas metricas, PrintStream erros) throws IOException {
+        resumo.erros = diagnosticos.total();
+        metricas.medir(Metricas.Fase.DIAGNOSTICOS, () -> erros.print(diagnosticos));
+        if (gravacao != null) {
+            metricas.medir(Metricas.Fase.CACHE, () -> {
+                if (!gravacao.concluir(diagnosticos)) erros.println("AVISO: resultado não guardado no cache (a entrada passaria de 2 GB).");
+            });
         }
-
-        return y; // devolve a nova altura
     }
 
-    private static class TabelaResult {
-        PDPageContentStream content;
-        float y;
-        TabelaResult(PDPageContentStream content, float y) {
-            this.content = content;
-            this.y = y;
+    // Resumo das métricas em JSON para "--metricas destino" ("-" = saída de erros); sem a opção, nada
+    static void gravarMetricas(Metricas metricas, String destino, Ambiente ambiente) {
+        if (destino == null) return;
+        try {
+            if (destino.equals("-")) {
+                StringBuilder texto = new StringBuilder();
+                metricas.escreverJson(texto);
+                ambiente.erros.print(texto);
+            } else {
+                try (Writer saida = Files.newBufferedWriter(ambiente.caminho(destino), StandardCharsets.UTF_8)) {
+                    metricas.escreverJson(saida);
+                }
+            }
+        } catch (IOException e) {
+            ambiente.erros.println("AVISO: métricas não gravadas em '" + destino + "': " + e.getMessage());
         }
     }
 
-    // MÉTODO DE DESIGN DA "CAIXA DE CÓDIGO"
-    private static TabelaResult escreverCodigoFonte(PDDocument doc, PDPageContentStream content, PDType0Font font,
-            String titulo, List<List<String>> linhasCodigo, float y, float margem) throws IOException {
-
-        final float ALTURA_LINHA = 12; // Espaçamento entre linhas do código
-        final float ESPACO_NUM_CODIGO = 10; // Espaço reduzido entre número e código
-        final float PADDING_CAIXA = 12; // Espaço interno da caixa
-
-        content.beginText();
-        content.setFont(font, 14);
-        content.newLineAtOffset(margem, y);
-        content.showText(titulo);
-        content.endText();
-        y -= 10;
-
-        float yInicioCaixa = y; // Guarda o Y inicial antes de desenhar o código
-        float xInicioCaixa = margem - PADDING_CAIXA; // X da caixa começa um pouco antes da margem do texto
-        float larguraCaixa = PDRectangle.LETTER.getWidth() - (margem - PADDING_CAIXA) * 2; // Largura da caixa até a
-                                                                                           // outra margem
-        float yAtual = y - PADDING_CAIXA; // Y inicial do texto dentro da caixa
-
-        content.setFont(font, 9);
-        for (List<String> linha : linhasCodigo) {
-            if (yAtual - ALTURA_LINHA < margem) {
-                content.addRect(xInicioCaixa, yAtual, larguraCaixa, yInicioCaixa - yAtual);
-                content.stroke();
+    private static Iterator<List<String>> linhasDiagnosticos(Diagnostics diagnosticos) {
+        List<List<String>> linhas = new ArrayList<>();
+        for (Diagnostics.Diagnostico d : diagnosticos) {
+            linhas.add(List.of(d.codigo.id, String.valueOf(d.linha), String.valueOf(d.coluna), d.mensagem()));
+        }
+        if (diagnosticos.naoGuardados() > 0) {
+            linhas.add(List.of("", "", "", "... mais " + diagnosticos.naoGuardados() + " não mostrados"));
+        }
+        return linhas.iterator();
+    }
 
-                content.close();
-                PDPage page = new PDPage(PDRectangle.LETTER);
-                doc.addPage(page);
-                content = new PDPageContentStream(doc, page);
-                content.setFont(font, 9);
-                y = 750;
-                yInicioCaixa = y;
-                yAtual = y - PADDING_CAIXA;
+    // Tabela de Símbolos no console (menos no --quiet) e, no --summary, uma linha com os totais
+    private static void imprimirTabela(ConsoleReporter console, SymbolTable tabela, AnaliseLote.ResumoArquivo resumo,
+            Metricas metricas) throws IOException {
+        if (console.nivel == ConsoleReporter.Nivel.SILENCIOSO) return;
+        metricas.medir(Metricas.Fase.CONSOLE_SIMBOLOS, () -> {
+            tabela.print(console);
+            if (console.nivel == ConsoleReporter.Nivel.RESUMO) {
+                console.println(String.format("Resumo: %d linhas, %d tokens (%d identificadores), %d símbolos, %d erros léxicos",
+                        resumo.linhas, resumo.tokens, resumo.identificadores, tabela.size(), resumo.erros));
             }
+        });
+    }
 
-            String numLinha = linha.get(0);
-            String conteudoLinha = linha.get(1);
-
-            content.beginText();
-            content.newLineAtOffset(margem, yAtual);
-            content.showText(numLinha);
-
-            float xCodigo = margem + font.getStringWidth(numLinha) / 1000 * 9 + ESPACO_NUM_CODIGO;
-            content.newLineAtOffset(xCodigo - margem, 0);
-
-            float larguraDisponivelTexto = larguraCaixa - (xCodigo - xInicioCaixa) - PADDING_CAIXA * 2;
-            int maxChars = (int) (larguraDisponivelTexto / (font.getStringWidth("W") / 1000 * 9)); // Estimativa de
-                                                                                                   // caracteres
-            String textoLinha = (conteudoLinha != null && conteudoLinha.length() > maxChars && maxChars > 3)
-                    ? conteudoLinha.substring(0, maxChars - 3) + "..."
-                    : conteudoLinha;
-            content.showText(textoLinha);
-            content.endText();
-
-            yAtual -= ALTURA_LINHA;
+    // Grava os tokens do arquivo dos 'tipos' pedidos (todos, inclusive o EOF, sem --tipos) e depois os
+    // diagnósticos no TokenSink do formato pedido
+    private static void exportarTokens(String nome, String formato, EnumSet<TokenType> tipos, String destino,
+            String destinoMetricas, Ambiente ambiente) throws IOException {
+        Path arquivo = ambiente.caminho(nome);
+        OutputStream saida = destino != null
+                ? Files.newOutputStream(ambiente.caminho(destino))
+                : new SemFechar(ambiente.saida); // sem o PrintStream do System.out no caminho
+        Metricas metricas = new Metricas(nome);
+        AnaliseLote.ResumoArquivo resumo = new AnaliseLote.ResumoArquivo(arquivo);
+        try (TokenSink sink = TokenSink.abrir(formato, saida)) {
+            Metricas.Cronometro leitura = metricas.medir(Metricas.Fase.LEITURA);
+            resumo.bytes = Files.size(arquivo);
+            Lexer lexer = Lexer.deArquivoMapeado(arquivo);
+            lexer.filtrar(tipos);
+            Iterator<Token> tokens = metricas.fonte(Metricas.Fase.LEXER, lexer.iterator());
+            leitura.close();
+            while (tokens.hasNext()) {
+                Token t = tokens.next();
+                long inicio = metricas.inicioAmostra();
+                resumo.contar(t);
+                sink.escrever(t);
+                metricas.fimAmostra(Metricas.Fase.SAIDA, inicio);
+            }
+            for (Diagnostics.Diagnostico d : lexer.diagnosticos()) sink.escrever(d);
+        } finally {
+            metricas.contar(resumo);
+            metricas.concluir();
+            gravarMetricas(metricas, destinoMetricas, ambiente);
         }
-
-        content.addRect(xInicioCaixa, yAtual - PADDING_CAIXA, larguraCaixa, yInicioCaixa - (yAtual - PADDING_CAIXA));
-        content.stroke();
-
-        return new TabelaResult(content, yAtual - PADDING_CAIXA);
     }
 
-    // MÉTODO DE DESIGN DAS TABELAS (Tokens e Símbolos)
-    private static TabelaResult escreverTabela(PDDocument doc, PDPageContentStream content, PDType0Font font,
-            String titulo, List<String> cabecalho, List<List<String>> linhas, float y, float margem)
-            throws IOException {
-
-        final float ALTURA_CELULA = 15;
-        final float PADDING_CELULA = 3;
-
-        float larguraTotalPagina = PDRectangle.LETTER.getWidth() - 2 * margem;
-        int numColunas = cabecalho.size();
-
-        float[] largurasColunas = new float[numColunas];
+    // Os tipos de "--tipos A,B,..." (nomes do TokenType), ou null se algum nome não existe
+    private static EnumSet<TokenType> lerTipos(String lista) {
+        EnumSet<TokenType> tipos = EnumSet.noneOf(TokenType.class);
+        for (String nome : lista.split(",")) {
+            try {
+                tipos.add(TokenType.valueOf(nome.trim().toUpperCase(Locale.ROOT)));
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+        }
+        return tipos;
+    }
 
-        if (titulo.equals("Lista de Tokens")) {
-            largurasColunas[0] = larguraTotalPagina * 0.1f; // Linha
-            largurasColunas[1] = larguraTotalPagina * 0.1f; // Col
-            largurasColunas[2] = larguraTotalPagina * 0.3f; // Lexema
-            largurasColunas[3] = larguraTotalPagina * 0.5f; // Descrição
-        } else if (titulo.equals("Tabela de Símbolos")) {
-            largurasColunas[0] = larguraTotalPagina * 0.1f; // ID
-            largurasColunas[1] = larguraTotalPagina * 0.4f; // Lexema
-            largurasColunas[2] = larguraTotalPagina * 0.5f; // Primeira Aparição
-        } else {
-            float larguraPadrao = larguraTotalPagina / numColunas;
-            for (int i = 0; i < numColunas; i++)
-                largurasColunas[i] = larguraPadrao;
+    // O limite de "--cache-limite MB" em bytes (TokenCache.LIMITE_PADRAO sem a opção), ou -1 se o valor não é
+    // um número de MB maior que zero
+    private static long lerLimiteCache(List<String> argumentos) {
+        String limite = extrairOpcao(argumentos, "--cache-limite");
+        if (limite == null) return TokenCache.LIMITE_PADRAO;
+        try {
+            long megabytes = Long.parseLong(limite.trim());
+            return megabytes > 0 && megabytes <= Long.MAX_VALUE / (1024 * 1024) ? megabytes * 1024 * 1024 : -1;
+        } catch (NumberFormatException e) {
+            return -1;
         }
+    }
 
-        float xStart = margem;
-        final Color AZUL_ESCURO = new Color(0x051b2b);
+    // Cache de tokens da opção "--cache pasta", ou null sem ela
+    private static TokenCache abrirCache(List<String> argumentos, long limite, Ambiente ambiente) throws IOException {
+        String pasta = extrairOpcao(argumentos, "--cache");
+        if (pasta == null) return null;
+        return new TokenCache(ambiente.caminho(pasta), limite);
+    }
 
-        // Título
-        content.beginText();
-        content.setFont(font, 14);
-        content.newLineAtOffset(margem, y);
-        content.showText(titulo);
-        content.endText();
-        y -= 10;
+    // Remove "--nome valor" da lista de argumentos e devolve o valor (ou null se a opção não veio)
+    private static String extrairOpcao(List<String> argumentos, String nome) {
+        int i = argumentos.indexOf(nome);
+        if (i < 0 || i + 1 >= argumentos.size()) return null;
+        String valor = argumentos.remove(i + 1);
+        argumentos.remove(i);
+        return valor;
+    }
 
-        // Cabeçalho
-        content.setNonStrokingColor(AZUL_ESCURO);
-        content.addRect(xStart, y - ALTURA_CELULA, larguraTotalPagina, ALTURA_CELULA);
-        content.fill();
-        content.setNonStrokingColor(Color.WHITE);
-        desenharLinhasVerticaisCorrigido(content, xStart, y, ALTURA_CELULA, largurasColunas);
-        content.moveTo(xStart, y - ALTURA_CELULA);
-        content.lineTo(xStart + larguraTotalPagina, y - ALTURA_CELULA);
-        content.stroke();
-        content.setFont(font, 10);
-        float xAtual = xStart;
-        for (int i = 0; i < numColunas; i++) {
-            content.beginText();
-            content.newLineAtOffset(xAtual + PADDING_CELULA, y - ALTURA_CELULA + 4);
-            content.showText(cabecalho.get(i));
-            content.endText();
-            xAtual += largurasColunas[i];
+    // A saída do Ambiente quando não há "--saida": o TokenSink fecha o seu destino, mas a saída padrão
+    // (ou o Bloco do cliente no Servidor) não é dele, então fechar aqui só descarrega
+    private static final class SemFechar extends FilterOutputStream {
+        SemFechar(OutputStream saida) {
+            super(saida);
         }
-        y -= ALTURA_CELULA;
 
-        content.setFont(font, 8);
-        for (List<String> linha : linhas) {
-            if (y < margem) {
-                content.close();
-                PDPage page = new PDPage(PDRectangle.LETTER);
-                doc.addPage(page);
-                content = new PDPageContentStream(doc, page);
-                content.setFont(font, 8);
-                y = 750;
-            }
-
-            content.setNonStrokingColor(Color.BLACK);
-            desenharLinhasVerticaisCorrigido(content, xStart, y, ALTURA_CELULA, largurasColunas);
-            content.moveTo(xStart, y - ALTURA_CELULA);
-            content.lineTo(xStart + larguraTotalPagina, y - ALTURA_CELULA);
-            content.stroke();
-
-            xAtual = xStart;
-            for (int i = 0; i < numColunas; i++) {
-                String celula = (i < linha.size()) ? linha.get(i) : "";
-                content.beginText();
-                content.newLineAtOffset(xAtual + PADDING_CELULA, y - ALTURA_CELULA + 4);
-                int maxChars = (int) (largurasColunas[i] / 4);
-                String textoCelula = (celula != null && celula.length() > maxChars)
-                        ? celula.substring(0, maxChars - 3) + "..."
-                        : celula;
-                content.showText(textoCelula);
-                content.endText();
-                xAtual += largurasColunas[i];
-            }
-            y -= ALTURA_CELULA;
+        @Override
+        public void write(byte[] bytes, int inicio, int tamanho) throws IOException {
+            out.write(bytes, inicio, tamanho); // o FilterOutputStream escreveria um byte por vez
         }
-        return new TabelaResult(content, y);
-    }
 
-    // MÉTODO PARA DESENHAR LINHAS
-    private static void desenharLinhasVerticaisCorrigido(PDPageContentStream content, float xStart, float y,
-            float altura, float[] largurasColunas) throws IOException {
-        content.moveTo(xStart, y);
-        content.lineTo(xStart, y - altura);
-        content.stroke();
-        float xAtual = xStart;
-        for (int i = 0; i < largurasColunas.length; i++) {
-            xAtual += largurasColunas[i];
-            content.moveTo(xAtual, y);
-            content.lineTo(xAtual, y - altura);
-            content.stroke();
+        @Override
+        public void close() throws IOException {
+            out.flush();
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,352 @@
+/*
+Esta classe mede onde o tempo de uma execução é gasto, sem precisar de um profiler.
+    - Fases curtas e separadas (ler o arquivo, cada tabela do PDF, o relatório) são
+      cronometradas inteiras com medir(), que também gera um evento JFR.
+    - As etapas por token (Lexer, Tabela de Símbolos, console, cache) acontecem todas
+      no mesmo laço, token a token. Cronometrar cada chamada custaria mais que a própria
+      etapa, então só 1 em cada AMOSTRA tokens é cronometrado (o mesmo token em todas as
+      etapas) e o tempo da etapa é estimado pela média das amostras vezes o número de
+      tokens. Os outros tokens custam um incremento e um teste.
+    - As contagens por TokenType, bytes e tokens vêm do ResumoArquivo, que já conta
+      cada token; no fim saem bytes/s e tokens/s.
+    - Com uma gravação JFR ativa (ex.: -XX:StartFlightRecording), cada fase gera um
+      evento "analisador.Fase" e o fim da análise gera "analisador.Resumo" e um
+      "analisador.TiposDeToken" por tipo. Sem gravação os eventos não custam nada.
+    - escreverJson() grava o resumo em uma linha de JSON (opção --metricas).
+A amostragem é de uma thread só; no modo lote cada arquivo tem as suas Metricas,
+juntadas às do lote com juntar(), como as tabelas de símbolos locais.
+*/
+
+package principal;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Locale;
+
+import analisador.core.TokenType;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+final class Metricas {
+    static final int AMOSTRA = 64; // potência de 2: 1 token cronometrado em cada AMOSTRA
+
+    enum Fase {
+        LEITURA("leitura"), // abrir/mapear o arquivo e consultar o cache
+        CONSOLE_CODIGO("console.codigo"),
+        LEXER("lexer"), // produzir os tokens (do Lexer ou do TokenCache)
+        TABELA_SIMBOLOS("tabelaSimbolos"),
+        CONSOLE_TOKENS("console.tokens"), // contar e entregar cada token ao ConsoleReporter
+        CACHE("cache"), // gravar a entrada nova do TokenCache
+        DIAGNOSTICOS("diagnosticos"),
+        CONSOLE_SIMBOLOS("console.simbolos"),
+        PDF_ABRIR("pdf.abrir"), // carregar o PDFBox e a fonte, criar o documento
+        PDF_CODIGO("pdf.codigo"),
+        PDF_TOKENS("pdf.tokens"), // só o desenho: as etapas por token puxadas pela tabela são descontadas
+        PDF_SIMBOLOS("pdf.simbolos"),
+        PDF_DIAGNOSTICOS("pdf.diagnosticos"),
+        PDF_SALVAR("pdf.salvar"),
+        SAIDA("saida"), // TokenSink do --formato
+        DESCOBERTA("descoberta"), // procurar os arquivos do lote
+        TABELA_GLOBAL("tabelaGlobal"), // juntar as tabelas locais à global
+        RELATORIO("relatorio");
+
+        final String nome;
+
+        Fase(String nome) {
+            this.nome = nome;
+        }
+    }
+
+    private static final Fase[] FASES = Fase.values();
+
+    private final String origem; // arquivo (ou "lote")
+    private final long criacao = System.nanoTime();
+    private final long[] nanos = new long[FASES.length]; // medidos inteiros
+    // Etapas por token (amostradas)
+    private final long[] nanosAmostrados = new long[FASES.length];
+    private final long[] amostras = new long[FASES.length];
+    private long tokensVistos = 0; // cada etapa por token é chamada uma vez por token
+    private boolean amostrando = false;
+    private long estimadas = 0; // bits das fases somadas (ao menos em parte) de amostras de outras Metricas
+
+    private long bytes;
+    private long tokens;
+    private long arquivos;
+    private final long[] porTipo = new long[TokenType.values().length];
+    private long duracao = -1; // definida em concluir()
+
+    Metricas(String origem) {
+        this.origem = origem;
+    }
+
+    // FASES INTEIRAS: metricas.medir(Fase.PDF_CODIGO, () -> ...), ou, quando a fase não cabe
+    // em um lambda (descontar(), variáveis atribuídas dentro), Cronometro c = metricas.medir(Fase.X)
+    // e c.close() no fim
+    Cronometro medir(Fase fase) {
+        return new Cronometro(fase);
+    }
+
+    void medir(Fase fase, Trecho trecho) throws IOException {
+        Cronometro cronometro = new Cronometro(fase);
+        try {
+            trecho.executar();
+        } finally {
+            cronometro.close();
+        }
+    }
+
+    @FunctionalInterface
+    interface Trecho {
+        void executar() throws IOException;
+    }
+
+    final class Cronometro implements AutoCloseable {
+        private final Fase fase;
+        private final EventoFase evento = new EventoFase();
+        private final long inicio;
+        private long descontar = 0;
+
+        private Cronometro(Fase fase) {
+            this.fase = fase;
+            evento.begin();
+            this.inicio = System.nanoTime();
+        }
+
+        // Desconta do tempo desta fase o que as etapas por token (amostradas) gastaram dentro dela
+        void descontar(long nanos) {
+            descontar += nanos;
+        }
+
+        @Override
+        public void close() {
+            long gasto = Math.max(0, System.nanoTime() - inicio - descontar);
+            adicionar(fase, gasto);
+            evento.end();
+            if (evento.shouldCommit()) {
+                evento.fase = fase.nome;
+                evento.origem = origem;
+                evento.nanos = gasto;
+                evento.estimado = false;
+                evento.commit();
+            }
+        }
+    }
+
+    synchronized void adicionar(Fase fase, long gasto) {
+        nanos[fase.ordinal()] += gasto;
+    }
+
+    // ETAPAS POR TOKEN (amostradas, uma thread)
+    // Os tokens de 'fonte' passam a ser contados e 1 em cada AMOSTRA tem o next() cronometrado
+    <T> Iterator<T> fonte(Fase fase, Iterator<T> tokens) {
+        int f = fase.ordinal();
+        return new Iterator<T>() {
+            @Override
+            public boolean hasNext() {
+                return tokens.hasNext();
+            }
+
+            @Override
+            public T next() {
+                // O primeiro token nunca é amostrado: ele paga a carga de classes e a preparação da fonte,
+                // que multiplicadas por AMOSTRA distorceriam a estimativa de arquivos pequenos
+                amostrando = (++tokensVistos & (AMOSTRA - 1)) == 0;
+                if (!amostrando) return tokens.next();
+                long inicio = System.nanoTime();
+                T token = tokens.next();
+                nanosAmostrados[f] += System.nanoTime() - inicio;
+                amostras[f]++;
+                return token;
+            }
+        };
+    }
+
+    // No laço, depois de cada token de 'fonte': long t = inicioAmostra(); etapa1; t = fimAmostra(Fase.X, t); etapa2; ...
+    // Fora do token amostrado não há relógio nem contagem.
+    long inicioAmostra() {
+        return amostrando ? System.nanoTime() : 0;
+    }
+
+    long fimAmostra(Fase fase, long inicio) { // devolve o início da etapa seguinte
+        if (!amostrando) return 0;
+        long agora = System.nanoTime();
+        nanosAmostrados[fase.ordinal()] += agora - inicio;
+        amostras[fase.ordinal()]++;
+        return agora;
+    }
+
+    private long estimativa(int f) {
+        return amostras[f] == 0 ? 0 : (long) ((double) nanosAmostrados[f] * tokensVistos / amostras[f]);
+    }
+
+    long estimativaEtapas() { // soma das estimativas de todas as etapas por token até agora
+        long total = 0;
+        for (int f = 0; f < FASES.length; f++) total += estimativa(f);
+        return total;
+    }
+
+    // TOTAIS
+    void contar(AnaliseLote.ResumoArquivo resumo) { // bytes, tokens e tokens por tipo de um arquivo analisado
+        bytes += resumo.bytes;
+        tokens += resumo.tokens;
+        arquivos++;
+        for (int i = 0; i < porTipo.length; i++) porTipo[i] += resumo.porTipo[i];
+    }
+
+    synchronized void juntar(Metricas outra) { // soma as fases e os totais de outras Metricas (já concluídas)
+        for (int f = 0; f < FASES.length; f++) {
+            nanos[f] += outra.nanos[f] + outra.estimativa(f);
+            if (outra.amostras[f] > 0) estimadas |= 1L << f;
+        }
+        estimadas |= outra.estimadas;
+        bytes += outra.bytes;
+        tokens += outra.tokens;
+        arquivos += outra.arquivos;
+        for (int i = 0; i < porTipo.length; i++) porTipo[i] += outra.porTipo[i];
+    }
+
+    // Fecha a medição: gera os eventos das etapas amostradas e do resumo
+    synchronized void concluir() {
+        duracao = System.nanoTime() - criacao;
+        for (Fase fase : FASES) {
+            int f = fase.ordinal();
+            if (amostras[f] == 0) continue;
+            EventoFase evento = new EventoFase();
+            if (evento.shouldCommit()) {
+                evento.fase = fase.nome;
+                evento.origem = origem;
+                evento.nanos = estimativa(f);
+                evento.estimado = true;
+                evento.commit();
+            }
+        }
+        EventoResumo resumo = new EventoResumo();
+        if (resumo.shouldCommit()) {
+            resumo.origem = origem;
+            resumo.arquivos = arquivos;
+            resumo.bytes = bytes;
+            resumo.tokens = tokens;
+            resumo.nanos = duracao;
+            resumo.bytesPorSegundo = porSegundo(bytes);
+            resumo.tokensPorSegundo = porSegundo(tokens);
+            resumo.commit();
+        }
+        for (TokenType tipo : TokenType.values()) {
+            if (porTipo[tipo.ordinal()] == 0) continue;
+            EventoTipoToken evento = new EventoTipoToken();
+            if (!evento.shouldCommit()) break;
+            evento.origem = origem;
+            evento.tipo = tipo.name();
+            evento.quantidade = porTipo[tipo.ordinal()];
+            evento.commit();
+        }
+    }
+
+    private double porSegundo(long quantidade) {
+        return duracao > 0 ? quantidade * 1e9 / duracao : 0;
+    }
+
+    // Uma linha de JSON com o resumo (depois de concluir()):
+    // {"origem":..,"arquivos":..,"bytes":..,"tokens":..,"nanos":..,"bytesPorSegundo":..,"tokensPorSegundo":..,
+    //  "fases":{"lexer":{"nanos":..,"estimado":true},..},"tiposDeToken":{"IDENTIFICADOR":..,..}}
+    synchronized void escreverJson(Appendable destino) throws IOException {
+        destino.append("{\"origem\":");
+        textoJson(destino, origem);
+        destino.append(",\"arquivos\":").append(String.valueOf(arquivos))
+                .append(",\"bytes\":").append(String.valueOf(bytes))
+                .append(",\"tokens\":").append(String.valueOf(tokens))
+                .append(",\"nanos\":").append(String.valueOf(duracao))
+                .append(",\"bytesPorSegundo\":").append(String.format(Locale.ROOT, "%.1f", porSegundo(bytes)))
+                .append(",\"tokensPorSegundo\":").append(String.format(Locale.ROOT, "%.1f", porSegundo(tokens)))
+                .append(",\"fases\":{");
+        boolean primeira = true;
+        for (Fase fase : FASES) {
+            int f = fase.ordinal();
+            boolean estimado = amostras[f] > 0 || (estimadas & (1L << f)) != 0;
+            long total = nanos[f] + estimativa(f);
+            if (total == 0 && !estimado) continue;
+            if (!primeira) destino.append(',');
+            primeira = false;
+            destino.append('"').append(fase.nome).append("\":{\"nanos\":").append(String.valueOf(total))
+                    .append(",\"estimado\":").append(String.valueOf(estimado)).append('}');
+        }
+        destino.append("},\"tiposDeToken\":{");
+        primeira = true;
+        for (TokenType tipo : TokenType.values()) {
+            if (porTipo[tipo.ordinal()] == 0) continue;
+            if (!primeira) destino.append(',');
+            primeira = false;
+            destino.append('"').append(tipo.name()).append("\":").append(String.valueOf(porTipo[tipo.ordinal()]));
+        }
+        destino.append("}}").append(System.lineSeparator());
+    }
+
+    private static void textoJson(Appendable destino, String texto) throws IOException {
+        destino.append('"');
+        for (int i = 0; i < texto.length(); i++) {
+            char c = texto.charAt(i);
+            if (c == '"' || c == '\\') destino.append('\\').append(c);
+            else if (c < ' ') destino.append(String.format("\\u%04x", (int) c));
+            else destino.append(c);
+        }
+        destino.append('"');
+    }
+
+    // EVENTOS JFR
+    @Name("analisador.Fase")
+    @Label("Fase da análise")
+    @Category("Analisador Léxico")
+    @StackTrace(false)
+    static final class EventoFase extends Event {
+        @Label("Fase")
+        String fase;
+        @Label("Origem")
+        String origem;
+        @Label("Tempo gasto")
+        @Timespan(Timespan.NANOSECONDS)
+        long nanos;
+        @Label("Estimado por amostragem")
+        boolean estimado;
+    }
+
+    @Name("analisador.Resumo")
+    @Label("Resumo da análise")
+    @Category("Analisador Léxico")
+    @StackTrace(false)
+    static final class EventoResumo extends Event {
+        @Label("Origem")
+        String origem;
+        @Label("Arquivos")
+        long arquivos;
+        @Label("Bytes")
+        @DataAmount
+        long bytes;
+        @Label("Tokens")
+        long tokens;
+        @Label("Duração")
+        @Timespan(Timespan.NANOSECONDS)
+        long nanos;
+        @Label("Bytes por segundo")
+        double bytesPorSegundo;
+        @Label("Tokens por segundo")
+        double tokensPorSegundo;
+    }
+
+    @Name("analisador.TiposDeToken")
+    @Label("Tokens por tipo")
+    @Category("Analisador Léxico")
+    @StackTrace(false)
+    static final class EventoTipoToken extends Event {
+        @Label("Origem")
+        String origem;
+        @Label("Tipo")
+        String tipo;
+        @Label("Quantidade")
+        long quantidade;
+    }
+}
@@ -0,0 +1,184 @@
+/*
+Esta classe escreve os comandos de desenho de um trecho de página, em memória.
+    - Todo o texto vai para um único objeto de texto (BT ... ET), com posições relativas
+      (Td) e troca de tamanho ou cor só quando ela muda de fato.
+    - As linhas e retângulos da grade são guardados e desenhados no fim como um único
+      caminho, com um único stroke, em vez de um stroke por linha de cada célula.
+O trecho não depende do PDDocument (a fonte é referida pelo nome FonteRelatorio.NOME),
+então vários trechos podem ser montados ao mesmo tempo, cada um na sua thread; quem
+monta o documento pega o conteudo() depois de terminar() e o anexa à página certa.
+*/
+
+package principal;
+
+import java.awt.Color;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+class PaginaEmLote {
+    private final FonteRelatorio fonte;
+    private final StringBuilder saida = new StringBuilder(16 * 1024);
+    private final Set<Integer> usados = new HashSet<>(); // caracteres que precisam estar no subconjunto da fonte
+    private byte[] conteudo;
+
+    // Texto
+    private boolean textoAberto = false;
+    private float xLinha, yLinha; // início da última linha de texto (Td é relativo a ele)
+    private float tamanhoAtual;
+    private Color corAtual;
+
+    // Grade: segmentos (x1, y1, x2, y2) e retângulos (x, y, largura, altura)
+    private float[] segmentos = new float[64];
+    private int numSegmentos = 0;
+    private float[] retangulos = new float[8];
+    private int numRetangulos = 0;
+
+    PaginaEmLote(FonteRelatorio fonte) {
+        this.fonte = fonte;
+        saida.append("q\n"); // o trecho não deixa estado gráfico para o próximo
+    }
+
+    void texto(float tamanho, float x, float y, String texto) throws IOException {
+        if (!textoAberto) {
+            saida.append("BT\n");
+            textoAberto = true;
+            xLinha = 0;
+            yLinha = 0;
+            tamanhoAtual = 0;
+        }
+        if (tamanho != tamanhoAtual) {
+            saida.append('/').append(FonteRelatorio.NOME.getName()).append(' ');
+            numero(tamanho);
+            saida.append(" Tf\n");
+            tamanhoAtual = tamanho;
+        }
+        numero(x - xLinha);
+        saida.append(' ');
+        numero(y - yLinha);
+        saida.append(" Td\n");
+        xLinha = x;
+        yLinha = y;
+        saida.append('<');
+        for (int i = 0; i < texto.length(); ) {
+            int codigo = texto.codePointAt(i);
+            saida.append(fonte.hexa(codigo));
+            usados.add(codigo);
+            i += Character.charCount(codigo);
+        }
+        saida.append("> Tj\n");
+    }
+
+    void cor(Color cor) { // cor do texto
+        if (!cor.equals(corAtual)) {
+            definirCor(cor);
+        }
+    }
+
+    // Retângulo preenchido, desenhado na hora (fora do objeto de texto)
+    void preencher(float x, float y, float largura, float altura, Color cor) {
+        fecharTexto();
+        definirCor(cor);
+        numero(x);
+        saida.append(' ');
+        numero(y);
+        saida.append(' ');
+        numero(largura);
+        saida.append(' ');
+        numero(altura);
+        saida.append(" re\nf\n");
+    }
+
+    void linha(float x1, float y1, float x2, float y2) {
+        if (numSegmentos + 4 > segmentos.length) segmentos = Arrays.copyOf(segmentos, segmentos.length * 2);
+        segmentos[numSegmentos++] = x1;
+        segmentos[numSegmentos++] = y1;
+        segmentos[numSegmentos++] = x2;
+        segmentos[numSegmentos++] = y2;
+    }
+
+    void retangulo(float x, float y, float largura, float altura) {
+        if (numRetangulos + 4 > retangulos.length) retangulos = Arrays.copyOf(retangulos, retangulos.length * 2);
+        retangulos[numRetangulos++] = x;
+        retangulos[numRetangulos++] = y;
+        retangulos[numRetangulos++] = largura;
+        retangulos[numRetangulos++] = altura;
+    }
+
+    // Fecha o objeto de texto, desenha toda a grade de uma vez e fecha o conteúdo do trecho
+    void terminar() {
+        fecharTexto();
+        if (numSegmentos > 0 || numRetangulos > 0) {
+            for (int i = 0; i < numRetangulos; i += 4) {
+                numero(retangulos[i]);
+                saida.append(' ');
+                numero(retangulos[i + 1]);
+                saida.append(' ');
+                numero(retangulos[i + 2]);
+                saida.append(' ');
+                numero(retangulos[i + 3]);
+                saida.append(" re\n");
+            }
+            for (int i = 0; i < numSegmentos; i += 4) {
+                numero(segmentos[i]);
+                saida.append(' ');
+                numero(segmentos[i + 1]);
+                saida.append(" m\n");
+                numero(segmentos[i + 2]);
+                saida.append(' ');
+                numero(segmentos[i + 3]);
+                saida.append(" l\n");
+            }
+            saida.append("S\n");
+            numSegmentos = 0;
+            numRetangulos = 0;
+        }
+        saida.append("Q\n");
+        conteudo = saida.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    byte[] conteudo() {
+        return conteudo;
+    }
+
+    Set<Integer> usados() {
+        return usados;
+    }
+
+    private void fecharTexto() {
+        if (textoAberto) {
+            saida.append("ET\n");
+            textoAberto = false;
+        }
+    }
+
+    private void definirCor(Color cor) {
+        numero(cor.getRed() / 255f);
+        saida.append(' ');
+        numero(cor.getGreen() / 255f);
+        saida.append(' ');
+        numero(cor.getBlue() / 255f);
+        saida.append(" rg\n");
+        corAtual = cor;
+    }
+
+    // Número com até 4 casas decimais, sem zeros à direita (sempre o mesmo texto para o mesmo valor)
+    private void numero(float valor) {
+        long escalado = Math.round(valor * 10000.0);
+        if (escalado < 0) {
+            saida.append('-');
+            escalado = -escalado;
+        }
+        saida.append(escalado / 10000);
+        long fracao = escalado % 10000;
+        if (fracao != 0) {
+            saida.append('.');
+            for (long casa = 1000; fracao != 0; casa /= 10) {
+                saida.append((char) ('0' + fracao / casa));
+                fracao %= casa;
+            }
+        }
+    }
+}
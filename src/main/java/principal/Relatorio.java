@@ -0,0 +1,34 @@
+/*
+Esta interface é o relatório da análise (hoje só em PDF), visto pelo Main.
+O Main só conhece a interface: as classes do PDFBox (e a fonte) só são carregadas
+quando pdf() é chamado, então uma execução sem PDF (--sem-pdf, --formato, --lote)
+não paga por elas.
+*/
+
+package principal;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+interface Relatorio extends Closeable {
+    String FONTE = "Roboto-VariableFont_wdth,wght.ttf";
+    String SAIDA = "saida_analisador_lexico.pdf";
+
+    // TABELA 1: CÓDIGO FONTE (lido linha a linha do 'arquivo')
+    void codigoFonte(String titulo, Path arquivo) throws IOException;
+
+    // Uma tabela com as linhas na ordem em que chegam (consumidas aos poucos)
+    void tabela(String titulo, List<String> cabecalho, Iterator<List<String>> linhas) throws IOException;
+
+    void salvar(String arquivo) throws IOException;
+
+    // O relatório em PDF; 'codigo' é o arquivo analisado (decide se a fonte reduzida do CacheFonte serve)
+    static Relatorio pdf(File arquivoFonte, Path codigo, String titulo) throws IOException {
+        return new RelatorioPdf(CacheFonte.abrir(arquivoFonte, codigo), titulo, ForkJoinPool.commonPool());
+    }
+}
@@ -0,0 +1,445 @@
+/*
+Esta classe gera o relatório em PDF (código-fonte, lista de tokens e tabela de símbolos).
+Ela foi pensada para entradas grandes:
+    - As linhas das tabelas chegam por um Iterator e são consumidas assim que chegam,
+      então nenhuma lista com todas as linhas (ou todos os tokens) é montada antes.
+    - O documento usa o cache de streams do PDFBox com arquivo temporário
+      (MemoryUsageSetting.setupMixed): até LIMITE_MEMORIA bytes ficam na memória e o
+      resto vai para o disco, então o conteúdo das páginas já escritas não fica no heap.
+    - As páginas são desenhadas em paralelo: a thread principal só decide a paginação
+      (quais linhas caem em cada página, com a mesma conta de antes) e entrega cada trecho
+      de página ao pool; os trechos prontos são anexados ao documento na ordem em que
+      foram pedidos, então o PDF sai igual ao de uma execução sequencial.
+    - No máximo EM_VOO_POR_THREAD trechos por thread ficam pendentes, para a memória
+      não crescer quando o pool é mais lento que a leitura das linhas.
+O Main a cria por Relatorio.pdf(), com a fonte já lida pelo CacheFonte.
+*/
+
+package principal;
+
+import java.awt.Color;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import org.apache.fontbox.ttf.TTFParser;
+import org.apache.fontbox.ttf.TrueTypeFont;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.io.RandomAccessReadBufferedFile;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.common.PDStream;
+import org.apache.pdfbox.pdmodel.font.PDType0Font;
+
+class RelatorioPdf implements Relatorio {
+    static final long LIMITE_MEMORIA = 16L * 1024 * 1024; // bytes de streams guardados no heap antes de ir para o disco
+    static final float MARGEM = 50;
+    static final int EM_VOO_POR_THREAD = 4;
+
+    // Caixa de código
+    private static final float ALTURA_LINHA = 12; // Espaçamento entre linhas do código
+    private static final float ESPACO_NUM_CODIGO = 10; // Espaço reduzido entre número e código
+    private static final float PADDING_CAIXA = 12; // Espaço interno da caixa
+
+    // Tabelas
+    private static final float ALTURA_CELULA = 15;
+    private static final float PADDING_CELULA = 3;
+    private static final Color AZUL_ESCURO = new Color(0x051b2b);
+
+    private final PDDocument doc;
+    private final TrueTypeFont ttf;
+    private final FonteRelatorio fonte;
+    private final ForkJoinPool pool;
+    private final ArrayDeque<Trecho> pendentes = new ArrayDeque<>();
+    private final int limitePendentes;
+    private PDPage page;
+    private List<PDStream> conteudos; // streams da página atual, na ordem
+    private float y;
+
+    RelatorioPdf(File arquivoFonte, String titulo) throws IOException {
+        this(arquivoFonte, titulo, ForkJoinPool.commonPool());
+    }
+
+    RelatorioPdf(File arquivoFonte, String titulo, ForkJoinPool pool) throws IOException {
+        this(new TTFParser().parse(new RandomAccessReadBufferedFile(arquivoFonte)), titulo, pool);
+    }
+
+    // A fonte passa a ser deste relatório (é fechada com ele, ou aqui mesmo se a criação falhar)
+    RelatorioPdf(TrueTypeFont fonteLida, String titulo, ForkJoinPool pool) throws IOException {
+        this.pool = pool;
+        this.limitePendentes = EM_VOO_POR_THREAD * Math.max(1, pool.getParallelism());
+        this.ttf = fonteLida;
+        PDDocument novo = null;
+        try {
+            doc = novo = new PDDocument(MemoryUsageSetting.setupMixed(LIMITE_MEMORIA).streamCache);
+            // Sem GSUB: o relatório só tem código e descrições, onde ligaduras (fi, fl) nem são desejáveis,
+            // e o PDFBox aplicaria as regras de substituição (com expressões regulares) a cada showText.
+            fonteLida.setEnableGsub(false);
+            PDType0Font font = PDType0Font.load(doc, ttf, true);
+            fonte = new FonteRelatorio(font);
+            novaPagina();
+            // O título usa o PDPageContentStream, que também inscreve a fonte no subconjunto gravado no save
+            try (PDPageContentStream content = new PDPageContentStream(doc, page)) {
+                escreverBlocoCentralizado(content, font, 14, page, 700, titulo);
+            }
+            page.getContentStreams().forEachRemaining(conteudos::add);
+            y = 630;
+        } catch (IOException | RuntimeException e) {
+            fonteLida.close();
+            if (novo != null) novo.close();
+            throw e;
+        }
+    }
+
+    // TABELA 1: CÓDIGO FONTE (lido linha a linha). Bytes que não são UTF-8 válido viram U+FFFD,
+    // como no Lexer, em vez de interromper o PDF
+    @Override
+    public void codigoFonte(String titulo, Path arquivo) throws IOException {
+        CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        try (BufferedReader leitor = new BufferedReader(new InputStreamReader(Files.newInputStream(arquivo), decoder))) {
+            Iterator<List<String>> linhas = new LinhasNumeradas(leitor);
+            float yInicioCaixa = y - 10; // Guarda o Y inicial antes de desenhar o código
+            float yAtual = yInicioCaixa - PADDING_CAIXA; // Y inicial do texto dentro da caixa
+            String tituloTrecho = titulo; // só o primeiro trecho tem o título
+            float yTitulo = y;
+            float yTrecho = yAtual;
+            List<List<String>> trecho = new ArrayList<>();
+            while (linhas.hasNext()) {
+                List<String> linha = linhas.next();
+                if (yAtual - ALTURA_LINHA < MARGEM) {
+                    enviarCodigo(tituloTrecho, yTitulo, yInicioCaixa, yTrecho, trecho, false);
+                    tituloTrecho = null;
+                    trecho = new ArrayList<>();
+                    yInicioCaixa = 750;
+                    yAtual = yInicioCaixa - PADDING_CAIXA;
+                    yTrecho = yAtual;
+                }
+                trecho.add(linha);
+                yAtual -= ALTURA_LINHA;
+            }
+            enviarCodigo(tituloTrecho, yTitulo, yInicioCaixa, yTrecho, trecho, true);
+            y = yAtual - PADDING_CAIXA;
+        } catch (UncheckedIOException e) { // erro de leitura no meio do arquivo
+            throw e.getCause();
+        }
+    }
+
+    // TABELAS 2 E 3: TOKENS E SÍMBOLOS
+    @Override
+    public void tabela(String titulo, List<String> cabecalho, Iterator<List<String>> linhas) throws IOException {
+        float[] largurasColunas = largurasColunas(titulo, cabecalho.size());
+        float yTitulo = y - 30;
+        float yTopo = yTitulo - 10; // a grade vertical da página vai daqui até a última linha
+        float yLinha = yTopo - ALTURA_CELULA;
+        boolean primeiro = true;
+        float yTrecho = yLinha;
+        List<List<String>> trecho = new ArrayList<>();
+        while (linhas.hasNext()) {
+            List<String> linha = linhas.next();
+            if (yLinha < MARGEM) {
+                enviarTabela(primeiro ? titulo : null, cabecalho, largurasColunas, yTitulo, yTopo, yTrecho, trecho);
+                primeiro = false;
+                trecho = new ArrayList<>();
+                yLinha = 750;
+                yTopo = yLinha;
+                yTrecho = yLinha;
+            }
+            trecho.add(linha);
+            yLinha -= ALTURA_CELULA;
+        }
+        enviarTabela(primeiro ? titulo : null, cabecalho, largurasColunas, yTitulo, yTopo, yTrecho, trecho);
+        y = yLinha;
+    }
+
+    // Espera os trechos que ainda estão no pool e os anexa ao documento
+    void concluir() throws IOException {
+        while (!pendentes.isEmpty()) anexar(pendentes.poll());
+    }
+
+    @Override
+    public void salvar(String arquivo) throws IOException {
+        concluir();
+        doc.save(arquivo);
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (Trecho trecho : pendentes) trecho.futuro.cancel(false);
+        try {
+            doc.close();
+        } finally {
+            ttf.close(); // a fonte precisa ficar aberta até o documento ser salvo
+        }
+    }
+
+    public static float escreverBlocoCentralizado(
+            PDPageContentStream content,
+            PDType0Font font,
+            float fontSize,
+            PDPage page,
+            float y,
+            String texto) throws IOException {
+
+        float larguraPagina = page.getMediaBox().getWidth();
+
+        content.setFont(font, fontSize);
+
+        for (String linha : texto.split("\n")) {
+            float larguraTexto = font.getStringWidth(linha) / 1000 * fontSize;
+
+            float xCentral = (larguraPagina - larguraTexto) / 2;
+
+            content.beginText();
+            content.newLineAtOffset(xCentral, y);
+            content.showText(linha);
+            content.endText();
+
+            y -= fontSize + 4; // espaçamento entre linhas
+        }
+
+        return y; // devolve a nova altura
+    }
+
+    // Um trecho de página sendo desenhado no pool; 'novaPagina' diz se ele começa uma página
+    private static class Trecho {
+        final Future<PaginaEmLote> futuro;
+        final boolean novaPagina;
+        Trecho(Future<PaginaEmLote> futuro, boolean novaPagina) {
+            this.futuro = futuro;
+            this.novaPagina = novaPagina;
+        }
+    }
+
+    private void enviarCodigo(String titulo, float yTitulo, float yInicioCaixa, float yAtual,
+            List<List<String>> linhas, boolean ultimo) throws IOException {
+        enviar(() -> escreverCodigoFonte(fonte, titulo, yTitulo, yInicioCaixa, yAtual, linhas, ultimo, MARGEM),
+                titulo == null);
+    }
+
+    private void enviarTabela(String titulo, List<String> cabecalho, float[] largurasColunas, float yTitulo,
+            float yTopo, float yLinha, List<List<String>> linhas) throws IOException {
+        enviar(() -> escreverTabela(fonte, titulo, cabecalho, largurasColunas, yTitulo, yTopo, yLinha, linhas, MARGEM),
+                titulo == null);
+    }
+
+    private void enviar(Callable<PaginaEmLote> desenho, boolean novaPagina) throws IOException {
+        pendentes.add(new Trecho(pool.submit(() -> {
+            PaginaEmLote pagina = desenho.call();
+            pagina.terminar();
+            return pagina;
+        }), novaPagina));
+        if (pendentes.size() > limitePendentes) anexar(pendentes.poll());
+    }
+
+    // Espera o trecho ficar pronto e o põe no fim do documento
+    private void anexar(Trecho trecho) throws IOException {
+        PaginaEmLote pagina;
+        try {
+            pagina = trecho.futuro.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Geração do PDF interrompida", e);
+        } catch (ExecutionException e) {
+            Throwable causa = e.getCause();
+            if (causa instanceof IOException) throw (IOException) causa;
+            if (causa instanceof RuntimeException) throw (RuntimeException) causa;
+            if (causa instanceof Error) throw (Error) causa;
+            throw new IOException(causa);
+        }
+        if (trecho.novaPagina) novaPagina();
+        PDStream stream = new PDStream(doc);
+        try (OutputStream saida = stream.createOutputStream(COSName.FLATE_DECODE)) {
+            saida.write(pagina.conteudo());
+        }
+        conteudos.add(stream);
+        page.setContents(conteudos);
+        fonte.adicionarAoSubconjunto(pagina.usados());
+    }
+
+    private void novaPagina() {
+        page = new PDPage(PDRectangle.LETTER);
+        PDResources recursos = new PDResources();
+        recursos.put(FonteRelatorio.NOME, fonte.font);
+        page.setResources(recursos);
+        doc.addPage(page);
+        conteudos = new ArrayList<>();
+    }
+
+    private static float[] largurasColunas(String titulo, int numColunas) {
+        float larguraTotalPagina = PDRectangle.LETTER.getWidth() - 2 * MARGEM;
+        float[] largurasColunas = new float[numColunas];
+
+        if (titulo.equals("Lista de Tokens")) {
+            largurasColunas[0] = larguraTotalPagina * 0.1f; // Linha
+            largurasColunas[1] = larguraTotalPagina * 0.1f; // Col
+            largurasColunas[2] = larguraTotalPagina * 0.3f; // Lexema
+            largurasColunas[3] = larguraTotalPagina * 0.5f; // Descrição
+        } else if (titulo.equals("Tabela de Símbolos")) {
+            largurasColunas[0] = larguraTotalPagina * 0.1f; // ID
+            largurasColunas[1] = larguraTotalPagina * 0.4f; // Lexema
+            largurasColunas[2] = larguraTotalPagina * 0.5f; // Primeira Aparição
+        } else if (titulo.equals("Diagnósticos")) {
+            largurasColunas[0] = larguraTotalPagina * 0.12f; // Código
+            largurasColunas[1] = larguraTotalPagina * 0.1f; // Linha
+            largurasColunas[2] = larguraTotalPagina * 0.1f; // Col
+            largurasColunas[3] = larguraTotalPagina * 0.68f; // Mensagem
+        } else {
+            float larguraPadrao = larguraTotalPagina / numColunas;
+            for (int i = 0; i < numColunas; i++)
+                largurasColunas[i] = larguraPadrao;
+        }
+        return largurasColunas;
+    }
+
+    // MÉTODO DE DESIGN DA "CAIXA DE CÓDIGO": um trecho (uma página) da caixa
+    private static PaginaEmLote escreverCodigoFonte(FonteRelatorio fonte, String titulo, float yTitulo,
+            float yInicioCaixa, float yAtual, List<List<String>> linhasCodigo, boolean ultimo, float margem)
+            throws IOException {
+
+        LargurasFonte larguras = fonte.larguras(9);
+        PaginaEmLote pagina = new PaginaEmLote(fonte);
+        if (titulo != null) pagina.texto(14, margem, yTitulo, titulo);
+
+        float xInicioCaixa = margem - PADDING_CAIXA; // X da caixa começa um pouco antes da margem do texto
+        float larguraCaixa = PDRectangle.LETTER.getWidth() - (margem - PADDING_CAIXA) * 2; // Largura da caixa até a
+                                                                                           // outra margem
+        for (List<String> linha : linhasCodigo) {
+            String numLinha = linha.get(0);
+            pagina.texto(9, margem, yAtual, numLinha);
+
+            float xCodigo = margem + larguras.largura(numLinha) + ESPACO_NUM_CODIGO;
+            float larguraDisponivelTexto = larguraCaixa - (xCodigo - xInicioCaixa) - PADDING_CAIXA * 2;
+            pagina.texto(9, xCodigo, yAtual, larguras.cortar(semControle(linha.get(1)), larguraDisponivelTexto));
+
+            yAtual -= ALTURA_LINHA;
+        }
+
+        float yFundo = ultimo ? yAtual - PADDING_CAIXA : yAtual;
+        pagina.retangulo(xInicioCaixa, yFundo, larguraCaixa, yInicioCaixa - yFundo);
+        return pagina;
+    }
+
+    // MÉTODO DE DESIGN DAS TABELAS (Tokens e Símbolos): um trecho (uma página) da tabela;
+    // só o primeiro trecho tem título e cabeçalho
+    static PaginaEmLote escreverTabela(FonteRelatorio fonte, String titulo, List<String> cabecalho,
+            float[] largurasColunas, float yTitulo, float yTopo, float y, List<List<String>> linhas, float margem)
+            throws IOException {
+
+        float larguraTotalPagina = PDRectangle.LETTER.getWidth() - 2 * margem;
+        int numColunas = largurasColunas.length;
+        float xStart = margem;
+        LargurasFonte larguras = fonte.larguras(8);
+        PaginaEmLote pagina = new PaginaEmLote(fonte);
+
+        if (titulo != null) {
+            // Fundo do cabeçalho (fora do objeto de texto)
+            pagina.preencher(xStart, yTopo - ALTURA_CELULA, larguraTotalPagina, ALTURA_CELULA, AZUL_ESCURO);
+
+            // Título
+            pagina.cor(Color.BLACK);
+            pagina.texto(14, margem, yTitulo, titulo);
+
+            // Cabeçalho
+            pagina.cor(Color.WHITE);
+            pagina.linha(xStart, yTopo - ALTURA_CELULA, xStart + larguraTotalPagina, yTopo - ALTURA_CELULA);
+            float xAtual = xStart;
+            for (int i = 0; i < numColunas; i++) {
+                pagina.texto(10, xAtual + PADDING_CELULA, yTopo - ALTURA_CELULA + 4, cabecalho.get(i));
+                xAtual += largurasColunas[i];
+            }
+        }
+
+        pagina.cor(Color.BLACK);
+        for (List<String> linha : linhas) {
+            pagina.linha(xStart, y - ALTURA_CELULA, xStart + larguraTotalPagina, y - ALTURA_CELULA);
+            float xAtual = xStart;
+            for (int i = 0; i < numColunas; i++) {
+                String celula = (i < linha.size()) ? semControle(linha.get(i)) : "";
+                String textoCelula = larguras.cortar(celula, largurasColunas[i] - 2 * PADDING_CELULA);
+                if (textoCelula != null && !textoCelula.isEmpty()) {
+                    pagina.texto(8, xAtual + PADDING_CELULA, y - ALTURA_CELULA + 4, textoCelula);
+                }
+                xAtual += largurasColunas[i];
+            }
+            y -= ALTURA_CELULA;
+        }
+        desenharLinhasVerticais(pagina, xStart, yTopo, y, largurasColunas);
+        return pagina;
+    }
+
+    // A fonte não tem glifo para quebras de linha e tabulações (ex.: lexema de uma string de várias linhas)
+    private static String semControle(String celula) {
+        if (celula == null) return null;
+        char[] letras = null;
+        for (int i = 0; i < celula.length(); i++) {
+            if (celula.charAt(i) < ' ') {
+                if (letras == null) letras = celula.toCharArray();
+                letras[i] = ' ';
+            }
+        }
+        return letras == null ? celula : new String(letras);
+    }
+
+    // MÉTODO PARA DESENHAR LINHAS: uma linha por divisa de coluna, do topo da tabela na página até 'yFim'
+    private static void desenharLinhasVerticais(PaginaEmLote pagina, float xStart, float yTopo, float yFim,
+            float[] largurasColunas) {
+        pagina.linha(xStart, yTopo, xStart, yFim);
+        float xAtual = xStart;
+        for (int i = 0; i < largurasColunas.length; i++) {
+            xAtual += largurasColunas[i];
+            pagina.linha(xAtual, yTopo, xAtual, yFim);
+        }
+    }
+
+    // Linhas do código-fonte numeradas (número, texto), lidas sob demanda
+    private static class LinhasNumeradas implements Iterator<List<String>> {
+        private final BufferedReader leitor;
+        private String proxima;
+        private int numero = 0;
+
+        LinhasNumeradas(BufferedReader leitor) throws IOException {
+            this.leitor = leitor;
+            this.proxima = leitor.readLine();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return proxima != null;
+        }
+
+        @Override
+        public List<String> next() {
+            if (proxima == null) throw new NoSuchElementException();
+            List<String> linha = List.of(String.valueOf(++numero), proxima);
+            try {
+                proxima = leitor.readLine();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return linha;
+        }
+    }
+}
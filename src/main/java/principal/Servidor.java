@@ -0,0 +1,286 @@
+/*
+Esta classe deixa o analisador no ar em um processo só, atendendo pedidos do Cliente.
+Cada "java principal.Main ..." começa uma JVM do zero: carrega as classes, interpreta o
+Lexer até o JIT compilá-lo e, para arquivos pequenos, isso é quase todo o tempo. Aqui
+a JVM, o código já compilado e o pool de threads do --lote ficam vivos entre os pedidos.
+    - Escuta em um socket de domínio Unix (por padrão socketPadrao()) criado dentro de uma
+      pasta só do usuário (0700, conferida em prepararPasta()), então só o usuário que o
+      iniciou consegue usá-lo, desde o bind(). O Cliente também confere o dono do socket.
+    - Cada pedido traz a pasta de trabalho do cliente, o charset da saída dele, os mesmos
+      argumentos da linha de comando e, opcionalmente, o código-fonte (--stdin do Cliente,
+      gravado em um arquivo temporário que entra como último argumento).
+    - O pedido roda Main.executar() com um Ambiente próprio: caminhos relativos partem da
+      pasta do cliente e a saída padrão e a de erros voltam pelo socket em blocos
+      (tipo, tamanho, bytes). O último bloco (FIM) traz o código de saída.
+    - Pedidos diferentes rodam ao mesmo tempo, cada um em uma thread.
+    - Ao subir, aquece o Lexer e a Tabela de Símbolos em segundo plano (aquecer()), para o
+      primeiro pedido já encontrar o código compilado.
+O pedido "--parar" encerra o servidor (java principal.Cliente --parar).
+*/
+
+package principal;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.AsynchronousCloseException;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.attribute.UserPrincipal;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import analisador.Lexer;
+import analisador.SymbolTable;
+import analisador.Token;
+
+final class Servidor {
+    static final int VERSAO_PROTOCOLO = 1;
+    // Blocos da resposta: tipo (1 byte), depois tamanho (int) e bytes; FIM traz o código de saída (int)
+    static final byte FIM = 0;
+    static final byte SAIDA = 1;
+    static final byte ERROS = 2;
+    static final String PARAR = "--parar";
+    static final int PASSADAS_AQUECIMENTO = 40;
+
+    private Servidor() {
+    }
+
+    // Um por usuário: em $XDG_RUNTIME_DIR, que já é só dele, ou em uma pasta própria na pasta temporária
+    static Path socketPadrao() {
+        String runtime = System.getenv("XDG_RUNTIME_DIR");
+        Path pasta = runtime != null && !runtime.isEmpty() && Paths.get(runtime).isAbsolute() ? Paths.get(runtime)
+                : Paths.get(System.getProperty("java.io.tmpdir"), "analisador-lexico-" + System.getProperty("user.name"));
+        return pasta.resolve("analisador-lexico.sock");
+    }
+
+    // A pasta do socket é criada com 0700 ou, se já existe, precisa ser uma pasta (não um link) do
+    // usuário sem nenhuma permissão para o grupo e os outros. Na pasta temporária o nome é previsível:
+    // sem essa conferência, outro usuário poderia criá-la antes e conectar no socket.
+    static void prepararPasta(Path pasta) throws IOException {
+        try {
+            Files.createDirectory(pasta, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+        } catch (FileAlreadyExistsException e) { // conferida abaixo
+        } catch (UnsupportedOperationException e) { // sistema sem permissões POSIX: fica como a pasta temporária permite
+            Files.createDirectories(pasta);
+            return;
+        }
+        if (!Files.isDirectory(pasta, LinkOption.NOFOLLOW_LINKS) || !doUsuario(pasta)
+                || !PosixFilePermissions.toString(Files.getPosixFilePermissions(pasta, LinkOption.NOFOLLOW_LINKS)).endsWith("------")) {
+            throw new IOException("A pasta do socket (" + pasta + ") precisa ser do usuário e fechada para os outros (chmod 700)");
+        }
+    }
+
+    static boolean doUsuario(Path caminho) throws IOException { // o próprio caminho, sem seguir links
+        UserPrincipal usuario = caminho.getFileSystem().getUserPrincipalLookupService()
+                .lookupPrincipalByName(System.getProperty("user.name"));
+        return Files.getOwner(caminho, LinkOption.NOFOLLOW_LINKS).equals(usuario);
+    }
+
+    static void executar(Path socket) throws IOException {
+        UnixDomainSocketAddress endereco = UnixDomainSocketAddress.of(socket);
+        prepararPasta(socket.toAbsolutePath().getParent());
+        if (Files.exists(socket, LinkOption.NOFOLLOW_LINKS)) {
+            if (emUso(endereco)) throw new IOException("Já há um servidor atendendo em " + socket);
+            Files.delete(socket); // sobra de um servidor que não terminou direito
+        }
+        ExecutorService pool = Ambiente.novoPool(Runtime.getRuntime().availableProcessors());
+        AtomicInteger contador = new AtomicInteger();
+        ExecutorService pedidos = Executors.newCachedThreadPool(tarefa -> {
+            Thread thread = new Thread(tarefa, "servidor-pedido-" + contador.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try (ServerSocketChannel servidor = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+            servidor.bind(endereco); // a pasta já é só do usuário; as permissões do socket são só mais uma barreira
+            try {
+                Files.setPosixFilePermissions(socket, PosixFilePermissions.fromString("rw-------"));
+            } catch (UnsupportedOperationException e) { // sistema sem permissões POSIX
+            }
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> apagar(socket)));
+            Thread aquecimento = new Thread(Servidor::aquecer, "servidor-aquecimento");
+            aquecimento.setDaemon(true);
+            aquecimento.start();
+            System.out.println("Servidor no ar em " + socket + " (para encerrar: java principal.Cliente " + PARAR + ")");
+            while (true) {
+                SocketChannel canal = servidor.accept();
+                pedidos.execute(() -> atender(canal, pool, servidor));
+            }
+        } catch (AsynchronousCloseException e) { // um pedido --parar fechou o socket
+        } finally {
+            pedidos.shutdown();
+            try {
+                pedidos.awaitTermination(1, TimeUnit.MINUTES); // os pedidos em andamento terminam
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            apagar(socket);
+        }
+        System.out.println("Servidor encerrado.");
+    }
+
+    private static boolean emUso(UnixDomainSocketAddress endereco) { // alguém atende: conecta e desconecta
+        try {
+            SocketChannel.open(endereco).close();
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static void apagar(Path socket) {
+        try {
+            Files.deleteIfExists(socket);
+        } catch (IOException e) { // já estamos saindo
+        }
+    }
+
+    // UM PEDIDO (em uma thread de 'pedidos')
+    private static void atender(SocketChannel canal, ExecutorService pool, ServerSocketChannel servidor) {
+        try (canal) {
+            DataInputStream pedido = new DataInputStream(new BufferedInputStream(Channels.newInputStream(canal)));
+            OutputStream resposta = Channels.newOutputStream(canal);
+            if (pedido.readInt() != VERSAO_PROTOCOLO) {
+                Bloco erros = new Bloco(resposta, ERROS);
+                erros.write("Versão do cliente diferente da do servidor; reinicie o servidor.\n".getBytes(StandardCharsets.UTF_8));
+                concluir(resposta, 1);
+                return;
+            }
+            Path diretorio = Paths.get(pedido.readUTF());
+            Charset charset = Charset.forName(pedido.readUTF());
+            int quantidade = pedido.readInt();
+            List<String> argumentos = new ArrayList<>(quantidade);
+            for (int i = 0; i < quantidade; i++) argumentos.add(pedido.readUTF());
+            int tamanhoFonte = pedido.readInt(); // -1: sem código-fonte no pedido
+            Path temporario = tamanhoFonte >= 0 ? Cliente.fonteTemporaria(pedido.readNBytes(tamanhoFonte)) : null;
+            if (temporario != null) argumentos.add(temporario.toString());
+
+            PrintStream erros = new PrintStream(new Bloco(resposta, ERROS), true, charset);
+            Ambiente ambiente = new Ambiente(diretorio, new Bloco(resposta, SAIDA), charset, erros, pool);
+            int codigo;
+            try {
+                if (argumentos.equals(List.of(PARAR))) {
+                    ambiente.texto.println("Servidor em " + socketDe(servidor) + " encerrando.");
+                    servidor.close();
+                    codigo = 0;
+                } else {
+                    codigo = Main.executar(argumentos, ambiente);
+                }
+            } catch (RuntimeException e) { // o pedido falhou, o servidor continua
+                e.printStackTrace(erros);
+                codigo = 1;
+            } finally {
+                if (temporario != null) Files.deleteIfExists(temporario);
+            }
+            ambiente.texto.flush();
+            erros.flush();
+            concluir(resposta, codigo);
+        } catch (IOException e) { // o cliente foi embora (ex.: Ctrl+C): não há para quem responder
+        }
+    }
+
+    private static String socketDe(ServerSocketChannel servidor) throws IOException {
+        return String.valueOf(((UnixDomainSocketAddress) servidor.getLocalAddress()).getPath());
+    }
+
+    private static void concluir(OutputStream resposta, int codigo) throws IOException {
+        synchronized (resposta) {
+            resposta.write(new byte[] { FIM, (byte) (codigo >>> 24), (byte) (codigo >>> 16), (byte) (codigo >>> 8), (byte) codigo });
+        }
+    }
+
+    // Uma das saídas do cliente: cada write vira um bloco (tipo, tamanho, bytes) no socket.
+    // A saída padrão e a de erros podem ser escritas por threads diferentes (ConsoleReporter).
+    private static final class Bloco extends OutputStream {
+        private final OutputStream resposta;
+        private final byte tipo;
+
+        Bloco(OutputStream resposta, byte tipo) {
+            this.resposta = resposta;
+            this.tipo = tipo;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] { (byte) b }, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int inicio, int tamanho) throws IOException {
+            if (tamanho == 0) return;
+            byte[] cabecalho = { tipo, (byte) (tamanho >>> 24), (byte) (tamanho >>> 16), (byte) (tamanho >>> 8), (byte) tamanho };
+            synchronized (resposta) {
+                resposta.write(cabecalho);
+                resposta.write(bytes, inicio, tamanho);
+            }
+        }
+
+        @Override
+        public void close() { // o fim da resposta é o bloco FIM, não o fim de uma das saídas (ex.: o TokenSink fecha a sua)
+        }
+    }
+
+    // AQUECIMENTO: analisa um código sintético algumas vezes pelo mesmo caminho do Main
+    // (arquivo mapeado, Tabela de Símbolos, formatação das linhas do console)
+    private static void aquecer() {
+        try {
+            Path temporario = Cliente.fonteTemporaria(codigoSintetico().getBytes(StandardCharsets.UTF_8));
+            try {
+                StringBuilder linha = new StringBuilder();
+                for (int passada = 0; passada < PASSADAS_AQUECIMENTO; passada++) {
+                    Lexer lexer = Lexer.deArquivoMapeado(temporario);
+                    SymbolTable tabela = new SymbolTable(lexer.lexemas());
+                    Iterator<Token> tokens = lexer.iterator();
+                    while (tokens.hasNext()) {
+                        Token t = tokens.next();
+                        tabela.add(t);
+                        linha.setLength(0);
+                        t.formatar(linha);
+                    }
+                }
+            } finally {
+                Files.deleteIfExists(temporario);
+            }
+        } catch (IOException e) { // sem aquecimento o servidor funciona do mesmo jeito, só o primeiro pedido é mais lento
+        }
+    }
+
+    private static String codigoSintetico() {
+        StringBuilder codigo = new StringBuilder();
+        for (int i = 0; i < 500; i++) {
+            codigo.append("/* bloco ").append(i).append(" */\n")
+                    .append("public class Exemplo").append(i).append(" extends Base implements Runnable {\n")
+                    .append("    private static final int LIMITE = ").append(i * 31).append(";\n")
+                    .append("    private double media = ").append(i).append(".5e-3;\n")
+                    .append("    // contador de passos\n")
+                    .append("    public void run() {\n")
+                    .append("        for (int k = 0; k <= LIMITE && media != 0; k += 2) {\n")
+                    .append("            String texto = \"valor \\\"").append(i).append("\\\"\" + k;\n")
+                    .append("            char c = '\\n';\n")
+                    .append("            if (k % 3 == 0 || (k >> 1) > LIMITE) media = media * k / (k + 1.0);\n")
+                    .append("            else media -= k & 0xFF;\n")
+                    .append("        }\n")
+                    .append("    }\n")
+                    .append("}\n");
+        }
+        return codigo.toString();
+    }
+}
@@ -0,0 +1,144 @@
+/*
+Testes das fontes de caracteres: o mesmo arquivo lido mapeado (MappedSource), como
+String e por um Reader precisa dar os mesmos tokens, nas mesmas posições, inclusive
+com bytes que não são UTF-8 válido (cada trecho inválido vira um U+FFFD, como no JDK).
+Comentários e strings de vários MB não podem fazer a janela de leitura crescer.
+*/
+
+package analisador;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class CharSourceTest {
+    @TempDir
+    Path pasta;
+
+    @Test
+    void bytesQueNaoComecamSequencia() throws IOException {
+        compararFontes("int aõ = 1;", "F5 80 80", "FF", "C0 AF", "C1 BF", "80", "BF");
+    }
+
+    @Test
+    void segundoByteForaDaFaixa() throws IOException {
+        compararFontes("x = y", "E0 80 80", "E0 9F BF", "F0 80 80 80", "F0 8F BF BF", "F4 90 80 80", "F4 BF BF BF");
+    }
+
+    @Test
+    void substitutos() throws IOException {
+        compararFontes("nome", "ED A0 80", "ED BF BF", "ED A0", "ED B2 90 8F");
+    }
+
+    @Test
+    void sequenciasInterrompidas() throws IOException {
+        compararFontes("a b", "C3", "E2 82", "F0 9F 98", "E2 41", "F0 9F 41");
+    }
+
+    @Test
+    void caracteresValidos() throws IOException {
+        compararFontes("s = \"", "C3 A9", "E2 82 AC", "F0 9F 98 80", "F4 8F BF BF", "EF BF BD");
+    }
+
+    @Test
+    void sequenciaNoFimDoArquivo() throws IOException {
+        for (String fim : List.of("E2 82", "F0 9F 98", "ED A0", "C3")) {
+            byte[] bytes = concatenar(texto("int a = 1;\nb"), hex(fim));
+            assertEquals(tokensDaString(bytes), tokensMapeados(bytes, 1L << 30), fim);
+        }
+    }
+
+    @Test
+    void comentariosEStringsEnormesNaoCrescemAJanela() {
+        int corte = Lexer.MAIOR_STRING;
+        String codigo = "a /* " + "x\n".repeat(1_500_000) + " */ b = \"" + "y".repeat(200_000) + "\"; // "
+                + "z".repeat(1_000_000) + "\nc = \"" + "w".repeat(corte) + "\" + \"" + "v".repeat(corte - 1) + "\\\"v\"; d \"" + "u".repeat(corte + 5) + "\nfim";
+        List<String> esperado = resumo(new Lexer(codigo));
+        CharSource.ReaderSource janela = new CharSource.ReaderSource(new StringReader(codigo), CharSource.WindowSource.TAMANHO_BUFFER);
+        assertEquals(esperado, resumo(new Lexer(janela, 0, 1, 1, new Diagnostics())));
+        assertEquals(CharSource.WindowSource.TAMANHO_BUFFER, janela.tamanhoJanela());
+
+        List<String> guardados = new ArrayList<>(); // o TokenBuffer recorta os lexemas do texto: o mesmo corte
+        TokenBuffer buffer = new TokenBuffer(codigo);
+        for (Token t : buffer) guardados.add(t.tipo + " " + t.lexema + " " + t.linha + ":" + t.coluna + " @" + t.posicao);
+        for (Diagnostics.Diagnostico d : buffer.diagnosticos()) guardados.add(d.toString());
+        assertEquals(esperado, guardados);
+        Lexer lexer = new Lexer(codigo);
+        lexer.scanTokens();
+        assertEquals(3, lexer.diagnosticos().total(Diagnostics.Codigo.STRING_LONGA)); // a de 'corte' caracteres fica inteira
+    }
+
+    // Cada sequência entra no meio de um identificador, de uma string, de um comentário e
+    // solta no código; depois o arquivo é lido com segmentos pequenos, para que as
+    // sequências também caiam na divisa entre dois segmentos.
+    private void compararFontes(String prefixo, String... sequencias) throws IOException {
+        for (String sequencia : sequencias) {
+            byte[] invalido = hex(sequencia);
+            byte[] bytes = concatenar(texto(prefixo), invalido, texto("fim\nid"), invalido, texto("x \"str"), invalido,
+                    texto("\" /* c"), invalido, texto(" */ "), invalido, texto(" 'a' // "), invalido, texto("\nultimo"));
+            List<String> esperado = tokensDaString(bytes);
+            assertEquals(esperado, tokensDoReader(bytes), sequencia);
+            for (long segmento : new long[] { 1L << 30, 7, 8, 9 }) {
+                assertEquals(esperado, tokensMapeados(bytes, segmento), sequencia + " (segmento de " + segmento + " bytes)");
+            }
+        }
+    }
+
+    private List<String> tokensDaString(byte[] bytes) {
+        return resumo(new Lexer(new String(bytes, StandardCharsets.UTF_8)));
+    }
+
+    private List<String> tokensDoReader(byte[] bytes) {
+        return resumo(new Lexer(new InputStreamReader(new ByteArrayInputStream(bytes), StandardCharsets.UTF_8)));
+    }
+
+    private List<String> tokensMapeados(byte[] bytes, long tamanhoSegmento) throws IOException {
+        Path arquivo = Files.write(pasta.resolve("fonte-" + tamanhoSegmento + ".java"), bytes);
+        try (FileChannel canal = FileChannel.open(arquivo)) {
+            return resumo(new Lexer(new CharSource.MappedSource(canal, 16, tamanhoSegmento), 0, 1, 1, new Diagnostics()));
+        }
+    }
+
+    // Os tokens (tipo, lexema, linha, coluna, posição) e os diagnósticos, um por linha
+    private static List<String> resumo(Lexer lexer) {
+        List<String> linhas = new ArrayList<>();
+        for (Token t : lexer.scanTokens()) {
+            linhas.add(t.tipo + " " + t.lexema + " " + t.linha + ":" + t.coluna + " @" + t.posicao);
+        }
+        for (Diagnostics.Diagnostico d : lexer.diagnosticos()) linhas.add(d.toString());
+        return linhas;
+    }
+
+    private static byte[] texto(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] hex(String s) {
+        return HexFormat.of().parseHex(s.replace(" ", ""));
+    }
+
+    private static byte[] concatenar(byte[]... partes) {
+        int tamanho = 0;
+        for (byte[] parte : partes) tamanho += parte.length;
+        byte[] todos = new byte[tamanho];
+        int pos = 0;
+        for (byte[] parte : partes) {
+            System.arraycopy(parte, 0, todos, pos, parte.length);
+            pos += parte.length;
+        }
+        return todos;
+    }
+}
@@ -0,0 +1,140 @@
+/*
+Testes da análise incremental: depois de cada edição, os tokens, a tabela de símbolos e os
+erros léxicos do IncrementalLexer precisam ser os mesmos de uma análise do texto novo do zero.
+*/
+
+package analisador;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class IncrementalLexerTest {
+    private static final String CODIGO = String.join("\n",
+            "/* cabeçalho */",
+            "public class Media {",
+            "    private int total = 0, nota1 = 7;",
+            "    // soma as notas",
+            "    double media(int nota2) {",
+            "        String texto = \"nota \" + nota1;",
+            "        char c = 'x';",
+            "        total = nota1 + nota2;",
+            "        return total / 2.0;",
+            "    }",
+            "}",
+            "");
+
+    private static final String[] TRECHOS = { "a", "nota1", "novo", " ", "\n", "int x = 1;", "\"", "'", "/*", "*/",
+            "//", "total", "+", "media(3)", "é" };
+
+    @Test
+    void tabelaDepoisDeRenomearIgualAUmaAnaliseNova() throws IOException {
+        IncrementalLexer incremental = new IncrementalLexer(CODIGO);
+        SymbolTable tabela = incremental.tabelaDeSimbolos();
+        int posicao = CODIGO.indexOf("nota1");
+        incremental.editar(posicao, "nota1".length(), "primeira");
+        assertEquals(tabelaNova(incremental.texto()), resumo(tabela));
+        assertEquals(2, tabela.ocorrencias("nota1"));
+        assertEquals(1, tabela.ocorrencias("primeira"));
+        assertEquals(-1, tabela.id("inexistente"));
+    }
+
+    @Test
+    void erroCorrigidoSaiDosDiagnosticos() {
+        String texto = "int a = 1;\nString s = \"aberta;\nint b = 2;\n";
+        IncrementalLexer incremental = new IncrementalLexer(texto);
+        assertEquals(1, incremental.diagnosticos().total(Diagnostics.Codigo.STRING_NAO_TERMINADA));
+        incremental.editar(texto.indexOf(";\nint b"), 0, "\"");
+        assertEquals(0, incremental.diagnosticos().total());
+        assertTrue(incremental.diagnosticos().lista().isEmpty());
+    }
+
+    @Test
+    void errosRepetidosNaoSeAcumulam() {
+        IncrementalLexer incremental = new IncrementalLexer("x = #;\ny = 2;\n");
+        for (int i = 0; i < 2000; i++) { // digita e apaga um espaço antes do erro
+            incremental.editar(4, 0, " ");
+            incremental.editar(4, 1, "");
+        }
+        assertEquals(1, incremental.diagnosticos().total());
+        assertEquals(erros(new Lexer(incremental.texto())), erros(incremental.diagnosticos()));
+    }
+
+    @Test
+    void tabelaDepoisDeEdicoesAleatoriasIgualAUmaAnaliseNova() throws IOException {
+        Random aleatorio = new Random(42);
+        for (int rodada = 0; rodada < 20; rodada++) {
+            IncrementalLexer incremental = new IncrementalLexer(CODIGO);
+            SymbolTable tabela = incremental.tabelaDeSimbolos();
+            for (int edicao = 0; edicao < 50; edicao++) {
+                String texto = incremental.texto();
+                int posicao = aleatorio.nextInt(texto.length() + 1);
+                int removidos = aleatorio.nextInt(Math.min(8, texto.length() - posicao) + 1);
+                String inserido = aleatorio.nextInt(4) == 0 ? "" : TRECHOS[aleatorio.nextInt(TRECHOS.length)];
+                incremental.editar(posicao, removidos, inserido);
+
+                String novo = incremental.texto();
+                String onde = "rodada " + rodada + ", edição " + edicao;
+                assertEquals(tokens(new Lexer(novo).scanTokens()), tokens(incremental.tokens()), onde);
+                assertEquals(tabelaNova(novo), resumo(tabela), onde);
+                assertEquals(erros(new Lexer(novo)), erros(incremental.diagnosticos()), onde);
+            }
+        }
+    }
+
+    @Test
+    void tabelaDepoisDeEdicoesEmVariosPontosDeUmArquivoGrande() throws IOException {
+        IncrementalLexer incremental = new IncrementalLexer(CODIGO.repeat(40));
+        SymbolTable tabela = incremental.tabelaDeSimbolos();
+        String colado = "int a1 = b1 + nota1;\n".repeat(300); // mais ocorrências do que cabem nos vetores
+        incremental.editar(incremental.texto().length() / 2, 0, colado);
+        assertEquals(tabelaNova(incremental.texto()), resumo(tabela));
+        for (int i = 0; i < 30; i++) { // a lacuna vai e volta
+            int posicao = incremental.texto().indexOf("total", i % 2 == 0 ? 0 : incremental.texto().length() / 3 * 2);
+            incremental.editar(posicao, "total".length(), i % 3 == 0 ? "soma" + i : "total");
+            assertEquals(tabelaNova(incremental.texto()), resumo(tabela), "edição " + i);
+        }
+    }
+
+    private static List<String> erros(Lexer lexer) {
+        lexer.scanTokens();
+        return erros(lexer.diagnosticos());
+    }
+
+    private static List<String> erros(Diagnostics diagnosticos) {
+        List<String> linhas = new ArrayList<>();
+        for (Diagnostics.Diagnostico d : diagnosticos) linhas.add(d + " @" + d.posicao);
+        linhas.add("total " + diagnosticos.total());
+        return linhas;
+    }
+
+    private static String tabelaNova(String texto) throws IOException {
+        SymbolTable tabela = new SymbolTable();
+        for (Token token : new Lexer(texto).scanTokens()) tabela.add(token);
+        return resumo(tabela);
+    }
+
+    // A tabela impressa e, para cada símbolo, todas as referências
+    private static String resumo(SymbolTable tabela) throws IOException {
+        StringBuilder texto = new StringBuilder();
+        tabela.print(texto);
+        for (int id = 0; id < tabela.size(); id++) {
+            texto.append(tabela.lexema(id)).append(':');
+            for (Token t : tabela.referencias(id)) texto.append(' ').append(t.linha).append('.').append(t.coluna).append('@').append(t.posicao);
+            texto.append('\n');
+        }
+        return texto.toString();
+    }
+
+    private static List<String> tokens(List<Token> tokens) {
+        List<String> linhas = new ArrayList<>();
+        for (Token t : tokens) linhas.add(t.tipo + " " + t.lexema + " " + t.linha + ":" + t.coluna + " @" + t.posicao);
+        return linhas;
+    }
+}
@@ -0,0 +1,53 @@
+/*
+Testes da classificação de caracteres do Lexer fora do ASCII: letras e caracteres
+inesperados são decididos por code point, então um par de substitutos (ex.: 𝑥 ou um
+emoji) conta como um caractere só, tanto em um identificador quanto em um erro léxico.
+*/
+
+package analisador;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import analisador.core.TokenType;
+
+class LexerTest {
+    @Test
+    void letraForaDoBmpFazParteDoIdentificador() {
+        Lexer lexer = new Lexer("int 𝑥 = café𝑦 + 𝑥;");
+        List<Token> tokens = lexer.scanTokens();
+        assertEquals(List.of("int", "𝑥", "=", "café𝑦", "+", "𝑥", ";", "EOF"), lexemas(tokens));
+        assertEquals(TokenType.IDENTIFICADOR, tokens.get(1).tipo);
+        assertSame(tokens.get(1).lexema, tokens.get(5).lexema); // o mesmo nome no LexemePool (o hash é o da String)
+        assertEquals(0, lexer.diagnosticos().total());
+    }
+
+    @Test
+    void emojiEUmSoCaractereInesperado() {
+        Lexer lexer = new Lexer("a 😀 b");
+        assertEquals(List.of("a", "b", "EOF"), lexemas(lexer.scanTokens()));
+        assertEquals(1, lexer.diagnosticos().total());
+        Diagnostics.Diagnostico erro = lexer.diagnosticos().lista().get(0);
+        assertEquals("😀".codePointAt(0), erro.caractere);
+        assertEquals("Caractere inesperado '😀'", erro.mensagem());
+        assertEquals(3, erro.coluna);
+    }
+
+    @Test
+    void substitutoSozinhoContinuaInesperado() {
+        Lexer lexer = new Lexer("a\uD835 b\uDC65");
+        assertEquals(List.of("a", "b", "EOF"), lexemas(lexer.scanTokens()));
+        assertEquals(2, lexer.diagnosticos().total(Diagnostics.Codigo.CARACTERE_INESPERADO));
+    }
+
+    private static List<String> lexemas(List<Token> tokens) {
+        List<String> lexemas = new ArrayList<>();
+        for (Token t : tokens) lexemas.add(t.lexema);
+        return lexemas;
+    }
+}
@@ -0,0 +1,100 @@
+/*
+Testes do TokenCache: uma entrada gravada e lida de volta precisa dar os mesmos tokens, a
+mesma Tabela de Símbolos e os mesmos diagnósticos de uma análise nova, e uma entrada
+estragada precisa ser descartada.
+*/
+
+package analisador;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TokenCacheTest {
+    private static final String CODIGO = String.join("\n",
+            "public class Conta { // saldo em R$",
+            "    private double saldo = 1.5e3, taxa = 0.02;",
+            "    String nome = \"Conceição\";",
+            "    void depositar(double valor) { saldo = saldo + valor * (1 - taxa); }",
+            "    char c = 'x'; int # = 3; String aberta = \"sem fim",
+            "    /* comentário",
+            "       de várias linhas */ int " + "longo".repeat(40) + " = 12345678;",
+            "}",
+            "");
+
+    @TempDir
+    Path pasta;
+
+    @Test
+    void entradaLidaIgualAUmaAnaliseNova() throws IOException {
+        Path fonte = Files.writeString(pasta.resolve("Conta.java"), CODIGO.repeat(50), StandardCharsets.UTF_8);
+        TokenCache cache = new TokenCache(pasta.resolve("cache"), TokenCache.LIMITE_PADRAO);
+        Lexer lexer = Lexer.deArquivoMapeado(fonte);
+        SymbolTable nova = new SymbolTable(lexer.lexemas());
+        TokenCache.Gravacao gravacao = cache.entrada(fonte).gravacao();
+        List<String> esperados = new ArrayList<>();
+        for (Token t : lexer.scanTokens()) {
+            nova.add(t);
+            gravacao.add(t);
+            esperados.add(resumo(t));
+        }
+        assertTrue(gravacao.concluir(lexer.diagnosticos()));
+
+        TokenCache.Resultado guardado = cache.entrada(fonte).ler();
+        assertNotNull(guardado);
+        List<String> lidos = new ArrayList<>();
+        for (Token t : guardado.tokens()) lidos.add(resumo(t));
+        assertEquals(esperados, lidos);
+        assertEquals(tabela(nova), tabela(guardado.tabela()));
+        assertEquals(lexer.diagnosticos().toString(), guardado.diagnosticos().toString());
+    }
+
+    @Test
+    void entradaEstragadaEDescartada() throws IOException {
+        Path fonte = Files.writeString(pasta.resolve("Conta.java"), CODIGO, StandardCharsets.UTF_8);
+        TokenCache cache = new TokenCache(pasta.resolve("cache"), TokenCache.LIMITE_PADRAO);
+        Lexer lexer = Lexer.deArquivoMapeado(fonte);
+        TokenCache.Gravacao gravacao = cache.entrada(fonte).gravacao();
+        for (Token t : lexer.scanTokens()) gravacao.add(t);
+        assertTrue(gravacao.concluir(lexer.diagnosticos()));
+
+        Path entrada;
+        try (Stream<Path> arquivos = Files.list(pasta.resolve("cache"))) {
+            entrada = arquivos.findFirst().orElseThrow();
+        }
+        byte[] bytes = Files.readAllBytes(entrada);
+        bytes[bytes.length / 2] ^= 0x40;
+        Files.write(entrada, bytes);
+        assertNull(cache.entrada(fonte).ler());
+        assertFalse(Files.exists(entrada));
+    }
+
+    private static String resumo(Token t) {
+        return t.tipo + " " + t.lexema + " " + t.linha + ":" + t.coluna + " @" + t.posicao;
+    }
+
+    // A tabela impressa e, para cada símbolo, todas as referências
+    private static String tabela(SymbolTable tabela) throws IOException {
+        StringBuilder texto = new StringBuilder();
+        tabela.print(texto);
+        for (int id = 0; id < tabela.size(); id++) {
+            texto.append(tabela.lexema(id)).append(':');
+            for (Token t : tabela.referencias(id)) texto.append(' ').append(resumo(t));
+            texto.append('\n');
+        }
+        return texto.toString();
+    }
+}